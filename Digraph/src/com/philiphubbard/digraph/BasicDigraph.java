@@ -22,11 +22,19 @@
 
 package com.philiphubbard.digraph;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 
 
 // A simple directed graph, whose edges just store the index of the vertex
-// pointed to.
+// pointed to.  An edge may also be of a class derived from Edge, with data
+// of its own, in which case the graph stores the edge objects, as described
+// for addEdge().
 
 public class BasicDigraph extends Digraph<BasicDigraph.Edge> {
 	
@@ -39,21 +47,113 @@ public class BasicDigraph extends Digraph<BasicDigraph.Edge> {
 	}
 	
 	// Constructor.  Vertices can be added with indices in the range
-	// from 0 to vertexCapacity - 1.  The EdgeMultiples enum
+	// from 0 to vertexCapacity - 1, and the capacity grows as needed
+	// when edges involving larger indices are added.  The EdgeMultiples enum
 	// specifies whether the graph can have more than one edge between
-	// a pair of vertices or not.
+	// a pair of vertices or not.  Since an edge has no data beyond the
+	// vertex pointed to, only that vertex is stored, and iterators create 
+	// edges as needed.
 	
 	public BasicDigraph(int vertexCapacity, EdgeMultiples multiples) {
-		super(vertexCapacity, multiples);
+		super(vertexCapacity, multiples, EdgeObjects.CREATED);
 	}
 	
 	// Add an edge from the specified vertex pointing to another vertex.
-	// Silently does nothing if the specified vertex is out of range.
+	// Increases the vertex capacity if either vertex is beyond it.
+	// Silently does nothing if either vertex is negative.  Adding the first
+	// edge of a class derived from Edge makes the graph store the edge 
+	// objects from then on, so iterators return the edges that were added,
+	// at the cost of an object for each edge.  Routines that copy only the 
+	// vertices pointed to, like freeze(), reorder() and writeTo(), still
+	// drop any data of such edges.
 	
 	public void addEdge(int from, Edge edge) {
+		if ((edge.getClass() != Edge.class) && (from >= 0) && (edge.getTo() >= 0))
+			storeEdgeObjects();
 		super.addEdge(from, edge);
 	}
 	
+	// Add many edges at once, an edge from from[i] to to[i] for each i.
+	// The result is the same as calling addEdge() for each edge in order,
+	// but the edges are sorted and merged with the existing edges in one
+	// pass, which is much faster for large batches.  Increases the vertex
+	// capacity as needed, and silently ignores edges involving negative
+	// vertices.
+	// Throws IllegalArgumentException if the array lengths differ.
+	
+	public void addEdges(int[] from, int[] to) throws IllegalArgumentException {
+		super.addEdges(from, to, null);
+	}
+	
+	// Returns a copy of the graph with the vertices relabeled in the specified
+	// ordering, to improve the locality of traversals, along with the maps
+	// between the original and new vertices.  The copy has a reverse index if
+	// this graph does.
+	
+	public Reordering<BasicDigraph> reorder(Reordering.Ordering ordering) {
+		int[] inverse = Reordering.order(this, ordering);
+		int[] forward = Reordering.invert(inverse);
+		
+		int edgeCount = 0;
+		for (int v = 0; v < getVertexCapacity(); v++)
+			edgeCount += getOutDegree(v);
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		int k = 0;
+		for (int v : inverse) {
+			int outDegree = getOutDegree(v);
+			for (int i = 0; i < outDegree; i++) {
+				from[k] = forward[v];
+				to[k++] = forward[targetAt(v, i)];
+			}
+		}
+		
+		BasicDigraph result = new BasicDigraph(getVertexCapacity(), getEdgeMultiples());
+		result.addEdges(from, to);
+		if (hasReverseIndex())
+			result.enableReverseIndex();
+		return new Reordering<BasicDigraph>(result, forward, inverse);
+	}
+	
+	// Write the graph to the specified stream in a compact binary format,
+	// which readFrom() reads.  The sorted vertices pointed to by each vertex's
+	// edges are stored as variable-length gaps, and the data is written
+	// through a buffer of bounded size.  The stream is not closed.
+	
+	public void writeTo(OutputStream stream) throws IOException {
+		writeTo(Channels.newChannel(stream));
+		stream.flush();
+	}
+	
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		writeEdges(channel, DigraphFormat.BASIC);
+	}
+	
+	// Read a graph written by writeTo() from the specified stream, reading
+	// the edges of each vertex directly into the graph through a buffer of
+	// bounded size.  Reads no further than the end of the graph's data.
+	// Throws IOException if the data is not a BasicDigraph or ends early.
+	
+	public static BasicDigraph readFrom(InputStream stream) throws IOException {
+		return readFrom(Channels.newChannel(stream));
+	}
+	
+	public static BasicDigraph readFrom(ReadableByteChannel channel) throws IOException {
+		DigraphFormat.Reader in = new DigraphFormat.Reader(channel, DigraphFormat.BASIC);
+		EdgeMultiples multiples = in.hasMultiples() ? 
+				EdgeMultiples.ENABLED : EdgeMultiples.DISABLED;
+		BasicDigraph graph = new BasicDigraph(in.getVertexCapacity(), multiples);
+		graph.readEdges(in);
+		return graph;
+	}
+	
+	// Create an edge pointing to the specified vertex, for the iterators.
+	
+	@Override
+	protected Edge createEdge(int to) {
+		return new Edge(to);
+	}
+	
 	// An iterator over the edges the pointing out from the specified vertex.
 	// It can be used in a loop like the following:
 	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
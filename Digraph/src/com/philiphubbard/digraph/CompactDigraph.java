@@ -0,0 +1,383 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// An immutable directed graph in compressed sparse row (CSR) form.  The vertices
+// pointed to by all the edges are stored in one int array, grouped by the vertex
+// pointed from and sorted within each group the way Digraph.addEdge() sorts them,
+// and a second int array records where each vertex's group starts.  There are no
+// per-edge objects, so a traversal by an algorithm like EulerPaths or 
+// StrongComponents reads contiguous memory.
+
+public class CompactDigraph extends Digraph<BasicDigraph.Edge> {
+	
+	// Constructor, which makes a snapshot of the edges currently in the 
+	// specified graph.  Later changes to that graph do not affect this one.
+	
+	public CompactDigraph(Digraph<?> graph) {
+		super(graph.getEdgeMultiples());
+		
+		int vertexCapacity = graph.getVertexCapacity();
+		offsets = new int[vertexCapacity + 1];
+		for (int v = 0; v < vertexCapacity; v++) {
+			int outDegree = 0;
+			Digraph<?>.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (it.begin(); !it.done(); it.next())
+				outDegree++;
+			offsets[v + 1] = offsets[v] + outDegree;
+		}
+		
+		targets = new int[offsets[vertexCapacity]];
+		inDegrees = new int[vertexCapacity];
+		int i = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			Digraph<?>.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (Digraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+				targets[i++] = e.getTo();
+				inDegrees[e.getTo()]++;
+			}
+		}
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex.
+	// It can be used in a loop like the following:
+	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	// The edges it returns are created on demand, so later changes to them
+	// do not affect the graph.
+	
+	public class AdjacencyIterator 
+		extends Digraph<BasicDigraph.Edge>.AdjacencyIterator {
+		
+		@Override
+		public BasicDigraph.Edge begin() {
+			current = offsets[from];
+			return currentEdge();
+		}
+		
+		@Override
+		public BasicDigraph.Edge next() {
+			if (current < end)
+				current++;
+			return currentEdge();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		// The position of the current edge among the sorted edges from the
+		// vertex, or NO_VERTEX if the iteration is done.
+		
+		@Override
+		public int getIndex() {
+			return (current < end) ? current - offsets[from] : NO_VERTEX;
+		}
+		
+		protected AdjacencyIterator(CompactDigraph graph, int from) {
+			super(graph, from);
+			this.from = from;
+			end = offsets[from + 1];
+			current = end;
+		}
+		
+		private BasicDigraph.Edge currentEdge() {
+			return (current < end) ? new BasicDigraph.Edge(targets[current]) : null;
+		}
+		
+		private int from;
+		private int current;
+		private int end;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyIterator createAdjacencyIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompactDigraph.createAdjacencyIterator() " +
+											    "vertex out of range");
+		return new AdjacencyIterator(this, from);
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// It can be used in a loop like the following:
+	// "for (ArrayList<Edge> e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	
+	public class AdjacencyMultipleIterator 
+		extends Digraph<BasicDigraph.Edge>.AdjacencyMultipleIterator {
+		
+		@Override
+		public ArrayList<BasicDigraph.Edge> begin() {
+			current = offsets[from];
+			return matchingEdges();
+		}
+		
+		@Override
+		public ArrayList<BasicDigraph.Edge> next() {
+			if (current < end)
+				current++;
+			return matchingEdges();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		protected AdjacencyMultipleIterator(CompactDigraph graph, int from) {
+			super(graph, from);
+			this.from = from;
+			end = offsets[from + 1];
+			current = end;
+		}
+		
+		// Return the edges matching the current edge (i.e., pointing to the
+		// same vertex), leaving the current edge as the last of them.
+		
+		private ArrayList<BasicDigraph.Edge> matchingEdges() {
+			if (current >= end)
+				return null;
+			ArrayList<BasicDigraph.Edge> result = new ArrayList<BasicDigraph.Edge>();
+			result.add(new BasicDigraph.Edge(targets[current]));
+			while ((current + 1 < end) && (targets[current + 1] == targets[current]))
+				result.add(new BasicDigraph.Edge(targets[++current]));
+			return result;
+		}
+		
+		private int from;
+		private int current;
+		private int end;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompactDigraph.createAdjacencyMultipleIterator() " +
+											    "vertex out of range");
+		return new AdjacencyMultipleIterator(this, from);
+	}
+	
+	// An iterator over the vertices with edges pointing in to the specified
+	// vertex, in increasing order, with a vertex repeated for edge multiples.
+	// It can be used in a loop like the following:
+	// "for (int v = iterator.begin(); !iterator.done(); v = iterator.next())"
+	// Returns NO_VERTEX when the iteration is done.
+	
+	public class InAdjacencyIterator 
+		extends Digraph<BasicDigraph.Edge>.InAdjacencyIterator {
+		
+		@Override
+		public int begin() {
+			current = inOffsets[to];
+			return currentVertex();
+		}
+		
+		@Override
+		public int next() {
+			if (current < end)
+				current++;
+			return currentVertex();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		protected InAdjacencyIterator(CompactDigraph graph, int to) {
+			super(graph, to);
+			this.to = to;
+			end = inOffsets[to + 1];
+			current = end;
+		}
+		
+		private int currentVertex() {
+			return (current < end) ? sources[current] : NO_VERTEX;
+		}
+		
+		private int to;
+		private int current;
+		private int end;
+	}
+	
+	// Create an iterator for the vertices with edges in to the specified
+	// vertex.  Enables the reverse index if it is not already enabled.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	@Override
+	public InAdjacencyIterator createInAdjacencyIterator(int to) 
+			throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("CompactDigraph.createInAdjacencyIterator() " +
+											    "vertex out of range");
+		enableReverseIndex();
+		return new InAdjacencyIterator(this, to);
+	}
+	
+	// Build the index of the edges pointing in to each vertex, in the same
+	// compressed sparse row form as the edges pointing out.  Does nothing
+	// if the index exists.
+	
+	@Override
+	public void enableReverseIndex() {
+		if (sources != null)
+			return;
+		
+		int vertexCapacity = getVertexCapacity();
+		int[] offsets = new int[vertexCapacity + 1];
+		for (int v = 0; v < vertexCapacity; v++)
+			offsets[v + 1] = offsets[v] + inDegrees[v];
+		
+		// Visiting the vertices in increasing order keeps each 
+		// vertex's sources sorted.
+		
+		int[] next = Arrays.copyOf(offsets, vertexCapacity);
+		int[] s = new int[targets.length];
+		for (int v = 0; v < vertexCapacity; v++)
+			for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++)
+				s[next[targets[i]]++] = v;
+		
+		inOffsets = offsets;
+		sources = s;
+	}
+	
+	@Override
+	public boolean hasReverseIndex() {
+		return (sources != null);
+	}
+	
+	@Override
+	public int getVertexCapacity() {
+		return inDegrees.length;
+	}
+	
+	// The total number of edges in the graph.
+	
+	public int getEdgeCount() {
+		return targets.length;
+	}
+	
+	@Override
+	public int getOutDegree(int from) throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompactDigraph.outDegree() " +
+											    "vertex out of range");
+		return offsets[from + 1] - offsets[from];
+	}
+	
+	@Override
+	public int targetAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "CompactDigraph.targetAt()");
+		return targets[offsets[from] + index];
+	}
+	
+	@Override
+	public int getNeighbors(int from, int[] dest) throws IndexOutOfBoundsException {
+		int outDegree = getOutDegree(from);
+		System.arraycopy(targets, offsets[from], dest, 0, Math.min(outDegree, dest.length));
+		return outDegree;
+	}
+	
+	@Override
+	public int getInDegree(int to) throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("CompactDigraph.inDegree() " +
+											    "vertex out of range");
+		return inDegrees[to];
+	}
+	
+	@Override
+	public boolean isSink(int v) {
+		return (offsets[v] == offsets[v + 1]);
+	}
+	
+	@Override
+	public CompactDigraph freeze() {
+		return this;
+	}
+	
+	@Override
+	public CompactDigraph snapshot() {
+		return this;
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdge(int from, int to) {
+		throw new UnsupportedOperationException("CompactDigraph.removeEdge() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdgesFrom(int from) {
+		throw new UnsupportedOperationException("CompactDigraph.removeEdgesFrom() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public int removeEdgesIf(EdgePredicate predicate) {
+		throw new UnsupportedOperationException("CompactDigraph.removeEdgesIf() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void ensureCapacity(int vertexCapacity) {
+		throw new UnsupportedOperationException("CompactDigraph.ensureCapacity() " +
+												"graph is immutable");
+	}
+	
+	//
+	
+	@Override
+	protected void addEdge(int from, BasicDigraph.Edge newEdge) {
+		throw new UnsupportedOperationException("CompactDigraph.addEdge() " +
+												"graph is immutable");
+	}
+	
+	private int[] offsets;
+	private int[] targets;
+	private int[] inDegrees;
+	private int[] inOffsets;
+	private int[] sources;
+}
@@ -0,0 +1,617 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// An immutable directed graph whose edges are compressed.  Each vertex's
+// sorted list of vertices pointed to is stored as variable-length integers
+// (varints, 7 bits per byte) in one byte array: the number of bytes in the
+// rest of the list, the first vertex as a signed difference from the vertex
+// pointed from, and then the gaps between consecutive vertices.  The out
+// degrees are stored in an int array, so they take constant time.  When
+// neighbors have nearby indices, as after reordering with
+// Reordering.Ordering.REVERSE_CUTHILL_MCKEE, most gaps take one byte instead
+// of the four of an int.  A sparse index records where the list of every
+// INDEX_INTERVAL'th vertex starts, and finding another vertex's list skips
+// over at most INDEX_INTERVAL - 1 lists by their byte counts.
+//
+// The adjacency iterators decode a list as they go.  Routines that access
+// edges by position, like targetAt(), decode the whole list of a vertex and
+// keep the most recent one, so a loop over the positions of one vertex 
+// decodes it only once.  The in degrees are stored in an int array, and the
+// reverse index, built on demand, is compressed in the same way.  The bytes
+// of each direction must fit in one Java array, of about 2 GB.
+
+public class CompressedDigraph extends Digraph<BasicDigraph.Edge> {
+	
+	// The number of vertices between entries in the sparse index.
+	
+	public static final int INDEX_INTERVAL = 64;
+	
+	// Constructor, which makes a compressed copy of the edges currently in 
+	// the specified graph.  Later changes to that graph do not affect this one.
+	// Throws IllegalStateException if the compressed edges do not fit in one 
+	// Java array.
+	
+	public CompressedDigraph(Digraph<?> graph) throws IllegalStateException {
+		super(graph.getEdgeMultiples());
+		
+		int vertexCapacity = graph.getVertexCapacity();
+		inDegrees = new int[vertexCapacity];
+		outDegrees = new int[vertexCapacity];
+		Lists.Encoder encoder = new Lists.Encoder(outDegrees, "CompressedDigraph()");
+		int[] buffer = new int[INDEX_INTERVAL];
+		for (int v = 0; v < vertexCapacity; v++) {
+			int outDegree = graph.getNeighbors(v, buffer);
+			if (outDegree > buffer.length) {
+				buffer = new int[Math.max(outDegree, 2 * buffer.length)];
+				graph.getNeighbors(v, buffer);
+			}
+			for (int i = 0; i < outDegree; i++)
+				inDegrees[buffer[i]]++;
+			edgeCount += outDegree;
+			outDegrees[v] = outDegree;
+			encoder.add(v, buffer);
+		}
+		targets = encoder.finish();
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex.
+	// It can be used in a loop like the following:
+	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	// The edges it returns are created on demand, so later changes to them
+	// do not affect the graph.
+	
+	public class AdjacencyIterator 
+		extends Digraph<BasicDigraph.Edge>.AdjacencyIterator {
+		
+		@Override
+		public BasicDigraph.Edge begin() {
+			cursor.start();
+			return currentEdge();
+		}
+		
+		@Override
+		public BasicDigraph.Edge next() {
+			cursor.next();
+			return currentEdge();
+		}
+		
+		@Override
+		public boolean done() {
+			return cursor.done();
+		}
+		
+		// The position of the current edge among the sorted edges from the
+		// vertex, or NO_VERTEX if the iteration is done.
+		
+		@Override
+		public int getIndex() {
+			return cursor.done() ? NO_VERTEX : cursor.index();
+		}
+		
+		protected AdjacencyIterator(CompressedDigraph graph, int from) {
+			super(graph, from);
+			cursor = new Lists.Cursor(targets, from);
+		}
+		
+		private BasicDigraph.Edge currentEdge() {
+			return cursor.done() ? null : new BasicDigraph.Edge(cursor.value());
+		}
+		
+		private Lists.Cursor cursor;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyIterator createAdjacencyIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompressedDigraph.createAdjacencyIterator() " +
+											    "vertex out of range");
+		return new AdjacencyIterator(this, from);
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// It can be used in a loop like the following:
+	// "for (ArrayList<Edge> e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	
+	public class AdjacencyMultipleIterator 
+		extends Digraph<BasicDigraph.Edge>.AdjacencyMultipleIterator {
+		
+		@Override
+		public ArrayList<BasicDigraph.Edge> begin() {
+			cursor.start();
+			return matchingEdges();
+		}
+		
+		@Override
+		public ArrayList<BasicDigraph.Edge> next() {
+			return matchingEdges();
+		}
+		
+		@Override
+		public boolean done() {
+			return cursor.done() && (lastGroup == null);
+		}
+		
+		protected AdjacencyMultipleIterator(CompressedDigraph graph, int from) {
+			super(graph, from);
+			cursor = new Lists.Cursor(targets, from);
+		}
+		
+		// Return the edges matching the cursor's edge, leaving the cursor on
+		// the first edge after them.
+		
+		private ArrayList<BasicDigraph.Edge> matchingEdges() {
+			if (cursor.done()) {
+				lastGroup = null;
+				return null;
+			}
+			ArrayList<BasicDigraph.Edge> result = new ArrayList<BasicDigraph.Edge>();
+			int to = cursor.value();
+			while ((!cursor.done()) && (cursor.value() == to)) {
+				result.add(new BasicDigraph.Edge(to));
+				cursor.next();
+			}
+			lastGroup = result;
+			return result;
+		}
+		
+		private Lists.Cursor cursor;
+		private ArrayList<BasicDigraph.Edge> lastGroup;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompressedDigraph.createAdjacencyMultipleIterator() " +
+											    "vertex out of range");
+		return new AdjacencyMultipleIterator(this, from);
+	}
+	
+	// An iterator over the vertices with edges pointing in to the specified
+	// vertex, in increasing order, with a vertex repeated for edge multiples.
+	// It can be used in a loop like the following:
+	// "for (int v = iterator.begin(); !iterator.done(); v = iterator.next())"
+	// Returns NO_VERTEX when the iteration is done.
+	
+	public class InAdjacencyIterator 
+		extends Digraph<BasicDigraph.Edge>.InAdjacencyIterator {
+		
+		@Override
+		public int begin() {
+			cursor.start();
+			return currentVertex();
+		}
+		
+		@Override
+		public int next() {
+			cursor.next();
+			return currentVertex();
+		}
+		
+		@Override
+		public boolean done() {
+			return cursor.done();
+		}
+		
+		protected InAdjacencyIterator(CompressedDigraph graph, int to) {
+			super(graph, to);
+			cursor = new Lists.Cursor(sources, to);
+		}
+		
+		private int currentVertex() {
+			return cursor.done() ? NO_VERTEX : cursor.value();
+		}
+		
+		private Lists.Cursor cursor;
+	}
+	
+	// Create an iterator for the vertices with edges in to the specified
+	// vertex.  Enables the reverse index if it is not already enabled.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	@Override
+	public InAdjacencyIterator createInAdjacencyIterator(int to) 
+			throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("CompressedDigraph.createInAdjacencyIterator() " +
+											    "vertex out of range");
+		enableReverseIndex();
+		return new InAdjacencyIterator(this, to);
+	}
+	
+	// Build the index of the edges pointing in to each vertex, compressed in
+	// the same way as the edges pointing out.  Does nothing if the index 
+	// exists.
+	// Throws IllegalStateException if the edges are too many to sort in an
+	// int array, or if the compressed index does not fit in one Java array.
+	
+	@Override
+	public synchronized void enableReverseIndex() throws IllegalStateException {
+		if (sources != null)
+			return;
+		if (edgeCount > Lists.MAX_SIZE)
+			throw new IllegalStateException("CompressedDigraph.enableReverseIndex() " +
+											"too many edges");
+		
+		int vertexCapacity = getVertexCapacity();
+		int[] offsets = new int[vertexCapacity + 1];
+		for (int v = 0; v < vertexCapacity; v++)
+			offsets[v + 1] = offsets[v] + inDegrees[v];
+		
+		// Visiting the vertices in increasing order keeps each 
+		// vertex's sources sorted.
+		
+		int[] next = Arrays.copyOf(offsets, vertexCapacity);
+		int[] s = new int[offsets[vertexCapacity]];
+		for (int v = 0; v < vertexCapacity; v++) {
+			Lists.Cursor c = new Lists.Cursor(targets, v);
+			for (c.start(); !c.done(); c.next())
+				s[next[c.value()]++] = v;
+		}
+		
+		Lists.Encoder encoder = new Lists.Encoder(inDegrees, "CompressedDigraph.enableReverseIndex()");
+		int[] buffer = new int[0];
+		for (int v = 0; v < vertexCapacity; v++) {
+			if (buffer.length < inDegrees[v])
+				buffer = new int[Math.max(inDegrees[v], 2 * buffer.length)];
+			System.arraycopy(s, offsets[v], buffer, 0, inDegrees[v]);
+			encoder.add(v, buffer);
+		}
+		sources = encoder.finish();
+	}
+	
+	@Override
+	public boolean hasReverseIndex() {
+		return (sources != null);
+	}
+	
+	@Override
+	public int getVertexCapacity() {
+		return inDegrees.length;
+	}
+	
+	// The total number of edges in the graph.
+	
+	public long getEdgeCount() {
+		return edgeCount;
+	}
+	
+	// The number of bytes used by the compressed edges, including the sparse
+	// index and the out degrees, but not counting the reverse index.
+	
+	public long getEdgeBytes() {
+		return targets.data.length + 4L * targets.index.length + 4L * outDegrees.length;
+	}
+	
+	@Override
+	public int getOutDegree(int from) throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompressedDigraph.outDegree() " +
+											    "vertex out of range");
+		return outDegrees[from];
+	}
+	
+	@Override
+	public int targetAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "CompressedDigraph.targetAt()");
+		return decoded(from)[index];
+	}
+	
+	@Override
+	public int getNeighbors(int from, int[] dest) throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("CompressedDigraph.getNeighbors() " +
+											    "vertex out of range");
+		Lists.Cursor c = new Lists.Cursor(targets, from);
+		int i = 0;
+		for (c.start(); (!c.done()) && (i < dest.length); c.next())
+			dest[i++] = c.value();
+		return c.size();
+	}
+	
+	@Override
+	public int getInDegree(int to) throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("CompressedDigraph.inDegree() " +
+											    "vertex out of range");
+		return inDegrees[to];
+	}
+	
+	@Override
+	public boolean isSink(int v) {
+		return (getOutDegree(v) == 0);
+	}
+	
+	@Override
+	public CompactDigraph freeze() {
+		return new CompactDigraph(this);
+	}
+	
+	@Override
+	public CompressedDigraph snapshot() {
+		return this;
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdge(int from, int to) {
+		throw new UnsupportedOperationException("CompressedDigraph.removeEdge() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdgesFrom(int from) {
+		throw new UnsupportedOperationException("CompressedDigraph.removeEdgesFrom() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public int removeEdgesIf(EdgePredicate predicate) {
+		throw new UnsupportedOperationException("CompressedDigraph.removeEdgesIf() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void ensureCapacity(int vertexCapacity) {
+		throw new UnsupportedOperationException("CompressedDigraph.ensureCapacity() " +
+												"graph is immutable");
+	}
+	
+	//
+	
+	@Override
+	protected void addEdge(int from, BasicDigraph.Edge newEdge) {
+		throw new UnsupportedOperationException("CompressedDigraph.addEdge() " +
+												"graph is immutable");
+	}
+	
+	// Helper function for returning the decoded list of the specified vertex,
+	// from the one-entry cache if possible.  The cache entry is immutable, so
+	// threads sharing the graph can replace it without locking.
+	
+	private int[] decoded(int from) {
+		Decoded d = cache;
+		if ((d == null) || (d.vertex != from)) {
+			int[] values = new int[outDegrees[from]];
+			getNeighbors(from, values);
+			d = new Decoded(from, values);
+			cache = d;
+		}
+		return d.values;
+	}
+	
+	private static class Decoded {
+		Decoded(int vertex, int[] values) {
+			this.vertex = vertex;
+			this.values = values;
+		}
+		
+		final int vertex;
+		final int[] values;
+	}
+	
+	// A family of sorted lists of vertices, one for each vertex, compressed 
+	// as described above.  The sizes of the lists are stored in an int array
+	// that the family shares with the graph (its out or in degrees).
+	
+	private static class Lists {
+		
+		// The maximum number of bytes in the data array.
+		
+		static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+		
+		// Appends the lists in order of vertex, with the sizes in the 
+		// specified array.  The function is named in the exception thrown
+		// if the data exceeds MAX_SIZE bytes.
+		
+		static class Encoder {
+			Encoder(int[] sizes, String function) {
+				this.sizes = sizes;
+				this.function = function;
+				index = new int[(sizes.length + INDEX_INTERVAL - 1) / INDEX_INTERVAL];
+				data = new byte[Math.max(16, sizes.length)];
+				body = new byte[16];
+			}
+			
+			void add(int v, int[] list) throws IllegalStateException {
+				if (v % INDEX_INTERVAL == 0)
+					index[v / INDEX_INTERVAL] = size;
+				
+				int count = sizes[v];
+				if (count == 0)
+					return;
+				
+				bodySize = 0;
+				int previous = v;
+				for (int i = 0; i < count; i++) {
+					int delta = list[i] - previous;
+					putBody((i == 0) ? (delta << 1) ^ (delta >> 31) : delta);
+					previous = list[i];
+				}
+				
+				ensure(5);
+				size = putVarInt(data, size, bodySize);
+				ensure(bodySize);
+				System.arraycopy(body, 0, data, size, bodySize);
+				size += bodySize;
+			}
+			
+			Lists finish() {
+				return new Lists(Arrays.copyOf(data, size), index, sizes);
+			}
+			
+			private void putBody(int value) throws IllegalStateException {
+				if (bodySize > MAX_SIZE - 5)
+					throw new IllegalStateException(function + " edges too large to compress");
+				if (body.length < bodySize + 5)
+					body = Arrays.copyOf(body, (int) Math.min(MAX_SIZE, 2L * body.length + 5));
+				bodySize = putVarInt(body, bodySize, value);
+			}
+			
+			// Grows the data array to hold n more bytes, throwing if that
+			// would exceed MAX_SIZE instead of letting the int size overflow.
+			
+			private void ensure(int n) throws IllegalStateException {
+				if (size > MAX_SIZE - n)
+					throw new IllegalStateException(function + " edges too large to compress");
+				if (data.length < size + n)
+					data = Arrays.copyOf(data, (int) Math.min(MAX_SIZE, 
+							Math.max(size + n, data.length + (long) (data.length >> 1))));
+			}
+			
+			private int[] sizes;
+			private String function;
+			private int[] index;
+			private byte[] data;
+			private int size;
+			private byte[] body;
+			private int bodySize;
+		}
+		
+		// Decodes the list of one vertex, first finding it from the nearest
+		// indexed list.
+		
+		static class Cursor {
+			Cursor(Lists lists, int v) {
+				this.lists = lists;
+				vertex = v;
+				position = lists.index[v / INDEX_INTERVAL];
+				for (int u = v - v % INDEX_INTERVAL; u < v; u++) {
+					if (lists.sizes[u] > 0) {
+						int bytes = getVarInt();
+						position += bytes;
+					}
+				}
+				count = lists.sizes[v];
+				if (count > 0)
+					getVarInt();
+				start = position;
+			}
+			
+			void start() {
+				position = start;
+				remaining = count;
+				value = vertex;
+				if (remaining > 0) {
+					int zigzag = getVarInt();
+					value += (zigzag >>> 1) ^ -(zigzag & 1);
+				}
+			}
+			
+			void next() {
+				if (remaining == 0)
+					return;
+				remaining--;
+				if (remaining > 0)
+					value += getVarInt();
+			}
+			
+			boolean done() {
+				return (remaining == 0);
+			}
+			
+			int value() {
+				return value;
+			}
+			
+			int size() {
+				return count;
+			}
+			
+			int index() {
+				return count - remaining;
+			}
+			
+			private int getVarInt() {
+				int result = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = lists.data[position++];
+					result |= (b & 0x7f) << shift;
+					shift += 7;
+				} while (b < 0);
+				return result;
+			}
+			
+			private Lists lists;
+			private int vertex;
+			private int count;
+			private int start;
+			private int position;
+			private int remaining;
+			private int value;
+		}
+		
+		Lists(byte[] data, int[] index, int[] sizes) {
+			this.data = data;
+			this.index = index;
+			this.sizes = sizes;
+		}
+		
+		// Puts the value as a varint at the specified position in the array,
+		// and returns the position after it.
+		
+		static int putVarInt(byte[] a, int p, int value) {
+			while ((value & ~0x7f) != 0) {
+				a[p++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			a[p++] = (byte) value;
+			return p;
+		}
+		
+		final byte[] data;
+		final int[] index;
+		final int[] sizes;
+	}
+	
+	private Lists targets;
+	private volatile Lists sources;
+	private int[] inDegrees;
+	private int[] outDegrees;
+	private long edgeCount;
+	private Decoded cache;
+}
@@ -0,0 +1,639 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A BasicDigraph that can be used by many threads at once.  The vertices are
+// divided into ranges of RANGE_SIZE consecutive vertices, and each range is
+// guarded by one of a fixed number of striped locks.  Adding or removing an
+// edge locks only the stripes of its two vertices, so threads adding edges to
+// different vertices usually proceed in parallel, and threads iterating over
+// the edges of other vertices are not blocked.  Increasing the vertex capacity
+// reallocates the per-vertex arrays, so it locks all the stripes, which
+// briefly excludes all other operations, as do the other operations on the
+// whole graph, like snapshot().  The capacity is also kept in a volatile
+// field, so other operations check a vertex against it without any 
+// graph-wide lock, and then lock only their stripes: the arrays change only
+// while all the stripes are locked, so holding one stripe keeps them stable.
+// The reverse index is always enabled, so in degrees never need a graph-wide
+// scan.
+//
+// An iterator locks its vertex's stripe during each call to begin(), next() 
+// and done(), so edges may be added and removed between the calls, with the 
+// same results as for a single-threaded graph.
+
+public class ConcurrentDigraph extends BasicDigraph {
+	
+	// The number of consecutive vertices guarded by the same lock.
+	
+	public static final int RANGE_SIZE = 64;
+	
+	// Constructor.  The number of lock stripes is proportional to the number 
+	// of processors.
+	
+	public ConcurrentDigraph(int vertexCapacity, EdgeMultiples multiples) {
+		this(vertexCapacity, multiples, 16 * Runtime.getRuntime().availableProcessors());
+	}
+	
+	// Constructor, specifying the number of lock stripes, which is rounded
+	// up to a power of two.
+	// Throws IllegalArgumentException if the number is not positive.
+	
+	public ConcurrentDigraph(int vertexCapacity, EdgeMultiples multiples, int stripeCount) 
+			throws IllegalArgumentException {
+		super(vertexCapacity, multiples);
+		if (stripeCount <= 0)
+			throw new IllegalArgumentException("ConcurrentDigraph() " +
+											   "stripe count must be positive");
+		int n = Integer.highestOneBit(stripeCount);
+		if (n < stripeCount)
+			n <<= 1;
+		stripes = new ReentrantLock[n];
+		for (int i = 0; i < n; i++)
+			stripes[i] = new ReentrantLock();
+		super.enableReverseIndex();
+		capacity = super.getVertexCapacity();
+	}
+	
+	// Add an edge from the specified vertex pointing to another vertex.
+	// Increases the vertex capacity if either vertex is beyond it.
+	// Silently does nothing if either vertex is negative.
+	
+	@Override
+	public void addEdge(int from, Edge edge) {
+		int to = edge.getTo();
+		if ((from < 0) || (to < 0))
+			return;
+		
+		boolean stored = (edge.getClass() == Edge.class);
+		lockStripes(from, to);
+		try {
+			if ((Math.max(from, to) < super.getVertexCapacity()) && 
+					(stored || storesEdgeObjects())) {
+				super.addEdge(from, edge);
+				return;
+			}
+		}
+		finally {
+			unlockStripes(from, to);
+		}
+		
+		// Adding the edge increases the capacity, or makes the graph start 
+		// storing edge objects, either of which needs all the stripes.
+		
+		lockAll();
+		try {
+			super.addEdge(from, edge);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Add a column of primitive values for the edges, as for Digraph.  Locks
+	// the whole graph while adding the column.
+	
+	@Override
+	protected int addEdgeColumn(Class<?> type) {
+		lockAll();
+		try {
+			return super.addEdgeColumn(type);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Add many edges at once, an edge from from[i] to to[i] for each i, as
+	// for BasicDigraph.  Locks the whole graph while adding the edges.
+	// Throws IllegalArgumentException if the array lengths differ.
+	
+	@Override
+	public void addEdges(int[] from, int[] to) throws IllegalArgumentException {
+		lockAll();
+		try {
+			super.addEdges(from, to);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Remove all edges from the specified vertex to the other vertex.
+	// Silently does nothing if either vertex does not exist or is
+	// out of range.
+	
+	@Override
+	public void removeEdge(int from, int to) {
+		if ((from < 0) || (to < 0))
+			return;
+		
+		if (Math.max(from, to) >= capacity)
+			return;
+		lockStripes(from, to);
+		try {
+			super.removeEdge(from, to);
+		}
+		finally {
+			unlockStripes(from, to);
+		}
+	}
+	
+	// Remove all the edges from the specified vertex.  The edges may point to
+	// vertices in any stripe, so this routine locks the whole graph.
+	
+	@Override
+	public void removeEdgesFrom(int from) {
+		lockAll();
+		try {
+			super.removeEdgesFrom(from);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Remove every edge for which the predicate returns true, as for Digraph.
+	// Locks the whole graph while testing and removing the edges.
+	
+	@Override
+	public int removeEdgesIf(EdgePredicate predicate) {
+		lockAll();
+		try {
+			return super.removeEdgesIf(predicate);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// The number of edges from the specified vertex to the other vertex, as 
+	// for Digraph.  Locks the stripe of the first vertex, which guards its
+	// edges and its hash index.
+	
+	@Override
+	public int getMultiplicity(int from, int to) {
+		if (from < 0)
+			return 0;
+		lockVertex(from);
+		try {
+			return super.getMultiplicity(from, to);
+		}
+		finally {
+			unlockVertex(from);
+		}
+	}
+	
+	@Override
+	public int indexOf(int from, int to) {
+		if (from < 0)
+			return NO_VERTEX;
+		lockVertex(from);
+		try {
+			return super.indexOf(from, to);
+		}
+		finally {
+			unlockVertex(from);
+		}
+	}
+	
+	@Override
+	public int getNeighbors(int from, int[] dest) throws IndexOutOfBoundsException {
+		if ((from < 0) || (capacity <= from))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.getNeighbors() " +
+											    "vertex out of range");
+		lockStripe(from);
+		try {
+			return super.getNeighbors(from, dest);
+		}
+		finally {
+			unlockStripe(from);
+		}
+	}
+	
+	// Returns a relabeled copy of the graph, as for BasicDigraph.  Locks the
+	// whole graph while copying it.
+	
+	@Override
+	public Reordering<BasicDigraph> reorder(Reordering.Ordering ordering) {
+		lockAll();
+		try {
+			return super.reorder(ordering);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	@Override
+	public void setHubThreshold(int threshold) throws IllegalArgumentException {
+		lockAll();
+		try {
+			super.setHubThreshold(threshold);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// The capacity without any lock, from the volatile field.  A thread 
+	// holding a stripe, like one increasing the capacity with all the stripes
+	// locked, gets the capacity of the graph itself, which is up to date for
+	// it even before the volatile field is.
+	
+	@Override
+	public int getVertexCapacity() {
+		if ((stripes == null) || stripes[0].isHeldByCurrentThread())
+			return super.getVertexCapacity();
+		return capacity;
+	}
+	
+	@Override
+	public void ensureCapacity(int vertexCapacity) {
+		lockAll();
+		try {
+			super.ensureCapacity(vertexCapacity);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	@Override
+	public int getOutDegree(int from) throws IndexOutOfBoundsException {
+		if ((from < 0) || (capacity <= from))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.outDegree() " +
+											    "vertex out of range");
+		lockStripe(from);
+		try {
+			return super.getOutDegree(from);
+		}
+		finally {
+			unlockStripe(from);
+		}
+	}
+	
+	@Override
+	public int getInDegree(int to) throws IndexOutOfBoundsException {
+		if ((to < 0) || (capacity <= to))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.inDegree() " +
+											    "vertex out of range");
+		lockStripe(to);
+		try {
+			return super.getInDegree(to);
+		}
+		finally {
+			unlockStripe(to);
+		}
+	}
+	
+	@Override
+	public int targetAt(int from, int index) throws IndexOutOfBoundsException {
+		if ((from < 0) || (capacity <= from))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.targetAt() " +
+											    "vertex out of range");
+		lockStripe(from);
+		try {
+			return super.targetAt(from, index);
+		}
+		finally {
+			unlockStripe(from);
+		}
+	}
+	
+	@Override
+	public boolean isSink(int v) {
+		return (getOutDegree(v) == 0);
+	}
+	
+	// The reverse index is always enabled, so this routine does nothing.
+	
+	@Override
+	public void enableReverseIndex() {
+	}
+	
+	// Returns a compact, read-only snapshot of the graph.  The whole graph is
+	// locked while the snapshot is made, so it is consistent.
+	
+	@Override
+	public CompactDigraph freeze() {
+		lockAll();
+		try {
+			return super.freeze();
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Returns a read-only view of the graph as it is now, as for Digraph.
+	// The whole graph is locked while the view is made, so it is consistent.
+	// The view is not locked, but since it does not change, many threads can
+	// read it at once, including the state it builds on the first read.
+	
+	@Override
+	public Digraph<Edge> snapshot() {
+		lockAll();
+		try {
+			return super.snapshot();
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// Write the graph as for BasicDigraph.  The whole graph is locked while
+	// it is written, so the result is consistent.
+	
+	@Override
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		lockAll();
+		try {
+			super.writeTo(channel);
+		}
+		finally {
+			unlockAll();
+		}
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex.
+	// It can be used in a loop like the following:
+	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	
+	public class AdjacencyIterator extends BasicDigraph.AdjacencyIterator {
+		
+		@Override
+		public Edge begin() {
+			lockVertex(from);
+			try {
+				return super.begin();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		@Override
+		public Edge next() {
+			lockVertex(from);
+			try {
+				return super.next();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		@Override
+		public boolean done() {
+			lockVertex(from);
+			try {
+				return super.done();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		protected AdjacencyIterator(ConcurrentDigraph graph, int from) {
+			super(graph, from);
+			this.from = from;
+		}
+		
+		private int from;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	@Override
+	public AdjacencyIterator createAdjacencyIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.createAdjacencyIterator() " +
+											    "vertex out of range");
+		return new AdjacencyIterator(this, from);
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// It can be used in a loop like the following:
+	// "for (ArrayList<Edge> e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	
+	public class AdjacencyMultipleIterator extends BasicDigraph.AdjacencyMultipleIterator {
+		
+		@Override
+		public ArrayList<Edge> begin() {
+			lockVertex(from);
+			try {
+				return super.begin();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		@Override
+		public ArrayList<Edge> next() {
+			lockVertex(from);
+			try {
+				return super.next();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		@Override
+		public boolean done() {
+			lockVertex(from);
+			try {
+				return super.done();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		@Override
+		public boolean advance() {
+			lockVertex(from);
+			try {
+				return super.advance();
+			}
+			finally {
+				unlockVertex(from);
+			}
+		}
+		
+		protected AdjacencyMultipleIterator(ConcurrentDigraph graph, int from) {
+			super(graph, from);
+			this.from = from;
+		}
+		
+		private int from;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	@Override
+	public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.createAdjacencyMultipleIterator() " +
+											    "vertex out of range");
+		return new AdjacencyMultipleIterator(this, from);
+	}
+	
+	// An iterator over the vertices with edges pointing in to the specified
+	// vertex, in increasing order, with a vertex repeated for edge multiples.
+	// It can be used in a loop like the following:
+	// "for (int v = iterator.begin(); !iterator.done(); v = iterator.next())"
+	// Returns NO_VERTEX when the iteration is done.
+	
+	public class InAdjacencyIterator 
+		extends Digraph<BasicDigraph.Edge>.InAdjacencyIterator {
+		
+		@Override
+		public int begin() {
+			lockVertex(to);
+			try {
+				return super.begin();
+			}
+			finally {
+				unlockVertex(to);
+			}
+		}
+		
+		@Override
+		public int next() {
+			lockVertex(to);
+			try {
+				return super.next();
+			}
+			finally {
+				unlockVertex(to);
+			}
+		}
+		
+		@Override
+		public boolean done() {
+			lockVertex(to);
+			try {
+				return super.done();
+			}
+			finally {
+				unlockVertex(to);
+			}
+		}
+		
+		protected InAdjacencyIterator(ConcurrentDigraph graph, int to) {
+			super(graph, to);
+			this.to = to;
+		}
+		
+		private int to;
+	}
+	
+	// Create an iterator for the vertices with edges in to the specified
+	// vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	@Override
+	public InAdjacencyIterator createInAdjacencyIterator(int to) 
+			throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("ConcurrentDigraph.createInAdjacencyIterator() " +
+											    "vertex out of range");
+		return new InAdjacencyIterator(this, to);
+	}
+	
+	//
+	
+	// Helper functions for holding the stripe lock of one vertex during one
+	// step of an iterator.
+	
+	private void lockVertex(int v) {
+		lockStripe(v);
+	}
+	
+	private void unlockVertex(int v) {
+		unlockStripe(v);
+	}
+	
+	private void lockStripe(int v) {
+		stripes[stripeIndex(v)].lock();
+	}
+	
+	private void unlockStripe(int v) {
+		stripes[stripeIndex(v)].unlock();
+	}
+	
+	// Helper functions for locking the stripes of two vertices.  The stripes
+	// are locked in increasing order, so two threads cannot deadlock.
+	
+	private void lockStripes(int v, int w) {
+		int i = stripeIndex(v);
+		int j = stripeIndex(w);
+		stripes[Math.min(i, j)].lock();
+		if (i != j)
+			stripes[Math.max(i, j)].lock();
+	}
+	
+	private void unlockStripes(int v, int w) {
+		int i = stripeIndex(v);
+		int j = stripeIndex(w);
+		if (i != j)
+			stripes[Math.max(i, j)].unlock();
+		stripes[Math.min(i, j)].unlock();
+	}
+	
+	// Helper functions for locking all the stripes, for an operation on the
+	// whole graph.  The stripes are locked in increasing order, like those of
+	// two vertices, so no thread can deadlock.  The capacity may have 
+	// changed, so it is published before the stripes are unlocked.
+	
+	private void lockAll() {
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i].lock();
+	}
+	
+	private void unlockAll() {
+		capacity = super.getVertexCapacity();
+		for (int i = stripes.length - 1; i >= 0; i--)
+			stripes[i].unlock();
+	}
+	
+	private int stripeIndex(int v) {
+		return (v / RANGE_SIZE) & (stripes.length - 1);
+	}
+	
+	private ReentrantLock[] stripes;
+	private volatile int capacity;
+}
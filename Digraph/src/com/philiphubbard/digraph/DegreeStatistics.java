@@ -0,0 +1,244 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Statistics about the in and out degrees of the vertices of a digraph: 
+// the maximum and mean degrees, histograms of the number of vertices with
+// each degree, and the numbers of sources (vertices with edges out but none 
+// in), sinks (vertices with edges in but none out), isolated vertices (with
+// no edges), and branch vertices (with more than one edge in or out, i.e., 
+// vertices not in the middle or at the end of a simple chain).
+//
+// The statistics are computed once, in the constructor, by tasks on the
+// common ForkJoin pool that each cover a range of vertices, and whose 
+// results are summed as the tasks are joined.  Later changes to the graph
+// do not affect them.
+
+public class DegreeStatistics {
+	
+	// Constructor, which computes the statistics for all the vertices in 
+	// the range from 0 to graph.getVertexCapacity() - 1.
+	
+	public DegreeStatistics(Digraph<?> graph) {
+		vertexCount = graph.getVertexCapacity();
+		
+		// For a graph without a reverse index, reading one in degree 
+		// computes them all, which must happen before the tasks read them.
+		
+		if (vertexCount > 0)
+			graph.getInDegree(0);
+		
+		Counts counts = ForkJoinPool.commonPool().invoke(new CountTask(graph, 0, vertexCount));
+		edgeCount = counts.edgeCount;
+		sourceCount = counts.sourceCount;
+		sinkCount = counts.sinkCount;
+		isolatedCount = counts.isolatedCount;
+		branchCount = counts.branchCount;
+		inHistogram = Arrays.copyOf(counts.inHistogram, counts.maxInDegree + 1);
+		outHistogram = Arrays.copyOf(counts.outHistogram, counts.maxOutDegree + 1);
+	}
+	
+	// The number of vertices, which is the vertex capacity of the graph.
+	
+	public int getVertexCount() {
+		return vertexCount;
+	}
+	
+	// The total number of edges.
+	
+	public long getEdgeCount() {
+		return edgeCount;
+	}
+	
+	// The largest number of edges pointing in to any one vertex.
+	
+	public int getMaxInDegree() {
+		return inHistogram.length - 1;
+	}
+	
+	// The largest number of edges pointing out from any one vertex.
+	
+	public int getMaxOutDegree() {
+		return outHistogram.length - 1;
+	}
+	
+	// The mean number of edges pointing out from a vertex, which is also 
+	// the mean number pointing in.  Returns 0 if there are no vertices.
+	
+	public double getMeanDegree() {
+		return (vertexCount == 0) ? 0.0 : (double) edgeCount / vertexCount;
+	}
+	
+	// The number of vertices with edges pointing out but none pointing in.
+	
+	public int getSourceCount() {
+		return sourceCount;
+	}
+	
+	// The number of vertices with edges pointing in but none pointing out.
+	
+	public int getSinkCount() {
+		return sinkCount;
+	}
+	
+	// The number of vertices with no edges.
+	
+	public int getIsolatedCount() {
+		return isolatedCount;
+	}
+	
+	// The number of vertices with more than one edge pointing in, or more
+	// than one edge pointing out.
+	
+	public int getBranchCount() {
+		return branchCount;
+	}
+	
+	// The histogram of in degrees: element d is the number of vertices with
+	// in degree d, for d from 0 to getMaxInDegree().  Returns a copy.
+	
+	public int[] getInDegreeHistogram() {
+		return inHistogram.clone();
+	}
+	
+	// The histogram of out degrees: element d is the number of vertices with
+	// out degree d, for d from 0 to getMaxOutDegree().  Returns a copy.
+	
+	public int[] getOutDegreeHistogram() {
+		return outHistogram.clone();
+	}
+	
+	//
+	
+	// The statistics for a range of vertices, with histograms that may be
+	// longer than the maximum degree plus one.
+	
+	private static class Counts {
+		
+		Counts() {
+			inHistogram = new int[INITIAL_HISTOGRAM_LENGTH];
+			outHistogram = new int[INITIAL_HISTOGRAM_LENGTH];
+		}
+		
+		void add(int inDegree, int outDegree) {
+			edgeCount += outDegree;
+			if (inDegree == 0) {
+				if (outDegree == 0)
+					isolatedCount++;
+				else
+					sourceCount++;
+			}
+			else if (outDegree == 0) {
+				sinkCount++;
+			}
+			if ((inDegree > 1) || (outDegree > 1))
+				branchCount++;
+			
+			if (inHistogram.length <= inDegree)
+				inHistogram = Arrays.copyOf(inHistogram, Math.max(inDegree + 1, 2 * inHistogram.length));
+			inHistogram[inDegree]++;
+			maxInDegree = Math.max(maxInDegree, inDegree);
+			if (outHistogram.length <= outDegree)
+				outHistogram = Arrays.copyOf(outHistogram, Math.max(outDegree + 1, 2 * outHistogram.length));
+			outHistogram[outDegree]++;
+			maxOutDegree = Math.max(maxOutDegree, outDegree);
+		}
+		
+		void add(Counts other) {
+			edgeCount += other.edgeCount;
+			sourceCount += other.sourceCount;
+			sinkCount += other.sinkCount;
+			isolatedCount += other.isolatedCount;
+			branchCount += other.branchCount;
+			inHistogram = sum(inHistogram, other.inHistogram, other.maxInDegree);
+			maxInDegree = Math.max(maxInDegree, other.maxInDegree);
+			outHistogram = sum(outHistogram, other.outHistogram, other.maxOutDegree);
+			maxOutDegree = Math.max(maxOutDegree, other.maxOutDegree);
+		}
+		
+		private static int[] sum(int[] a, int[] b, int bMax) {
+			if (a.length <= bMax)
+				a = Arrays.copyOf(a, bMax + 1);
+			for (int d = 0; d <= bMax; d++)
+				a[d] += b[d];
+			return a;
+		}
+		
+		long edgeCount;
+		int sourceCount;
+		int sinkCount;
+		int isolatedCount;
+		int branchCount;
+		int[] inHistogram;
+		int[] outHistogram;
+		int maxInDegree;
+		int maxOutDegree;
+	}
+	
+	private static class CountTask extends RecursiveTask<Counts> {
+		
+		CountTask(Digraph<?> graph, int begin, int end) {
+			this.graph = graph;
+			this.begin = begin;
+			this.end = end;
+		}
+		
+		@Override
+		protected Counts compute() {
+			if (end - begin > VERTICES_PER_TASK) {
+				int middle = (begin + end) >>> 1;
+				CountTask left = new CountTask(graph, begin, middle);
+				left.fork();
+				Counts result = new CountTask(graph, middle, end).compute();
+				result.add(left.join());
+				return result;
+			}
+			Counts result = new Counts();
+			for (int v = begin; v < end; v++)
+				result.add(graph.getInDegree(v), graph.getOutDegree(v));
+			return result;
+		}
+		
+		private Digraph<?> graph;
+		private int begin;
+		private int end;
+		
+		private static final long serialVersionUID = 1L;
+	}
+	
+	private static final int INITIAL_HISTOGRAM_LENGTH = 16;
+	private static final int VERTICES_PER_TASK = 4096;
+	
+	private int vertexCount;
+	private long edgeCount;
+	private int sourceCount;
+	private int sinkCount;
+	private int isolatedCount;
+	private int branchCount;
+	private int[] inHistogram;
+	private int[] outHistogram;
+}
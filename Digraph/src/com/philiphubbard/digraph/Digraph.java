@@ -22,9 +22,18 @@
 
 package com.philiphubbard.digraph;
 
-import java.lang.ref.WeakReference;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 // An abstract base class for a directed graph.
@@ -33,27 +42,61 @@ import java.util.Iterator;
 
 public abstract class Digraph<E extends Digraph.Edge> {
 	
-	// Constructor.  It can have edges involving vertices with indices
-	// in the range from 0 to vertexCapacity - 1.  The EdgeMultiples enum
+	// Constructor.  It initially has room for edges involving vertices with
+	// indices in the range from 0 to vertexCapacity - 1, and the capacity
+	// grows as needed when edges are added.  The EdgeMultiples enum
 	// specifies whether the graph can have more than one edge between
 	// a pair of vertices or not.
 	
 	public enum EdgeMultiples { ENABLED, DISABLED }
 	
 	public Digraph(int vertexCapacity, EdgeMultiples multiples) {
+		this(vertexCapacity, multiples, EdgeObjects.STORED);
+	}
+	
+	// How the graph stores its edges.  The vertices pointed to are always
+	// stored in a sorted int array for each vertex.  With STORED, the edge
+	// objects given to addEdge() are also stored, in a parallel array, which
+	// is one way for a derived class' edges to have data beyond the vertex
+	// pointed to.  With CREATED, no edge objects are stored and createEdge()
+	// makes an edge object whenever an iterator needs one, and any other
+	// data is stored in edge columns (see addEdgeColumn()).
+	
+	protected enum EdgeObjects { STORED, CREATED }
+	
+	// Constructor for a derived class that specifies how edges are stored.
+	
+	protected Digraph(int vertexCapacity, EdgeMultiples multiples, EdgeObjects edgeObjects) {
 		allowMultiples = (multiples == EdgeMultiples.ENABLED);
-		edges = new ArrayList<EdgeLink>(vertexCapacity);
-		iterators = new ArrayList<ArrayList<WeakReference<EdgeHolder>>>(vertexCapacity);
-		for (int i = 0; i < vertexCapacity; i++) {
-			edges.add(null);
-			iterators.add(null);
-		}
+		this.vertexCapacity = vertexCapacity;
+		targets = new int[vertexCapacity][];
+		outDegrees = new int[vertexCapacity];
+		if (edgeObjects == EdgeObjects.STORED)
+			this.edgeObjects = new Object[vertexCapacity][];
+		modCounts = new int[vertexCapacity];
+		hubs = new HubIndex[vertexCapacity];
+	}
+	
+	// Constructor for a derived class that provides its own read-only
+	// representation of the edges, like CompactDigraph.  Such a class must
+	// override the routines that would otherwise access the edge arrays.
+	
+	protected Digraph(EdgeMultiples multiples) {
+		allowMultiples = (multiples == EdgeMultiples.ENABLED);
+		targets = null;
+		outDegrees = null;
+		modCounts = null;
 	}
 	
 	// A constant for an index that corresponds to no vertex.
 	
 	public static final int NO_VERTEX = -1;
 	
+	// The default out degree at which a vertex gets a hash index of its edges
+	// (see setHubThreshold()).
+	
+	public static final int DEFAULT_HUB_THRESHOLD = 128;
+	
 	// A base class for the edges of the graph.
 	
 	public static class Edge {
@@ -75,6 +118,48 @@ public abstract class Digraph<E extends Digraph.Edge> {
 		private int to;
 	}
 	
+	// An edge as the pair of vertices it is from and to, for edges().
+	
+	public static final class EdgePair {
+		public EdgePair(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		public int getFrom() {
+			return from;
+		}
+		
+		public int getTo() {
+			return to;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof EdgePair))
+				return false;
+			EdgePair pair = (EdgePair) other;
+			return ((from == pair.from) && (to == pair.to));
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * from + to;
+		}
+		
+		private int from;
+		private int to;
+	}
+	
+	// A test of an edge, for routines like removeEdgesIf().  The edge is 
+	// identified by the vertex it is from and its position among the sorted
+	// edges from that vertex, so the test can read the edge's data through
+	// routines like WeightedDigraph.weightAt() without allocating an edge.
+	
+	public interface EdgePredicate {
+		boolean test(int from, int index, int to);
+	}
+	
 	// Base class for an iterator over the edges adjacent to (directed from)
 	// the specified vertex.  It can be used in a loop like the following:
 	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
@@ -84,46 +169,48 @@ public abstract class Digraph<E extends Digraph.Edge> {
 		// Returns the first edge in the iteration.
 		
 		public E begin() {
-			current = graph.edges.get(from);
-			return (current != null) ? current.edge : null;
+			start();
+			return currentEdge();
 		}
 		
 		// Returns the next edge in the iteration.
 		
 		public E next() {
-			if (current != null)
-				current = current.next;
-			return (current != null) ? current.edge : null;
+			step();
+			return currentEdge();
 		}
 		
 		// Returns true if the iteration is done.
 		
 		public boolean done() {
-			return (current == null);
+			return atEnd();
 		}
 		
 		// The derived class function that creates this iterator should
 		// ensure that the vertex is in range.
 		
 		protected AdjacencyIterator(Digraph<E> graph, int from) {
-			this.graph = graph;
-			this.from = from;
-			current = null;
-			
-			if (graph.iterators.get(from) == null) {
-				graph.iterators.set(from, new ArrayList<WeakReference<EdgeHolder>>());
-			}
-			else {
-				// Since there is no automatic removal of weak references to iterators
-				// that have become null, now is a reasonable time to try explicit removal.
-				
-				cleanupIterators(from);
-			}
-			graph.iterators.get(from).add(new WeakReference<EdgeHolder>(this));
+			super(graph, from, false);
 		}
 		
-		private Digraph<E> graph;
-		private int from;
+		// The vertex whose edges are iterated over.
+		
+		public int getVertex() {
+			return vertex;
+		}
+		
+		// The position of the current edge among the sorted edges from the
+		// vertex, or NO_VERTEX if the iteration is done.  Together with
+		// getVertex(), it identifies the edge for routines like targetAt()
+		// and the get() routines of edge columns.
+		
+		public int getIndex() {
+			return atEnd() ? NO_VERTEX : current;
+		}
+		
+		private E currentEdge() {
+			return atEnd() ? null : graph.edgeAt(vertex, current);
+		}
 	}
 	
 	// A derived class must define this function to create the iterator
@@ -137,67 +224,113 @@ public abstract class Digraph<E extends Digraph.Edge> {
 	// returning multiple edges to the same destination vertex in an array.
 	// It can be used in a loop like the following:
 	// "for (ArrayList<Edge> e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	// It also works as a cursor over the groups of edges to a common vertex,
+	// which creates no edges or arrays, in a loop like the following:
+	// "while (iterator.advance()) { ... iterator.currentTarget() ... 
+	// iterator.currentCount() ... }"
+	// The two styles should not be mixed in the same iteration.
 	
 	public class AdjacencyMultipleIterator extends EdgeHolder {
 		// Returns the first list of edges to a common vertex in the iteration.
 		
 		public ArrayList<E> begin() {
-			current = graph.edges.get(from);
+			start();
 			return matchingEdges();
 		}
 		
 		// Returns the next list of edges to a common vertex in the iteration.
 		
 		public ArrayList<E> next() {
-			if (current != null)
-				current = current.next;
+			step();
 			return matchingEdges();
 		}
 		
 		// Returns true if the iteration is done.
 		
 		public boolean done() {
-			return (current == null);
+			return atEnd();
 		}
 		
 		// The derived class function that creates this iterator should
 		// ensure that the vertex is in range.
 		
 		protected AdjacencyMultipleIterator(Digraph<E> graph, int from) {
-			this.graph = graph;
-			this.from = from;
-			current = null;
-			
-			if (graph.iterators.get(from) == null) {
-				graph.iterators.set(from, new ArrayList<WeakReference<EdgeHolder>>());
-			}
-			else {
-				// Since there is no automatic removal of weak references to iterators
-				// that have become null, now is a reasonable time to try explicit removal.
+			super(graph, from, false);
+			cursorIndex = NOT_STARTED;
+			cursorTarget = NO_VERTEX;
+		}
+		
+		// Moves the cursor to the next group of edges to a common vertex, or
+		// to the first group on the first call.  Returns false if there are
+		// no more groups.
+		
+		public boolean advance() {
+			if (graph.targets == null) {
+				
+				// A derived class with its own read-only representation of the 
+				// edges supports targetAt().
 				
-				cleanupIterators(from);
+				int outDegree = graph.getOutDegree(vertex);
+				cursorIndex = (cursorIndex == NOT_STARTED) ? 0 : 
+					Math.min(cursorIndex + cursorCount, outDegree);
+				if (cursorIndex == outDegree) {
+					cursorTarget = NO_VERTEX;
+					cursorCount = 0;
+					return false;
+				}
+				cursorTarget = graph.targetAt(vertex, cursorIndex);
+				cursorCount = 1;
+				while ((cursorIndex + cursorCount < outDegree) && 
+						(graph.targetAt(vertex, cursorIndex + cursorCount) == cursorTarget))
+					cursorCount++;
+				return true;
 			}
-			graph.iterators.get(from).add(new WeakReference<EdgeHolder>(this));
+			
+			if (current == NOT_STARTED)
+				start();
+			else
+				step();
+			if (atEnd()) {
+				cursorTarget = NO_VERTEX;
+				cursorCount = 0;
+				return false;
+			}
+			cursorTarget = currentOther;
+			cursorCount = remaining;
+			skipToLastMatching();
+			return true;
+		}
+		
+		// The vertex pointed to by the cursor's group of edges, or NO_VERTEX
+		// if the cursor is not on a group.
+		
+		public int currentTarget() {
+			return cursorTarget;
+		}
+		
+		// The number of edges in the cursor's group, as of when advance()
+		// moved to the group, or 0 if the cursor is not on a group.
+		
+		public int currentCount() {
+			return cursorCount;
 		}
 		
 		// Return the edges matching the current edge (i.e., pointing to the
-		// same vertex).
+		// same vertex), leaving the current edge as the last of them.
 		
 		private ArrayList<E> matchingEdges() {
-			if (current == null)
+			if (atEnd())
 				return null;
-			ArrayList<E> result = new ArrayList<E>();
-			EdgeLink next = current;
-			do {
-				current = next;
-				result.add(current.edge);
-				next = current.next;
-			} while ((next != null) && (next.edge.getTo() == current.edge.getTo()));
+			ArrayList<E> result = new ArrayList<E>(remaining);
+			for (int i = 0; i < remaining; i++)
+				result.add(graph.edgeAt(vertex, current + i));
+			skipToLastMatching();
 			return result;			
 		}
-
-		private Digraph<E> graph;
-		private int from;
+		
+		private int cursorIndex;
+		private int cursorTarget;
+		private int cursorCount;
 	}
 	
 	// A derived class must define this function to create the iterator
@@ -207,11 +340,120 @@ public abstract class Digraph<E extends Digraph.Edge> {
 	abstract public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from)
 			throws IndexOutOfBoundsException;
 	
+	// An iterator over the vertices with edges pointing in to the specified
+	// vertex, in increasing order, with a vertex repeated for edge multiples.
+	// It can be used in a loop like the following:
+	// "for (int v = iterator.begin(); !iterator.done(); v = iterator.next())"
+	// Returns NO_VERTEX when the iteration is done.
+	
+	public class InAdjacencyIterator extends EdgeHolder {
+		
+		// Returns the first vertex in the iteration.
+		
+		public int begin() {
+			start();
+			return currentVertex();
+		}
+		
+		// Returns the next vertex in the iteration.
+		
+		public int next() {
+			step();
+			return currentVertex();
+		}
+		
+		// Returns true if the iteration is done.
+		
+		public boolean done() {
+			return atEnd();
+		}
+		
+		// The function that creates this iterator should ensure that the
+		// vertex is in range and that the reverse index exists.
+		
+		protected InAdjacencyIterator(Digraph<E> graph, int to) {
+			super(graph, to, true);
+		}
+		
+		private int currentVertex() {
+			return atEnd() ? NO_VERTEX : currentOther;
+		}
+	}
+	
+	// Create an iterator for the vertices with edges in to the specified
+	// vertex.  Enables the reverse index if it is not already enabled.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public InAdjacencyIterator createInAdjacencyIterator(int to)
+			throws IndexOutOfBoundsException {
+		if ((to < 0) || (getVertexCapacity() <= to))
+			throw new IndexOutOfBoundsException("Digraph.createInAdjacencyIterator() " +
+											    "vertex out of range");
+		enableReverseIndex();
+		return new InAdjacencyIterator(this, to);
+	}
+	
+	// Build an index of the edges pointing in to each vertex, which 
+	// addEdge() and removeEdge() then keep up to date.  It makes 
+	// getInDegree() take constant time, and it supports 
+	// createInAdjacencyIterator().  Does nothing if the index exists.
+	
+	public void enableReverseIndex() {
+		if (sources != null)
+			return;
+		
+		int[] counts = new int[vertexCapacity];
+		for (int v = 0; v < vertexCapacity; v++)
+			for (int i = 0; i < outDegrees[v]; i++)
+				counts[targets[v][i]]++;
+		
+		// Visiting the vertices in increasing order keeps each 
+		// vertex's sources sorted.  The arrays have the length of the other
+		// per-vertex arrays, including any room for growth, so they stay in
+		// step with them when the capacity grows into that room.
+		
+		sources = new int[targets.length][];
+		inDegrees = new int[targets.length];
+		for (int v = 0; v < vertexCapacity; v++)
+			if (counts[v] > 0)
+				sources[v] = new int[counts[v]];
+		for (int v = 0; v < vertexCapacity; v++)
+			for (int i = 0; i < outDegrees[v]; i++) {
+				int to = targets[v][i];
+				sources[to][inDegrees[to]++] = v;
+			}
+		if (targetEpochs != null) {
+			sourceEpochs = new int[targets.length];
+			Arrays.fill(sourceEpochs, snapshotEpoch);
+		}
+		cachedInDegrees = null;
+	}
+	
+	// Returns true if the graph has the index of edges pointing in to 
+	// each vertex.
+	
+	public boolean hasReverseIndex() {
+		return (sources != null);
+	}
+	
 	// The graph can have vertices with indices in the range from 
-	// 0 to vertexCapacity() - 1.
+	// 0 to vertexCapacity() - 1.  Adding an edge involving a vertex
+	// beyond that range increases the capacity.
 	
 	public int getVertexCapacity() {
-		return edges.size();
+		return vertexCapacity;
+	}
+	
+	// Increase the vertex capacity to at least the specified value, which
+	// avoids repeated growth when the number of vertices is known.  Does 
+	// nothing if the capacity is already large enough.
+	
+	public void ensureCapacity(int vertexCapacity) {
+		if (vertexCapacity <= this.vertexCapacity)
+			return;
+		if (targets.length < vertexCapacity)
+			reallocate(vertexCapacity);
+		setVertexCapacity(vertexCapacity);
 	}
 	
 	// Whether the graph can have more than one edge between
@@ -231,8 +473,7 @@ public abstract class Digraph<E extends Digraph.Edge> {
 		if ((from < 0) || (getVertexCapacity() <= from))
 			throw new IndexOutOfBoundsException("Digraph.outDegree() " +
 											    "vertex out of range");
-		cacheDegrees();
-		return outDegrees.get(from);
+		return outDegrees[from];
 	}
 	
 	// The number of edges directed in to the specified vertex.
@@ -242,15 +483,175 @@ public abstract class Digraph<E extends Digraph.Edge> {
 		if ((to < 0) || (getVertexCapacity() <= to))
 			throw new IndexOutOfBoundsException("Digraph.inDegree() " +
 											    "vertex out of range");
-		cacheDegrees();
-		return inDegrees.get(to);
+		if (sources != null)
+			return inDegrees[to];
+		return countedInDegree(to);
+	}
+	
+	// The vertex pointed to by the edge at the specified position among the
+	// sorted edges from the specified vertex, which is in the range from 0
+	// to getOutDegree(from) - 1.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public int targetAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "Digraph.targetAt()");
+		return targets[from][index];
+	}
+	
+	// Returns true if there is at least one edge from the specified vertex to
+	// the other vertex.  Returns false if either vertex is out of range.
+	
+	public boolean hasEdge(int from, int to) {
+		return (getMultiplicity(from, to) > 0);
+	}
+	
+	// The number of edges from the specified vertex to the other vertex, 
+	// which is at most 1 if edge multiples are disabled.  Returns 0 if either
+	// vertex is out of range.  The time is O(log d) for a vertex with out
+	// degree d, using binary search over the sorted edges.  A vertex whose
+	// out degree is at least the hub threshold gets a hash index of its 
+	// edges, built on the first lookup and kept up to date by addEdge() and 
+	// removeEdge(), making the time constant on average.
+	
+	public int getMultiplicity(int from, int to) {
+		if ((from < 0) || (getVertexCapacity() <= from) ||
+				(to < 0) || (getVertexCapacity() <= to))
+			return 0;
+		return countEdges(this, from, to);
+	}
+	
+	// The position of the first edge from the specified vertex to the other
+	// vertex, among the sorted edges from the first vertex, or NO_VERTEX if 
+	// there is no such edge or either vertex is out of range.  Uses binary
+	// search.
+	
+	public int indexOf(int from, int to) {
+		if ((from < 0) || (getVertexCapacity() <= from) ||
+				(to < 0) || (getVertexCapacity() <= to))
+			return NO_VERTEX;
+		int outDegree = getOutDegree(from);
+		int i;
+		if (targets != null) {
+			i = findFirst(targets[from], outDegree, to);
+		}
+		else {
+			i = 0;
+			int high = outDegree;
+			while (i < high) {
+				int mid = (i + high) >>> 1;
+				if (targetAt(from, mid) < to)
+					i = mid + 1;
+				else
+					high = mid;
+			}
+		}
+		if ((i == outDegree) || (targetAt(from, i) != to))
+			return NO_VERTEX;
+		return i;
+	}
+	
+	// Set the out degree at which getMultiplicity() and hasEdge() use a hash
+	// index of a vertex's edges instead of binary search.  The indices take 
+	// about four ints per distinct vertex pointed to, so a higher threshold
+	// saves memory, and Integer.MAX_VALUE disables them.  Existing indices 
+	// are discarded.
+	// Throws IllegalArgumentException if the threshold is not positive.
+	
+	public void setHubThreshold(int threshold) throws IllegalArgumentException {
+		if (threshold <= 0)
+			throw new IllegalArgumentException("Digraph.setHubThreshold() " +
+											   "threshold must be positive");
+		hubThreshold = threshold;
+		if (hubs != null)
+			Arrays.fill(hubs, null);
+	}
+	
+	public int getHubThreshold() {
+		return hubThreshold;
+	}
+	
+	// Copy the vertices pointed to by the edges from the specified vertex, 
+	// in increasing order with a vertex repeated for edge multiples, into
+	// the array, and return the out degree.  If the array is too short, only
+	// the vertices that fit are copied, so a loop can reuse one array and 
+	// grow it when the returned degree exceeds its length.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public int getNeighbors(int from, int[] dest) throws IndexOutOfBoundsException {
+		int outDegree = getOutDegree(from);
+		int n = Math.min(outDegree, dest.length);
+		if (targets != null) {
+			if (n > 0)
+				System.arraycopy(targets[from], 0, dest, 0, n);
+		}
+		else {
+			for (int i = 0; i < n; i++)
+				dest[i] = targetAt(from, i);
+		}
+		return outDegree;
+	}
+	
+	// Returns a stream of the vertices, from 0 to getVertexCapacity() - 1.
+	// A parallel stream splits the vertices into ranges with about the same
+	// number of edges, so per-vertex work that depends on the edges stays
+	// balanced across threads.  The graph must not be changed while the 
+	// stream is in use; to keep changing it, stream a snapshot() instead.
+	
+	public IntStream vertices() {
+		long[] offsets = DigraphSpliterator.workOffsets(this);
+		return StreamSupport.intStream(
+				new DigraphSpliterator.OfVertices(offsets, 0, offsets.length - 1), false);
+	}
+	
+	// Returns a stream of the edges, as pairs of vertices, in order of the
+	// vertex each edge is from and then the vertex it points to, with a pair
+	// repeated for edge multiples.  A parallel stream splits the edges by
+	// ranges of vertices with about the same number of edges.  The graph must
+	// not be changed while the stream is in use.
+	
+	public Stream<EdgePair> edges() {
+		long[] offsets = DigraphSpliterator.workOffsets(this);
+		return StreamSupport.stream(
+				new DigraphSpliterator.OfEdges(this, offsets, 0, offsets.length - 1), false);
+	}
+	
+	// Returns a compact, read-only snapshot of the graph, which stores the
+	// edges in arrays instead of in per-edge objects.  Later changes to this
+	// graph do not affect the snapshot.
+	
+	public CompactDigraph freeze() {
+		return new CompactDigraph(this);
+	}
+	
+	// Returns a read-only view of the graph as it is now, which later changes
+	// to this graph do not affect, so an algorithm can traverse the view while
+	// other code keeps changing the graph.  The view shares each vertex's edge
+	// arrays with this graph, which copies a vertex's arrays before it next
+	// changes them.  So making the view takes time proportional to the number
+	// of vertices but not the number of edges, and later changes copy only the
+	// vertices they touch.  Edge objects are shared, so a change to an edge's
+	// data, like its weight, affects both.  Many threads can read the view at
+	// once: the state it builds on the first read, like the in degrees, the
+	// reverse index and the hash indices of setHubThreshold(), is published
+	// safely to them.  The view has its own per-vertex arrays, so each call
+	// takes O(V) time and memory, for V vertices, even if nothing changed
+	// since the last call; take a snapshot per traversal, not per step.
+	
+	public Digraph<E> snapshot() {
+		if (targetEpochs == null) {
+			targetEpochs = new int[targets.length];
+			if (sources != null)
+				sourceEpochs = new int[sources.length];
+		}
+		snapshotEpoch++;
+		return new Snapshot<E>(this);
 	}
 	
 	// Returns true if the specified vertex is a sink (i.e., it has
 	// no edges pointing to other vertices).
 	
 	public boolean isSink(int v) {
-		return (edges.get(v) == null);
+		return (outDegrees[v] == 0);
 	}
 	
 	// Remove all edges from the specified vertex to the other vertex.
@@ -262,163 +663,1259 @@ public abstract class Digraph<E extends Digraph.Edge> {
 				(to < 0) || (getVertexCapacity() <= to))
 			return;
 
-		EdgeLink link = edges.get(from);
-		EdgeLink prev = null;
-		while (link != null) {
-			if (link.edge.getTo() == to) {
-				// Update iterators that might be referring to the EdgeLink
-				// that is about to be removed.
-
-				cleanupIterators(from);
-				ArrayList<WeakReference<EdgeHolder>> its = iterators.get(from);
-				for (WeakReference<EdgeHolder> ref : its)
-					ref.get().update(link);
-
-				if (prev != null)
-					prev.next = link.next;
-				else
-					edges.set(from, link.next);
-				
-				if (inDegrees != null) {
-					int inDegree = inDegrees.get(to);
-					inDegrees.set(link.edge.getTo(), (inDegree != -1) ? inDegree - 1 : 0);
-				}
-				if (outDegrees != null) {
-					int outDegree = outDegrees.get(from);
-					outDegrees.set(from, (outDegree != -1) ? outDegree - 1 : 0);
+		int i = findFirst(targets[from], outDegrees[from], to);
+		if ((i == outDegrees[from]) || (targets[from][i] != to))
+			return;
+		
+		ownTargets(from);
+		int moved = outDegrees[from] - i - 1;
+		System.arraycopy(targets[from], i + 1, targets[from], i, moved);
+		if (edgeObjects != null) {
+			System.arraycopy(edgeObjects[from], i + 1, edgeObjects[from], i, moved);
+			edgeObjects[from][outDegrees[from] - 1] = null;
+		}
+		for (int c = 0; c < columnCount; c++)
+			System.arraycopy(columns[c][from], i + 1, columns[c][from], i, moved);
+		outDegrees[from]--;
+		modCounts[from]++;
+		if (hubs[from] != null)
+			hubs[from].remove(to);
+		
+		if (sources != null) {
+			ownSources(to);
+			int j = findFirst(sources[to], inDegrees[to], from);
+			System.arraycopy(sources[to], j + 1, sources[to], j, inDegrees[to] - j - 1);
+			inDegrees[to]--;
+			modCounts[to]++;
+		}
+		else if (cachedInDegrees != null) {
+			cachedInDegrees[to]--;
+		}
+	}
+	
+	// Remove all the edges from the specified vertex.  Silently does nothing
+	// if the vertex is out of range.
+	
+	public void removeEdgesFrom(int from) {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			return;
+		int outDegree = outDegrees[from];
+		if (outDegree == 0)
+			return;
+		
+		if (sources != null) {
+			int[] removedFrom = new int[outDegree];
+			Arrays.fill(removedFrom, from);
+			removeSources(removedFrom, Arrays.copyOf(targets[from], outDegree), outDegree);
+		}
+		ownTargets(from);
+		if (edgeObjects != null)
+			Arrays.fill(edgeObjects[from], 0, outDegree, null);
+		outDegrees[from] = 0;
+		modCounts[from]++;
+		hubs[from] = null;
+		cachedInDegrees = null;
+	}
+	
+	// Remove every edge for which the predicate returns true, and return the
+	// number of edges removed.  The edges from each vertex are compacted in
+	// one pass, and the edges pointing in to each vertex are updated in one 
+	// pass after all the tests, so the time is linear in the number of edges.
+	// The predicate sees each edge at its position before any removals from
+	// its vertex, and it must not change the graph.
+	
+	public int removeEdgesIf(EdgePredicate predicate) {
+		int removed = 0;
+		int[] removedFrom = null;
+		int[] removedTo = null;
+		if (sources != null) {
+			removedFrom = new int[INITIAL_EDGE_CAPACITY];
+			removedTo = new int[INITIAL_EDGE_CAPACITY];
+		}
+		
+		for (int v = 0; v < vertexCapacity; v++) {
+			int outDegree = outDegrees[v];
+			int i = 0;
+			while ((i < outDegree) && (!predicate.test(v, i, targets[v][i])))
+				i++;
+			if (i == outDegree)
+				continue;
+			
+			// Edges before the first removed edge stay in place.  Each later 
+			// run of edges that are kept moves down over the removed edges.
+			
+			ownTargets(v);
+			int n = i;
+			while (i < outDegree) {
+				if (removedFrom != null) {
+					if (removedFrom.length == removed) {
+						removedFrom = Arrays.copyOf(removedFrom, 2 * removed);
+						removedTo = Arrays.copyOf(removedTo, 2 * removed);
+					}
+					removedFrom[removed] = v;
+					removedTo[removed] = targets[v][i];
 				}
+				removed++;
+				i++;
 				
-				break;
+				int start = i;
+				while ((i < outDegree) && (!predicate.test(v, i, targets[v][i])))
+					i++;
+				moveEdges(v, start, n, i - start);
+				n += i - start;
 			}
-			else if (to < link.edge.getTo()) {
-				break;
+			
+			if (edgeObjects != null)
+				Arrays.fill(edgeObjects[v], n, outDegree, null);
+			outDegrees[v] = n;
+			modCounts[v]++;
+			hubs[v] = null;
+		}
+		
+		if (removed > 0) {
+			if (sources != null)
+				removeSources(removedFrom, removedTo, removed);
+			cachedInDegrees = null;
+		}
+		return removed;
+	}
+	
+	// Remove every edge for which the predicate returns false, keeping those
+	// for which it returns true, as for removeEdgesIf().  Returns the number 
+	// of edges removed.
+	
+	public int retainEdges(final EdgePredicate predicate) {
+		return removeEdgesIf(new EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				return !predicate.test(from, index, to);
 			}
-			prev = link;
-			link = link.next;	
-		}		
+		});
 	}
 	
 	//
 	
-	// Helper function for adding an edge.
+	// Helper function for adding an edge.  Increases the vertex capacity
+	// if either vertex is beyond it.  Silently does nothing if either
+	// vertex is negative.
 	
 	protected void addEdge(int from, E newEdge) {
-		if ((from < 0) || (edges.size() <= from))
-			return;
-		if ((newEdge.getTo() < 0) || (edges.size() <= newEdge.getTo()))
-			return;
+		insertEdge(from, newEdge);
+	}
+	
+	// Helper function for adding an edge, as for addEdge(), that returns the
+	// position of the new edge among the edges from the vertex, or NO_VERTEX 
+	// if the edge was not added.  The edge's values in the edge columns are 0.
+	
+	protected int insertEdge(int from, E newEdge) {
+		int to = newEdge.getTo();
+		if ((from < 0) || (to < 0))
+			return NO_VERTEX;
+		grow(Math.max(from, to));
 		
 		// Keep edges sorted by getTo() to improve average-case performance
-		// and to support AdjacencyMultipleIterator.
+		// and to support AdjacencyMultipleIterator.  A new multiple goes
+		// before the existing edges to the same vertex.
+		
+		int i = findFirst(targets[from], outDegrees[from], to);
+		int outDegree = outDegrees[from];
+		if ((!allowMultiples) && (i < outDegree) && (targets[from][i] == to))
+			return NO_VERTEX;
+		
+		if ((targets[from] == null) || (targets[from].length == outDegree)) {
+			int capacity = (outDegree == 0) ? INITIAL_EDGE_CAPACITY : 2 * outDegree;
+			targets[from] = (targets[from] == null) ? new int[capacity] :
+				Arrays.copyOf(targets[from], capacity);
+			if (edgeObjects != null)
+				edgeObjects[from] = (edgeObjects[from] == null) ? new Object[capacity] :
+					Arrays.copyOf(edgeObjects[from], capacity);
+			for (int c = 0; c < columnCount; c++)
+				columns[c][from] = copyOf(columns[c][from], columnTypes[c], capacity);
+			if (targetEpochs != null)
+				targetEpochs[from] = snapshotEpoch;
+		}
+		else {
+			ownTargets(from);
+		}
+		
+		System.arraycopy(targets[from], i, targets[from], i + 1, outDegree - i);
+		targets[from][i] = to;
+		if (edgeObjects != null) {
+			System.arraycopy(edgeObjects[from], i, edgeObjects[from], i + 1, outDegree - i);
+			edgeObjects[from][i] = newEdge;
+		}
+		for (int c = 0; c < columnCount; c++) {
+			System.arraycopy(columns[c][from], i, columns[c][from], i + 1, outDegree - i);
+			System.arraycopy(columnZeros[c], 0, columns[c][from], i, 1);
+		}
+		outDegrees[from]++;
+		modCounts[from]++;
+		if (hubs[from] != null)
+			hubs[from].add(to);
 		
-		EdgeLink link = edges.get(from);
-		EdgeLink prev = null;
-		while (link != null) {
-			if (newEdge.getTo() < link.edge.getTo()) {
-				break;
+		if (sources != null) {
+			int inDegree = inDegrees[to];
+			int j = findFirst(sources[to], inDegree, from);
+			if (sources[to] == null)
+				sources[to] = new int[INITIAL_EDGE_CAPACITY];
+			else if (sources[to].length == inDegree)
+				sources[to] = Arrays.copyOf(sources[to], 2 * inDegree);
+			else
+				ownSources(to);
+			if (sourceEpochs != null)
+				sourceEpochs[to] = snapshotEpoch;
+			System.arraycopy(sources[to], j, sources[to], j + 1, inDegree - j);
+			sources[to][j] = from;
+			inDegrees[to]++;
+			modCounts[to]++;
+		}
+		else if (cachedInDegrees != null) {
+			cachedInDegrees[to]++;
+		}
+		return i;
+	}
+	
+	// Helper function for adding many edges at once, the edge from from[i] to
+	// to[i] for each i.  The batch is sorted with counting sorts on the vertex
+	// indices, and then merged with the existing edges of each vertex in one
+	// pass, so the time is linear in the number of vertices and edges.  The 
+	// result is the same as calling addEdge() for each edge in order.  The
+	// newEdges array has the edge objects, or is null if the graph was 
+	// constructed with EdgeObjects.CREATED.  The vertex capacity is increased
+	// as needed, and edges involving negative vertices are silently ignored.
+	// Throws IllegalArgumentException if the array lengths differ.
+	
+	protected void addEdges(int[] from, int[] to, E[] newEdges) 
+			throws IllegalArgumentException {
+		addEdges(from, to, newEdges, null);
+	}
+	
+	// Helper function for adding many edges at once, as above, that also sets
+	// the new edges' values in the edge columns.  Element c of columnValues is
+	// a primitive array with the values for edge column c, parallel to the
+	// from and to arrays, or null for values of 0.  The columnValues array 
+	// itself may be null, for all values 0, and it may be shorter than the
+	// number of columns, for values of 0 in the columns beyond its end, like
+	// columns attached after a derived class added its own.
+	// Throws IllegalArgumentException if the array lengths differ.
+	
+	protected void addEdges(int[] from, int[] to, E[] newEdges, Object[] columnValues) 
+			throws IllegalArgumentException {
+		if ((from.length != to.length) || 
+				((newEdges != null) && (newEdges.length != from.length)))
+			throw new IllegalArgumentException("Digraph.addEdges() " +
+											   "array lengths differ");
+		if (columnValues != null)
+			for (Object values : columnValues)
+				if ((values != null) && (Array.getLength(values) != from.length))
+					throw new IllegalArgumentException("Digraph.addEdges() " +
+													   "array lengths differ");
+		
+		// Keep only the edges with valid vertices.  With multiples, reversing 
+		// their order here means that after the stable sorts, a later edge 
+		// multiple goes before an earlier one, as with addEdge().  Without 
+		// multiples, keeping their order means the first of several edges 
+		// between the same vertices is the one kept, also as with addEdge().
+		
+		int[] batchFrom = new int[from.length];
+		int[] batchTo = new int[from.length];
+		int[] batchIndex = new int[from.length];
+		int m = 0;
+		int maxVertex = NO_VERTEX;
+		for (int j = 0; j < from.length; j++) {
+			int i = allowMultiples ? from.length - 1 - j : j;
+			if ((from[i] < 0) || (to[i] < 0))
+				continue;
+			batchFrom[m] = from[i];
+			batchTo[m] = to[i];
+			batchIndex[m] = i;
+			maxVertex = Math.max(maxVertex, Math.max(from[i], to[i]));
+			m++;
+		}
+		grow(maxVertex);
+		
+		int[] order = sortedOrder(batchFrom, batchTo, m, vertexCapacity);
+		
+		// The edges actually added, for updating the reverse index.
+		
+		int[] addedFrom = (sources != null) ? new int[m] : null;
+		int[] addedTo = (sources != null) ? new int[m] : null;
+		int added = 0;
+		
+		for (int k = 0; k < m; ) {
+			int v = batchFrom[order[k]];
+			int end = k + 1;
+			while ((end < m) && (batchFrom[order[end]] == v))
+				end++;
+			
+			int[] a = targets[v];
+			Object[] aObjects = (edgeObjects != null) ? edgeObjects[v] : null;
+			int d = outDegrees[v];
+			int capacity = Math.max(INITIAL_EDGE_CAPACITY, d + end - k);
+			int[] merged = new int[capacity];
+			Object[] mergedObjects = (edgeObjects != null) ? new Object[capacity] : null;
+			
+			// For the edge columns, record where each merged edge came from:
+			// the position of an existing edge, or the complement of the 
+			// index of a new edge in the batch.
+			
+			int[] mergedFrom = (columnCount > 0) ? new int[capacity] : null;
+			int n = 0;
+			int q = 0;
+			int p = k;
+			while ((p < end) || (q < d)) {
+				int b = (p < end) ? batchTo[order[p]] : Integer.MAX_VALUE;
+				
+				// On a tie, a new multiple goes before the existing edges,
+				// but without multiples the existing edge is kept.
+				
+				if ((q < d) && ((p == end) || (a[q] < b) || ((!allowMultiples) && (a[q] == b)))) {
+					merged[n] = a[q];
+					if (mergedObjects != null)
+						mergedObjects[n] = aObjects[q];
+					if (mergedFrom != null)
+						mergedFrom[n] = q;
+					n++;
+					q++;
+				}
+				else {
+					if (allowMultiples || (n == 0) || (merged[n - 1] != b)) {
+						merged[n] = b;
+						if (mergedObjects != null)
+							mergedObjects[n] = (newEdges != null) ? 
+								newEdges[batchIndex[order[p]]] : createEdge(b);
+						if (mergedFrom != null)
+							mergedFrom[n] = ~batchIndex[order[p]];
+						n++;
+						if (addedFrom != null) {
+							addedFrom[added] = v;
+							addedTo[added] = b;
+						}
+						added++;
+					}
+					p++;
+				}
 			}
-			else if (newEdge.getTo() == link.edge.getTo()) {
-				if (allowMultiples)
-					break;
-				else
-					return;
+			
+			for (int c = 0; c < columnCount; c++) {
+				Object column = Array.newInstance(columnTypes[c], capacity);
+				Object values = ((columnValues != null) && (c < columnValues.length)) ? 
+						columnValues[c] : null;
+				for (int j = 0; j < n; j++) {
+					if (mergedFrom[j] >= 0)
+						System.arraycopy(columns[c][v], mergedFrom[j], column, j, 1);
+					else if (values != null)
+						System.arraycopy(values, ~mergedFrom[j], column, j, 1);
+				}
+				columns[c][v] = column;
 			}
-			prev = link;
-			link = link.next;	
+			
+			targets[v] = merged;
+			if (edgeObjects != null)
+				edgeObjects[v] = mergedObjects;
+			if (targetEpochs != null)
+				targetEpochs[v] = snapshotEpoch;
+			outDegrees[v] = n;
+			modCounts[v]++;
+			hubs[v] = null;
+			k = end;
 		}
-		if (prev == null)
-			edges.set(from, new EdgeLink(newEdge, edges.get(from)));
-		else
-			prev.next = new EdgeLink(newEdge, link);
-
-		if (inDegrees != null) {
-			int inDegree = inDegrees.get(newEdge.getTo());
-			inDegrees.set(newEdge.getTo(), (inDegree == -1) ? 1 : inDegree + 1);
+		
+		if (sources != null)
+			addSources(addedFrom, addedTo, added);
+		else if (added > 0)
+			cachedInDegrees = null;
+	}
+	
+	// Returns the number of edges from one vertex to the other, which are in
+	// range, in the specified graph, which is this graph or a snapshot of it.
+	// A derived class that stores a count for each edge overrides this 
+	// function, like MultisetDigraph.  A derived class with its own read-only
+	// representation of the edges gets binary search with targetAt().
+	
+	protected int countEdges(Digraph<E> graph, int from, int to) {
+		if (graph.targets == null) {
+			int i = graph.indexOf(from, to);
+			if (i == NO_VERTEX)
+				return 0;
+			int outDegree = graph.getOutDegree(from);
+			int count = 1;
+			while ((i + count < outDegree) && (graph.targetAt(from, i + count) == to))
+				count++;
+			return count;
+		}
+		
+		int outDegree = graph.outDegrees[from];
+		if (outDegree >= graph.hubThreshold)
+			return graph.hubIndex(from).count(to);
+		
+		int i = findFirst(graph.targets[from], outDegree, to);
+		if ((i == outDegree) || (graph.targets[from][i] != to))
+			return 0;
+		if (!graph.allowMultiples)
+			return 1;
+		return findFirst(graph.targets[from], outDegree, to + 1) - i;
+	}
+	
+	// Returns the hash index of the edges from the specified vertex, which
+	// is built on the first lookup.  Snapshot overrides this function so the
+	// threads reading a snapshot at once can share its indices safely.
+	
+	HubIndex hubIndex(int from) {
+		if (hubs[from] == null)
+			hubs[from] = createHubIndex(from);
+		return hubs[from];
+	}
+	
+	final HubIndex createHubIndex(int from) {
+		return new HubIndex(targets[from], outDegrees[from]);
+	}
+	
+	// A derived class constructed with EdgeObjects.CREATED must override
+	// this function to create the edge from some vertex to the specified
+	// vertex.
+	
+	protected E createEdge(int to) {
+		throw new UnsupportedOperationException("Digraph.createEdge() " +
+												"edge objects are stored");
+	}
+	
+	// A derived class constructed with EdgeObjects.CREATED whose edges have
+	// data in edge columns overrides this function instead, to create the
+	// edge at the specified position among the edges from the specified 
+	// vertex.  It reads the columns of the specified graph, which is this
+	// graph or a snapshot of it.
+	
+	protected E createEdge(Digraph<E> graph, int from, int index) {
+		return createEdge(graph.targets[from][index]);
+	}
+	
+	// Helper function for a derived class constructed with EdgeObjects.CREATED,
+	// to store the edge objects given to addEdge() from now on, as with 
+	// EdgeObjects.STORED, when an edge has data that createEdge() could not 
+	// recreate.  The existing edges get objects from createEdge(), once, so
+	// the time is proportional to the number of edges.  Snapshots made 
+	// earlier keep creating their edges.  Does nothing if the edge objects 
+	// are already stored.
+	
+	protected void storeEdgeObjects() {
+		if (edgeObjects != null)
+			return;
+		Object[][] objects = new Object[targets.length][];
+		for (int v = 0; v < vertexCapacity; v++) {
+			if (targets[v] == null)
+				continue;
+			objects[v] = new Object[targets[v].length];
+			for (int i = 0; i < outDegrees[v]; i++)
+				objects[v][i] = createEdge(this, v, i);
+		}
+		edgeObjects = objects;
+	}
+	
+	// Returns true if the graph stores the edge objects given to addEdge().
+	
+	protected boolean storesEdgeObjects() {
+		return (edgeObjects != null);
+	}
+	
+	// Add a column of primitive values for the edges, of the specified type
+	// (e.g., float.class), which is initially 0 for every edge.  The values 
+	// are stored in an array for each vertex, parallel to the sorted array of
+	// vertices pointed to, and are moved along with their edges as edges are
+	// added and removed.  Returns the index of the column.
+	// Throws UnsupportedOperationException for a read-only graph that does not
+	// store its edges in per-vertex arrays, like CompactDigraph.
+	
+	protected int addEdgeColumn(Class<?> type) throws UnsupportedOperationException {
+		if (targets == null)
+			throw new UnsupportedOperationException("Digraph.addEdgeColumn() " +
+													"graph is read-only");
+		Object[] column = new Object[targets.length];
+		for (int v = 0; v < vertexCapacity; v++)
+			if (targets[v] != null)
+				column[v] = Array.newInstance(type, targets[v].length);
+		
+		columns = Arrays.copyOf(columns, columnCount + 1);
+		columnTypes = Arrays.copyOf(columnTypes, columnCount + 1);
+		columnZeros = Arrays.copyOf(columnZeros, columnCount + 1);
+		columns[columnCount] = column;
+		columnTypes[columnCount] = type;
+		columnZeros[columnCount] = Array.newInstance(type, 1);
+		return columnCount++;
+	}
+	
+	// Returns the array of values of the specified edge column for the edges
+	// from the specified vertex, which is null if the vertex has never had
+	// edges.  The array may be replaced when edges from the vertex are added
+	// or removed, so it should not be kept.  It must not be changed, because
+	// it may be shared with a snapshot.
+	
+	protected Object getEdgeColumn(int column, int from) {
+		return columns[column][from];
+	}
+	
+	// Returns the array of values of the specified edge column for the edges
+	// from the specified vertex, as above, for changing values in place.  The
+	// array is first copied if it is shared with a snapshot.
+	
+	protected Object getEdgeColumnForWrite(int column, int from) {
+		ownTargets(from);
+		return columns[column][from];
+	}
+	
+	// Returns a count that changes whenever edges from or to the specified
+	// vertex are added or removed, so a derived class holding the position
+	// of an edge can tell when it must find the edge again.
+	
+	protected int getModCount(int v) {
+		return modCounts[v];
+	}
+	
+	// Throws IndexOutOfBoundsException if the vertex is out of range or 
+	// the position is not that of one of the edges from the vertex.  The 
+	// function name is used in the exception's message.
+	
+	protected void checkEdgeIndex(int from, int index, String function) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException(function + " vertex out of range");
+		if ((index < 0) || (getOutDegree(from) <= index))
+			throw new IndexOutOfBoundsException(function + " edge index out of range");
+	}
+	
+	// A derived class whose edges have data beyond the vertex pointed to
+	// overrides these functions to serialize that data.  The first returns
+	// the number of bytes of data for each edge, the second puts that many
+	// bytes into the buffer for the edge at the specified position among the
+	// edges from the specified vertex, and the third gets them back out for 
+	// that edge, after the edge has been added.
+	
+	protected int getEdgeDataSize() {
+		return 0;
+	}
+	
+	protected void writeEdgeData(int from, int index, ByteBuffer buffer) {
+	}
+	
+	protected void readEdgeData(int from, int index, ByteBuffer buffer) {
+	}
+	
+	// Helper function for writing the graph to the channel in the format
+	// described in DigraphFormat, for the writeTo() routines of derived classes.
+	
+	void writeEdges(WritableByteChannel channel, int kind) throws IOException {
+		int dataSize = getEdgeDataSize();
+		long bodySize = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			bodySize += DigraphFormat.varIntSize(outDegrees[v]);
+			int previous = 0;
+			for (int i = 0; i < outDegrees[v]; i++) {
+				bodySize += DigraphFormat.varIntSize(targets[v][i] - previous);
+				previous = targets[v][i];
+			}
+			bodySize += (long) dataSize * outDegrees[v];
 		}
-		if (outDegrees != null) {
-			int outDegree = outDegrees.get(from);
-			outDegrees.set(from, (outDegree == -1) ? 1 : outDegree + 1);
+		
+		DigraphFormat.Writer out = new DigraphFormat.Writer(channel);
+		out.putHeader(kind, allowMultiples, vertexCapacity, bodySize);
+		for (int v = 0; v < vertexCapacity; v++) {
+			out.putVarInt(outDegrees[v]);
+			int previous = 0;
+			for (int i = 0; i < outDegrees[v]; i++) {
+				out.putVarInt(targets[v][i] - previous);
+				previous = targets[v][i];
+			}
+			if (dataSize > 0)
+				for (int i = 0; i < outDegrees[v]; i++)
+					writeEdgeData(v, i, out.reserve(dataSize));
+		}
+		out.flush();
+	}
+	
+	// Helper function for reading the edges of a newly constructed graph in
+	// the format described in DigraphFormat, for the readFrom() routines of
+	// derived classes.  Each vertex's edges are read directly into its array.
+	// An out degree must leave enough of the body for its edges and for the
+	// degrees of the remaining vertices, so a corrupt one cannot allocate an
+	// array larger than the data.
+	// Throws IOException if the data is not a valid graph.
+	
+	void readEdges(DigraphFormat.Reader in) throws IOException {
+		int dataSize = getEdgeDataSize();
+		for (int v = 0; v < vertexCapacity; v++) {
+			int outDegree = in.getVarInt();
+			long available = in.remaining() - (vertexCapacity - v - 1);
+			if ((outDegree < 0) || ((long) outDegree * (1 + dataSize) > available))
+				throw new IOException("Digraph.readFrom() bad degree");
+			if (outDegree == 0)
+				continue;
+			
+			int[] a = new int[outDegree];
+			int previous = 0;
+			for (int i = 0; i < outDegree; i++) {
+				int gap = in.getVarInt();
+				a[i] = previous + gap;
+				if ((gap < 0) || (a[i] < previous) || (vertexCapacity <= a[i]) ||
+						((i > 0) && (gap == 0) && !allowMultiples))
+					throw new IOException("Digraph.readFrom() bad edge");
+				previous = a[i];
+			}
+			
+			Object[] objects = null;
+			if (edgeObjects != null) {
+				objects = new Object[outDegree];
+				for (int i = 0; i < outDegree; i++)
+					objects[i] = createEdge(a[i]);
+			}
+			setEdges(v, a, outDegree, objects);
+			if (dataSize > 0)
+				for (int i = 0; i < outDegree; i++)
+					readEdgeData(v, i, in.require(dataSize));
 		}
+		in.finish();
+	}
+	
+	// Helper function for setting all the edges from a vertex of a newly 
+	// constructed graph, for building graphs in bulk.  The first outDegree
+	// vertices in the array are the vertices pointed to, which must be sorted,
+	// in range, and without duplicates if edge multiples are disabled.  The
+	// edges array has the edge objects, and is as long as the vertex array, or
+	// is null if the graph was constructed with EdgeObjects.CREATED.  The 
+	// arrays become part of the graph, and the edges' values in the edge 
+	// columns are 0.  Threads may set the edges of different vertices at once.
+	
+	void setEdges(int from, int[] to, int outDegree, Object[] edges) {
+		targets[from] = to;
+		if (edgeObjects != null)
+			edgeObjects[from] = edges;
+		for (int c = 0; c < columnCount; c++)
+			columns[c][from] = Array.newInstance(columnTypes[c], to.length);
+		outDegrees[from] = outDegree;
+		modCounts[from]++;
+		hubs[from] = null;
 	}
 	
 	//
 	
-	// Helper function for computing and storing the in degree and out degree
-	// once for all vertices.  Since a vertex does not know the edges pointing
-	// to it, a loop over all vertices is needed to compute the degree for
-	// any one vertex, and it makes sense to store it for all vertices.
+	// Helper function for returning the edge at the specified position in
+	// the sorted edges from the specified vertex.
+	
+	@SuppressWarnings("unchecked")
+	private E edgeAt(int from, int i) {
+		if (edgeObjects != null)
+			return (E) edgeObjects[from][i];
+		else
+			return createEdge(this, from, i);
+	}
 	
-	private void cacheDegrees() {
-		if ((inDegrees != null) && (outDegrees != null))
+	// Helper function for increasing the vertex capacity to include the
+	// specified vertex.  The arrays grow geometrically, so the time for
+	// repeated growth is amortized constant per vertex.
+	
+	private void grow(int vertex) {
+		if (vertex < vertexCapacity)
 			return;
-		
-		inDegrees = new ArrayList<Integer>();
-		outDegrees = new ArrayList<Integer>();
-		for (int v = 0; v < edges.size(); v++) {
-			inDegrees.add(-1);
-			outDegrees.add(-1);
-		}
-		for (int v = 0; v < edges.size(); v++) {
-			AdjacencyIterator it = createAdjacencyIterator(v);
-			int outDegree = 0;
-			for (E e = it.begin(); !it.done(); e = it.next()) {
-				outDegree++;
-				int to = e.getTo();
-				int inDegree = inDegrees.get(to);
-				inDegrees.set(to, (inDegree == -1) ? 1 : inDegree + 1);
-				if (outDegrees.get(to) == -1)
-					outDegrees.set(to, 0);
+		if (targets.length <= vertex)
+			reallocate(Math.max(vertex + 1, targets.length + (targets.length >> 1)));
+		setVertexCapacity(vertex + 1);
+	}
+	
+	private void reallocate(int length) {
+		targets = Arrays.copyOf(targets, length);
+		outDegrees = Arrays.copyOf(outDegrees, length);
+		modCounts = Arrays.copyOf(modCounts, length);
+		hubs = Arrays.copyOf(hubs, length);
+		if (edgeObjects != null)
+			edgeObjects = Arrays.copyOf(edgeObjects, length);
+		if (sources != null) {
+			sources = Arrays.copyOf(sources, length);
+			inDegrees = Arrays.copyOf(inDegrees, length);
+		}
+		for (int c = 0; c < columnCount; c++)
+			columns[c] = Arrays.copyOf(columns[c], length);
+		if (targetEpochs != null)
+			targetEpochs = Arrays.copyOf(targetEpochs, length);
+		if (sourceEpochs != null)
+			sourceEpochs = Arrays.copyOf(sourceEpochs, length);
+	}
+	
+	// Helper functions for copying the edge arrays of a vertex if they may be
+	// shared with a snapshot, before changing them in place.  An array is
+	// shared if a snapshot was made after this graph last copied or created it.
+	
+	private void ownTargets(int v) {
+		if ((targetEpochs == null) || (targetEpochs[v] == snapshotEpoch))
+			return;
+		if (targets[v] != null)
+			targets[v] = targets[v].clone();
+		if ((edgeObjects != null) && (edgeObjects[v] != null))
+			edgeObjects[v] = edgeObjects[v].clone();
+		for (int c = 0; c < columnCount; c++)
+			if (columns[c][v] != null)
+				columns[c][v] = copyOf(columns[c][v], columnTypes[c], Array.getLength(columns[c][v]));
+		targetEpochs[v] = snapshotEpoch;
+	}
+	
+	// Helper function for copying a primitive array of the specified element
+	// type to a new array of the specified length, or for creating a new
+	// array if it is null.
+	
+	private static Object copyOf(Object array, Class<?> type, int length) {
+		Object result = Array.newInstance(type, length);
+		if (array != null)
+			System.arraycopy(array, 0, result, 0, Math.min(length, Array.getLength(array)));
+		return result;
+	}
+	
+	private void ownSources(int v) {
+		if ((sourceEpochs == null) || (sourceEpochs[v] == snapshotEpoch))
+			return;
+		if (sources[v] != null)
+			sources[v] = sources[v].clone();
+		sourceEpochs[v] = snapshotEpoch;
+	}
+	
+	private void setVertexCapacity(int vertexCapacity) {
+		if ((cachedInDegrees != null) && (cachedInDegrees.length < vertexCapacity))
+			cachedInDegrees = Arrays.copyOf(cachedInDegrees, 
+											Math.max(vertexCapacity, 2 * cachedInDegrees.length));
+		this.vertexCapacity = vertexCapacity;
+	}
+	
+	// Helper function for adding many edges to the reverse index, by merging
+	// the sorted batch with the existing sources of each vertex.
+	
+	private void addSources(int[] from, int[] to, int m) {
+		int[] order = sortedOrder(to, from, m, vertexCapacity);
+		for (int k = 0; k < m; ) {
+			int v = to[order[k]];
+			int end = k + 1;
+			while ((end < m) && (to[order[end]] == v))
+				end++;
+			
+			int[] a = sources[v];
+			int d = inDegrees[v];
+			int[] merged = new int[Math.max(INITIAL_EDGE_CAPACITY, d + end - k)];
+			int n = 0;
+			int q = 0;
+			int p = k;
+			while ((p < end) || (q < d)) {
+				if ((q < d) && ((p == end) || (a[q] <= from[order[p]])))
+					merged[n++] = a[q++];
+				else
+					merged[n++] = from[order[p++]];
 			}
-			if (outDegree > 0) {
-				outDegrees.set(v, outDegree);
-				if (inDegrees.get(v) == -1)
-					inDegrees.set(v, 0);
+			
+			sources[v] = merged;
+			if (sourceEpochs != null)
+				sourceEpochs[v] = snapshotEpoch;
+			inDegrees[v] = n;
+			modCounts[v]++;
+			k = end;
+		}
+	}
+	
+	// Helper function for moving the specified number of edges from the
+	// specified vertex, along with their edge objects and column values, 
+	// from one position to a lower one.
+	
+	private void moveEdges(int v, int src, int dest, int count) {
+		if ((src == dest) || (count == 0))
+			return;
+		System.arraycopy(targets[v], src, targets[v], dest, count);
+		if (edgeObjects != null)
+			System.arraycopy(edgeObjects[v], src, edgeObjects[v], dest, count);
+		for (int c = 0; c < columnCount; c++)
+			System.arraycopy(columns[c][v], src, columns[c][v], dest, count);
+	}
+	
+	// Helper function for removing many edges from the reverse index, the
+	// edge from from[i] to to[i] for the first m values of i.  The batch is 
+	// sorted, and then the sources of each vertex are compacted in one pass.
+	
+	private void removeSources(int[] from, int[] to, int m) {
+		int[] order = sortedOrder(to, from, m, vertexCapacity);
+		for (int k = 0; k < m; ) {
+			int v = to[order[k]];
+			int end = k + 1;
+			while ((end < m) && (to[order[end]] == v))
+				end++;
+			
+			ownSources(v);
+			int[] a = sources[v];
+			int d = inDegrees[v];
+			int n = 0;
+			int p = k;
+			for (int q = 0; q < d; q++) {
+				if ((p < end) && (a[q] == from[order[p]]))
+					p++;
+				else
+					a[n++] = a[q];
 			}
+			
+			inDegrees[v] = n;
+			modCounts[v]++;
+			k = end;
+		}
+	}
+	
+	// Helper function for sorting the first m pairs of vertices in the two
+	// arrays, by major vertex and then by minor vertex.  Returns the positions
+	// of the pairs in sorted order.  It uses a counting sort on the minor vertex
+	// followed by a stable counting sort on the major vertex, so the order of
+	// equal pairs is preserved.
+	
+	private static int[] sortedOrder(int[] major, int[] minor, int m, int vertexCapacity) {
+		int[] counts = new int[vertexCapacity + 1];
+		for (int i = 0; i < m; i++)
+			counts[minor[i] + 1]++;
+		for (int v = 0; v < vertexCapacity; v++)
+			counts[v + 1] += counts[v];
+		int[] byMinor = new int[m];
+		for (int i = 0; i < m; i++)
+			byMinor[counts[minor[i]]++] = i;
+		
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < m; i++)
+			counts[major[i] + 1]++;
+		for (int v = 0; v < vertexCapacity; v++)
+			counts[v + 1] += counts[v];
+		int[] result = new int[m];
+		for (int i = 0; i < m; i++) {
+			int j = byMinor[i];
+			result[counts[major[j]]++] = j;
 		}
+		return result;
 	}
 	
-	// Since there is no automatic removal of weak references to iterators
-	// that have become null, this routine forces explicit removal.
+	// Helper function for finding the position of the first of the specified
+	// number of sorted vertices in the array that is at least as large as the
+	// specified vertex.  Uses binary search.
+	
+	private static int findFirst(int[] a, int size, int vertex) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (a[mid] < vertex)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	// Helper function for computing and storing the in degree once for all
+	// vertices.  Since a vertex does not know the edges pointing to it, a
+	// loop over all vertices is needed to compute the degree for any one
+	// vertex, and it makes sense to store it for all vertices.  When there
+	// are enough edges, the vertices are divided into ranges with similar
+	// numbers of edges, each range is counted into its own array by a task 
+	// on the common ForkJoin pool, and the arrays are summed as the tasks are
+	// joined.  Each range has at least as many edges as there are vertices, 
+	// so summing the arrays costs no more than counting.  The array is stored
+	// in the volatile field only once it is complete, so threads reading a 
+	// snapshot at once see either no array or a whole one, and at worst each
+	// computes an equal array.
+	
+	// Returns the in degree of a vertex, which is in range, counted from the
+	// edges without the reverse index.  The counts for all the vertices are
+	// cached until edges are added or removed.
 	
-	private void cleanupIterators(int vertex) {
-		Iterator<WeakReference<EdgeHolder>> it = iterators.get(vertex).iterator();
-		while (it.hasNext()) {
-			WeakReference<EdgeHolder> ref = it.next();
-			if (ref.get() == null)
-				it.remove();
+	final int countedInDegree(int to) {
+		int[] counts = cachedInDegrees;
+		if (counts == null)
+			counts = cacheInDegrees();
+		return counts[to];
+	}
+	
+	private int[] cacheInDegrees() {
+		long edgeCount = 0;
+		for (int v = 0; v < vertexCapacity; v++)
+			edgeCount += outDegrees[v];
+		long edgesPerTask = Math.max(vertexCapacity, MIN_EDGES_PER_TASK);
+		int tasks = (int) Math.min(ForkJoinPool.getCommonPoolParallelism(), 
+								   edgeCount / edgesPerTask);
+		if (tasks <= 1) {
+			int[] counts = countInDegrees(0, vertexCapacity);
+			cachedInDegrees = counts;
+			return counts;
+		}
+		
+		int[] bounds = new int[tasks + 1];
+		long edges = 0;
+		int task = 1;
+		for (int v = 0; (v < vertexCapacity) && (task < tasks); v++) {
+			edges += outDegrees[v];
+			while ((task < tasks) && (edges * tasks >= edgeCount * task))
+				bounds[task++] = v + 1;
 		}
+		while (task <= tasks)
+			bounds[task++] = vertexCapacity;
+		int[] counts = ForkJoinPool.commonPool().invoke(new InDegreeTask(bounds, 0, tasks));
+		cachedInDegrees = counts;
+		return counts;
 	}
 	
-	// Internal representation of an edge, in a linked list of edges.
+	// Helper function returning an array of the in degrees from the edges
+	// out of the vertices in the specified range.
+	
+	private int[] countInDegrees(int begin, int end) {
+		int[] counts = new int[vertexCapacity];
+		for (int v = begin; v < end; v++) {
+			int[] a = targets[v];
+			for (int i = 0; i < outDegrees[v]; i++)
+				counts[a[i]]++;
+		}
+		return counts;
+	}
 	
-	private class EdgeLink {
-		EdgeLink(E edge, EdgeLink next) {
-			this.edge = edge;
-			this.next = next;
+	private class InDegreeTask extends RecursiveTask<int[]> {
+		
+		InDegreeTask(int[] bounds, int first, int last) {
+			this.bounds = bounds;
+			this.first = first;
+			this.last = last;
+		}
+		
+		@Override
+		protected int[] compute() {
+			if (last - first == 1)
+				return countInDegrees(bounds[first], bounds[last]);
+			int middle = (first + last) >>> 1;
+			InDegreeTask left = new InDegreeTask(bounds, first, middle);
+			left.fork();
+			int[] result = new InDegreeTask(bounds, middle, last).compute();
+			int[] other = left.join();
+			for (int v = 0; v < result.length; v++)
+				result[v] += other[v];
+			return result;
 		}
 		
-		E edge;
-		EdgeLink next;
+		// The ranges of vertices, and the first and one past the last of the 
+		// ranges for this task.
+		
+		private int[] bounds;
+		private int first;
+		private int last;
+		
+		private static final long serialVersionUID = 1L;
 	}
 	
-	// A base class for classes that hold references to edges, like iterators.
-	// Since the referred edge may be removed, this class can be updated to
-	// advance past the removed edge.  This base class makes it simpler to
-	// maintain a list of weak references to every instance that could need
-	// to be updated.
+	// Constructor for a snapshot, which copies the arrays of edge arrays but
+	// shares the edge arrays themselves.
+	
+	private Digraph(Digraph<E> graph) {
+		allowMultiples = graph.allowMultiples;
+		vertexCapacity = graph.vertexCapacity;
+		targets = Arrays.copyOf(graph.targets, vertexCapacity);
+		outDegrees = Arrays.copyOf(graph.outDegrees, vertexCapacity);
+		if (graph.edgeObjects != null)
+			edgeObjects = Arrays.copyOf(graph.edgeObjects, vertexCapacity);
+		if (graph.sources != null) {
+			sources = Arrays.copyOf(graph.sources, vertexCapacity);
+			inDegrees = Arrays.copyOf(graph.inDegrees, vertexCapacity);
+		}
+		columnCount = graph.columnCount;
+		columns = new Object[columnCount][];
+		for (int c = 0; c < columnCount; c++)
+			columns[c] = Arrays.copyOf(graph.columns[c], vertexCapacity);
+		columnTypes = graph.columnTypes;
+		columnZeros = graph.columnZeros;
+		modCounts = new int[vertexCapacity];
+		hubThreshold = graph.hubThreshold;
+		hubs = new HubIndex[vertexCapacity];
+	}
+	
+	// The read-only view returned by snapshot().  Making one copies the 
+	// arrays indexed by vertex (the edge arrays, out degrees, edge objects,
+	// edge columns and any reverse index) and allocates new modification
+	// counts and hash indices, which is O(V) time and memory.  Sharing these
+	// arrays in chunks copied on write would make it cheaper, at the cost of
+	// an extra indirection on every access to the graph.
+	
+	private static class Snapshot<E extends Edge> extends Digraph<E> {
+		
+		Snapshot(Digraph<E> graph) {
+			super(graph);
+			this.graph = graph;
+			sharedHubs = new AtomicReferenceArray<HubIndex>(getVertexCapacity());
+			reverseIndexed = super.hasReverseIndex();
+		}
+		
+		// If the graph has a reverse index, the snapshot shares it from the 
+		// start.  Otherwise many threads may ask for the index at once, so
+		// one builds it under the lock, and the volatile flag publishes it to
+		// the others.  Until then, the in degrees are counted from the edges,
+		// without reading the index as it is being built.
+		
+		@Override
+		public void enableReverseIndex() {
+			if (reverseIndexed)
+				return;
+			synchronized (this) {
+				if (!reverseIndexed) {
+					super.enableReverseIndex();
+					reverseIndexed = true;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasReverseIndex() {
+			return reverseIndexed;
+		}
+		
+		@Override
+		public int getInDegree(int to) throws IndexOutOfBoundsException {
+			if (reverseIndexed)
+				return super.getInDegree(to);
+			if ((to < 0) || (getVertexCapacity() <= to))
+				throw new IndexOutOfBoundsException("Digraph.inDegree() " +
+												    "vertex out of range");
+			return countedInDegree(to);
+		}
+		
+		@Override
+		public AdjacencyIterator createAdjacencyIterator(int from) 
+				throws IndexOutOfBoundsException {
+			if ((from < 0) || (getVertexCapacity() <= from))
+				throw new IndexOutOfBoundsException("Digraph.createAdjacencyIterator() " +
+												    "vertex out of range");
+			return new AdjacencyIterator(this, from);
+		}
+		
+		@Override
+		public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+				throws IndexOutOfBoundsException {
+			if ((from < 0) || (getVertexCapacity() <= from))
+				throw new IndexOutOfBoundsException("Digraph.createAdjacencyMultipleIterator() " +
+												    "vertex out of range");
+			return new AdjacencyMultipleIterator(this, from);
+		}
+		
+		@Override
+		public Digraph<E> snapshot() {
+			return this;
+		}
+		
+		@Override
+		public void setHubThreshold(int threshold) {
+			throw new UnsupportedOperationException("Digraph.setHubThreshold() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		public void removeEdge(int from, int to) {
+			throw new UnsupportedOperationException("Digraph.removeEdge() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		public void removeEdgesFrom(int from) {
+			throw new UnsupportedOperationException("Digraph.removeEdgesFrom() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		public int removeEdgesIf(EdgePredicate predicate) {
+			throw new UnsupportedOperationException("Digraph.removeEdgesIf() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		public void ensureCapacity(int vertexCapacity) {
+			throw new UnsupportedOperationException("Digraph.ensureCapacity() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		protected void addEdge(int from, E newEdge) {
+			throw new UnsupportedOperationException("Digraph.addEdge() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		protected void addEdges(int[] from, int[] to, E[] newEdges) {
+			throw new UnsupportedOperationException("Digraph.addEdges() " +
+													"snapshot is read-only");
+		}
+		
+		@Override
+		protected E createEdge(int to) {
+			return graph.createEdge(to);
+		}
+		
+		@Override
+		protected E createEdge(Digraph<E> graph, int from, int index) {
+			return this.graph.createEdge(graph, from, index);
+		}
+		
+		@Override
+		protected int countEdges(Digraph<E> graph, int from, int to) {
+			return this.graph.countEdges(graph, from, to);
+		}
+		
+		// Many threads may read the snapshot at once, so an index is 
+		// published through the atomic array, which makes it visible to 
+		// other threads only after it is built.  The snapshot never changes
+		// an index, and threads that race to build one build equal ones.
+		
+		@Override
+		HubIndex hubIndex(int from) {
+			HubIndex hub = sharedHubs.get(from);
+			if (hub == null) {
+				hub = createHubIndex(from);
+				if (!sharedHubs.compareAndSet(from, null, hub))
+					hub = sharedHubs.get(from);
+			}
+			return hub;
+		}
+		
+		private Digraph<E> graph;
+		private AtomicReferenceArray<HubIndex> sharedHubs;
+		private volatile boolean reverseIndexed;
+	}
+	
+	// A base class for classes that hold the position of an edge, like
+	// iterators.  Edges may be added or removed while the position is held,
+	// so the graph counts the modifications to the edges of each vertex.  When
+	// the count changes, the holder finds its edge again by the other vertex
+	// of the edge, or moves to the next edge if its edge was removed.  There
+	// is no need for the graph to keep track of the holders.
 	
 	private class EdgeHolder {
-		void update(EdgeLink link) {
-			if ((link != null) && (link == current))
-				current = current.next;
+		EdgeHolder(Digraph<E> graph, int vertex, boolean in) {
+			this.graph = graph;
+			this.vertex = vertex;
+			this.in = in;
+			current = NOT_STARTED;
+		}
+		
+		// Moves to the first edge.
+		
+		void start() {
+			expectedModCount = graph.modCounts[vertex];
+			moveTo(0);
+		}
+		
+		// Moves to the next edge, unless there are no more edges.
+		
+		void step() {
+			if (atEnd())
+				return;
+			current++;
+			if (remaining > 1)
+				remaining--;
+			else
+				moveTo(current);
+		}
+		
+		// Returns true if there is no current edge.
+		
+		boolean atEnd() {
+			if (current < 0)
+				return true;
+			if (expectedModCount != graph.modCounts[vertex])
+				relocate();
+			return (current < 0);
+		}
+		
+		// Moves to the last of the edges that match the current edge (i.e., 
+		// that have the same other vertex).
+		
+		void skipToLastMatching() {
+			current += remaining - 1;
+			remaining = 1;
+		}
+		
+		// Finds the current edge again after edges have been added or removed.
+		// An added edge multiple goes before the existing matching edges, and
+		// a removed edge multiple is the first of them, so the position 
+		// relative to the last matching edge is preserved.  If the current 
+		// edge is among those removed, this position falls back to the first 
+		// remaining match, or the next edge if there are no matches.
+		
+		private void relocate() {
+			expectedModCount = graph.modCounts[vertex];
+			int[] a = otherVertices();
+			int n = edgeCount();
+			int matchStart = findFirst(a, n, currentOther);
+			int matchEnd = findFirst(a, n, currentOther + 1);
+			moveTo(matchEnd - Math.min(remaining, matchEnd - matchStart));
+		}
+		
+		private void moveTo(int i) {
+			int[] a = otherVertices();
+			int n = edgeCount();
+			if (n <= i) {
+				current = FINISHED;
+				return;
+			}
+			current = i;
+			currentOther = a[i];
+			int matchEnd = i + 1;
+			while ((matchEnd < n) && (a[matchEnd] == currentOther))
+				matchEnd++;
+			remaining = matchEnd - i;
 		}
 		
-		EdgeLink current;
+		private int[] otherVertices() {
+			return in ? graph.sources[vertex] : graph.targets[vertex];
+		}
+		
+		private int edgeCount() {
+			return in ? graph.inDegrees[vertex] : graph.outDegrees[vertex];
+		}
+		
+		Digraph<E> graph;
+		int vertex;
+		boolean in;
+		
+		// The position of the current edge, its other vertex, the number of
+		// matching edges from it to the last match, and the modification count
+		// when they were computed.
+		
+		int current;
+		int currentOther;
+		int remaining;
+		int expectedModCount;
 	}
 	
+	private static final int NOT_STARTED = -1;
+	private static final int FINISHED = -2;
+	private static final int INITIAL_EDGE_CAPACITY = 2;
+	private static final int MIN_EDGES_PER_TASK = 1 << 16;
+	
 	private boolean allowMultiples;
-	private ArrayList<EdgeLink> edges;
-	private ArrayList<Integer> inDegrees;
-	private ArrayList<Integer> outDegrees;
-	private ArrayList<ArrayList<WeakReference<EdgeHolder>>> iterators;
+	private int vertexCapacity;
+	private int[][] targets;
+	private Object[][] edgeObjects;
+	private int[] outDegrees;
+	private int[][] sources;
+	private int[] inDegrees;
+	private volatile int[] cachedInDegrees;
+	private int[] modCounts;
+	
+	// The out degree at which a vertex gets a hash index, and the index for
+	// each vertex, which is null until the first lookup (a snapshot keeps 
+	// its indices in its own atomic array instead).
+	
+	private int hubThreshold = DEFAULT_HUB_THRESHOLD;
+	private HubIndex[] hubs;
+	
+	// The edge columns: for each column, an array of values for each vertex,
+	// the type of the values, and an array of one 0 value.
+	
+	private int columnCount = 0;
+	private Object[][] columns = new Object[0][];
+	private Class<?>[] columnTypes = new Class<?>[0];
+	private Object[] columnZeros = new Object[0];
+	
+	// The number of snapshots made, and for each vertex, the number when its
+	// edge arrays were last copied or created.  The arrays are null until the
+	// first snapshot.
+	
+	private int snapshotEpoch;
+	private int[] targetEpochs;
+	private int[] sourceEpochs;
 }
@@ -0,0 +1,255 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// A builder for a BasicDigraph or WeightedDigraph, for ingesting edges from 
+// many threads at once when no edges are removed.  The addEdge() routines do
+// not lock: each vertex has a list of chunks, and a thread claims a slot in
+// the newest chunk with an atomic increment, or installs a larger chunk with a 
+// compare-and-set when the newest chunk is full.  The edges are appended in no
+// particular order.  The buildBasic() and buildWeighted() routines then sort
+// each vertex's edges, in parallel on the common ForkJoin pool, removing 
+// duplicates if edge multiples are disabled, and install the sorted arrays 
+// directly in the new graph.
+//
+// The build routines must be called after all the threads adding edges have
+// finished (e.g., after Thread.join()).  Building empties the builder.
+
+public class DigraphBuilder {
+	
+	// Whether the builder records a weight with each edge.
+	
+	public enum Weights { ENABLED, DISABLED }
+	
+	// Constructor.  Edges can be added involving vertices with indices in 
+	// the range from 0 to vertexCapacity - 1.  The EdgeMultiples enum 
+	// specifies whether the graph built can have more than one edge between
+	// a pair of vertices or not.
+	
+	public DigraphBuilder(int vertexCapacity, Digraph.EdgeMultiples multiples,
+						  Weights weights) {
+		this.vertexCapacity = vertexCapacity;
+		this.multiples = multiples;
+		hasWeights = (weights == Weights.ENABLED);
+		chunks = new AtomicReferenceArray<Chunk>(vertexCapacity);
+	}
+	
+	public int getVertexCapacity() {
+		return vertexCapacity;
+	}
+	
+	// Add an edge from the specified vertex pointing to another vertex, with
+	// a weight of 0 if the builder has weights.  Safe to call from many 
+	// threads at once.
+	// Throws IndexOutOfBoundsException if either vertex is out of range.
+	
+	public void addEdge(int from, int to) throws IndexOutOfBoundsException {
+		addEdge(from, to, 0);
+	}
+	
+	// Add an edge from the specified vertex pointing to another vertex, with
+	// the specified weight.  Safe to call from many threads at once.
+	// Throws IndexOutOfBoundsException if either vertex is out of range.
+	// Throws IllegalStateException if the weight is not 0 and the builder
+	// has no weights.
+	
+	public void addEdge(int from, int to, float weight) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		if ((from < 0) || (vertexCapacity <= from) || (to < 0) || (vertexCapacity <= to))
+			throw new IndexOutOfBoundsException("DigraphBuilder.addEdge() " +
+											    "vertex out of range");
+		if ((weight != 0) && !hasWeights)
+			throw new IllegalStateException("DigraphBuilder.addEdge() " +
+											"builder has no weights");
+		
+		while (true) {
+			Chunk chunk = chunks.get(from);
+			if (chunk != null) {
+				int i = chunk.claimed.getAndIncrement();
+				if (i < chunk.targets.length) {
+					chunk.targets[i] = to;
+					if (hasWeights)
+						chunk.weights[i] = weight;
+					return;
+				}
+			}
+			
+			// The chunk is missing or full, so try to install a larger one.
+			// If another thread installs one first, use that one.
+			
+			int capacity = (chunk == null) ? INITIAL_CHUNK_SIZE : 
+				Math.min(2 * chunk.targets.length, MAX_CHUNK_SIZE);
+			chunks.compareAndSet(from, chunk, new Chunk(capacity, hasWeights, chunk));
+		}
+	}
+	
+	// Build a BasicDigraph from the edges added, ignoring any weights.
+	
+	public BasicDigraph buildBasic() {
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, multiples);
+		build(graph, false);
+		return graph;
+	}
+	
+	// Build a WeightedDigraph from the edges added.  The weights are 0 if the
+	// builder has no weights.  If edge multiples are disabled, only one of 
+	// the duplicate edges is kept, with the weight of one of them.
+	
+	public WeightedDigraph buildWeighted() {
+		WeightedDigraph graph = new WeightedDigraph(vertexCapacity, multiples);
+		build(graph, true);
+		return graph;
+	}
+	
+	//
+	
+	// Helper function for sorting each vertex's edges and installing them in
+	// the graph, dividing the vertices among parallel tasks.
+	
+	private void build(Digraph<?> graph, boolean weighted) {
+		ForkJoinPool.commonPool().invoke(new BuildTask(graph, weighted, 0, vertexCapacity));
+		chunks = new AtomicReferenceArray<Chunk>(vertexCapacity);
+	}
+	
+	private class BuildTask extends RecursiveAction {
+		
+		BuildTask(Digraph<?> graph, boolean weighted, int begin, int end) {
+			this.graph = graph;
+			this.weighted = weighted;
+			this.begin = begin;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end - begin > VERTICES_PER_TASK) {
+				int middle = (begin + end) >>> 1;
+				invokeAll(new BuildTask(graph, weighted, begin, middle),
+						  new BuildTask(graph, weighted, middle, end));
+				return;
+			}
+			for (int v = begin; v < end; v++)
+				buildVertex(v);
+		}
+		
+		private void buildVertex(int v) {
+			int count = 0;
+			for (Chunk c = chunks.get(v); c != null; c = c.next)
+				count += c.size();
+			if (count == 0)
+				return;
+			
+			// Sort the edges by target, using the position of each edge as the
+			// low bits of a sort key when the edges have weights.
+			
+			int[] targets = new int[count];
+			float[] weights = (weighted && hasWeights) ? new float[count] : null;
+			int n = 0;
+			for (Chunk c = chunks.get(v); c != null; c = c.next) {
+				int size = c.size();
+				System.arraycopy(c.targets, 0, targets, n, size);
+				if (weights != null)
+					System.arraycopy(c.weights, 0, weights, n, size);
+				n += size;
+			}
+			
+			int[] order = null;
+			if (weights == null) {
+				Arrays.sort(targets);
+			}
+			else {
+				long[] keys = new long[count];
+				for (int i = 0; i < count; i++)
+					keys[i] = ((long) targets[i] << 32) | i;
+				Arrays.sort(keys);
+				order = new int[count];
+				for (int i = 0; i < count; i++) {
+					order[i] = (int) keys[i];
+					targets[i] = (int) (keys[i] >>> 32);
+				}
+			}
+			
+			int outDegree = 0;
+			for (int i = 0; i < count; i++) {
+				if ((multiples == Digraph.EdgeMultiples.DISABLED) && (outDegree > 0) &&
+						(targets[outDegree - 1] == targets[i]))
+					continue;
+				targets[outDegree] = targets[i];
+				if (order != null)
+					order[outDegree] = order[i];
+				outDegree++;
+			}
+			
+			graph.setEdges(v, targets, outDegree, null);
+			if (weights != null) {
+				WeightedDigraph weightedGraph = (WeightedDigraph) graph;
+				for (int i = 0; i < outDegree; i++)
+					weightedGraph.setWeightAt(v, i, weights[order[i]]);
+			}
+		}
+		
+		private Digraph<?> graph;
+		private boolean weighted;
+		private int begin;
+		private int end;
+		
+		private static final long serialVersionUID = 1L;
+	}
+	
+	// A block of edges from one vertex.  Slots are claimed by incrementing
+	// the count, which may go beyond the capacity when the chunk is full.
+	
+	private static class Chunk {
+		
+		Chunk(int capacity, boolean hasWeights, Chunk next) {
+			targets = new int[capacity];
+			weights = hasWeights ? new float[capacity] : null;
+			claimed = new AtomicInteger();
+			this.next = next;
+		}
+		
+		int size() {
+			return Math.min(claimed.get(), targets.length);
+		}
+		
+		final int[] targets;
+		final float[] weights;
+		final AtomicInteger claimed;
+		final Chunk next;
+	}
+	
+	private static final int INITIAL_CHUNK_SIZE = 4;
+	private static final int MAX_CHUNK_SIZE = 1024;
+	private static final int VERTICES_PER_TASK = 1024;
+	
+	private int vertexCapacity;
+	private Digraph.EdgeMultiples multiples;
+	private boolean hasWeights;
+	private AtomicReferenceArray<Chunk> chunks;
+}
@@ -0,0 +1,209 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+// The binary format written by the writeTo() routines of BasicDigraph and
+// WeightedDigraph, and read by their readFrom() routines.  All values are
+// little-endian.  The format is as follows:
+// - a header: the int MAGIC, the int VERSION, an int for the kind of graph
+//   (BASIC or WEIGHTED), an int of flags (FLAG_MULTIPLES), the int vertex
+//   capacity, and the long number of bytes in the body that follows;
+// - for each vertex, its out degree as a varint, then the sorted vertices its
+//   edges point to as varint gaps (the first relative to 0), then the extra
+//   data of each edge, like the raw float weight of a WeightedDigraph edge.
+// A varint stores 7 bits per byte, low bits first, with the high bit set on
+// all but the last byte, so the small gaps between sorted vertices usually
+// take one byte.  The reading and writing go through buffers of bounded size.
+// Each vertex takes at least one byte for its out degree, and each edge at
+// least one byte for its gap, so the reading checks the vertex capacity and
+// the out degrees against the body size before allocating arrays for them,
+// and corrupt data cannot make it run out of memory.
+
+final class DigraphFormat {
+	
+	static final int MAGIC = 0x46474744;
+	static final int VERSION = 1;
+	static final int BASIC = 1;
+	static final int WEIGHTED = 2;
+	static final int FLAG_MULTIPLES = 0x1;
+	
+	// Writes values to a channel.
+	
+	static class Writer {
+		
+		Writer(WritableByteChannel channel) {
+			this.channel = channel;
+			buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+		}
+		
+		// Write the header.
+		
+		void putHeader(int kind, boolean multiples, int vertexCapacity, long bodySize) 
+				throws IOException {
+			reserve(HEADER_SIZE);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(kind);
+			buffer.putInt(multiples ? FLAG_MULTIPLES : 0);
+			buffer.putInt(vertexCapacity).putLong(bodySize);
+		}
+		
+		// Returns the buffer, after making sure it has room for the
+		// specified number of bytes.
+		
+		ByteBuffer reserve(int size) throws IOException {
+			if (buffer.remaining() < size)
+				flush();
+			return buffer;
+		}
+		
+		void putVarInt(int value) throws IOException {
+			reserve(MAX_VAR_INT_SIZE);
+			while ((value & ~0x7f) != 0) {
+				buffer.put((byte) ((value & 0x7f) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+		
+		// Write any buffered values to the channel.
+		
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+		
+		private WritableByteChannel channel;
+		private ByteBuffer buffer;
+	}
+	
+	// Reads values from a channel, never reading beyond the end of the graph.
+	
+	static class Reader {
+		
+		// Reads the header.  Throws IOException if it is not the header
+		// of a graph of the specified kind.
+		
+		Reader(ReadableByteChannel channel, int kind) throws IOException {
+			this.channel = channel;
+			buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+			buffer.limit(0);
+			unread = HEADER_SIZE;
+			
+			require(HEADER_SIZE);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Digraph.readFrom() data is not a graph");
+			if (buffer.getInt() != VERSION)
+				throw new IOException("Digraph.readFrom() unsupported version");
+			if (buffer.getInt() != kind)
+				throw new IOException("Digraph.readFrom() wrong kind of graph");
+			multiples = ((buffer.getInt() & FLAG_MULTIPLES) != 0);
+			vertexCapacity = buffer.getInt();
+			unread = buffer.getLong();
+			if ((vertexCapacity < 0) || (unread < vertexCapacity))
+				throw new IOException("Digraph.readFrom() bad header");
+		}
+		
+		boolean hasMultiples() {
+			return multiples;
+		}
+		
+		int getVertexCapacity() {
+			return vertexCapacity;
+		}
+		
+		// Returns the buffer, after making sure it has the specified number
+		// of bytes remaining.
+		// Throws IOException if the data ends first.
+		
+		ByteBuffer require(int size) throws IOException {
+			if (buffer.remaining() >= size)
+				return buffer;
+			buffer.compact();
+			while (buffer.position() < size) {
+				int limit = (int) Math.min(buffer.capacity(), buffer.position() + unread);
+				if (limit == buffer.position())
+					throw new IOException("Digraph.readFrom() data ends early");
+				buffer.limit(limit);
+				int n = channel.read(buffer);
+				if (n < 0)
+					throw new IOException("Digraph.readFrom() data ends early");
+				unread -= n;
+			}
+			buffer.flip();
+			return buffer;
+		}
+		
+		// The number of bytes of the body not yet read.
+		
+		long remaining() {
+			return unread + buffer.remaining();
+		}
+		
+		int getVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 7 * MAX_VAR_INT_SIZE; shift += 7) {
+				byte b = require(1).get();
+				value |= (b & 0x7f) << shift;
+				if (b >= 0)
+					return value;
+			}
+			throw new IOException("Digraph.readFrom() bad varint");
+		}
+		
+		// Throws IOException if the body has not been read completely.
+		
+		void finish() throws IOException {
+			if ((unread != 0) || buffer.hasRemaining())
+				throw new IOException("Digraph.readFrom() body size mismatch");
+		}
+		
+		private ReadableByteChannel channel;
+		private ByteBuffer buffer;
+		private long unread;
+		private boolean multiples;
+		private int vertexCapacity;
+	}
+	
+	// The number of bytes that Writer.putVarInt() writes for the value.
+	
+	static int varIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7f) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+	
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	private static final int HEADER_SIZE = 28;
+	private static final int MAX_VAR_INT_SIZE = 5;
+	private static final int BUFFER_SIZE = 1 << 16;
+}
@@ -0,0 +1,204 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// The spliterators behind Digraph.vertices() and Digraph.edges().  Each one
+// covers a range of vertices, and splits the range so the halves have about
+// the same work, counting one unit for each vertex plus one for each edge 
+// from it.  The work before each vertex is computed once, when the stream is
+// created, so a split is a binary search.  Splitting by work rather than by
+// vertices keeps the parallel tasks balanced when a few vertices have most
+// of the edges.  The graph must not be changed while a stream is in use.
+
+abstract class DigraphSpliterator {
+	
+	// Returns the work before each vertex of the graph, with an extra entry
+	// at the end for the total.
+	
+	static long[] workOffsets(Digraph<?> graph) {
+		int vertexCapacity = graph.getVertexCapacity();
+		long[] offsets = new long[vertexCapacity + 1];
+		for (int v = 0; v < vertexCapacity; v++)
+			offsets[v + 1] = offsets[v] + 1 + graph.getOutDegree(v);
+		return offsets;
+	}
+	
+	// A spliterator over the vertices.
+	
+	static class OfVertices extends DigraphSpliterator implements Spliterator.OfInt {
+		
+		OfVertices(long[] offsets, int start, int end) {
+			super(offsets, start, end);
+		}
+		
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (start >= end)
+				return false;
+			action.accept(start++);
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			while (start < end)
+				action.accept(start++);
+		}
+		
+		@Override
+		public OfVertices trySplit() {
+			int mid = splitPoint();
+			if (mid == Digraph.NO_VERTEX)
+				return null;
+			OfVertices prefix = new OfVertices(offsets, start, mid);
+			start = mid;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return end - start;
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL;
+		}
+		
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return null;
+		}
+	}
+	
+	// A spliterator over the edges, as pairs of vertices, in order of the 
+	// vertex each edge is from and then the vertex it points to.  It copies
+	// the vertices pointed to from each vertex into a reused array.
+	
+	static class OfEdges extends DigraphSpliterator implements Spliterator<Digraph.EdgePair> {
+		
+		OfEdges(Digraph<?> graph, long[] offsets, int start, int end) {
+			super(offsets, start, end);
+			this.graph = graph;
+			neighbors = new int[0];
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Digraph.EdgePair> action) {
+			while (index == count) {
+				if (start >= end)
+					return false;
+				load(start++);
+			}
+			action.accept(new Digraph.EdgePair(from, neighbors[index++]));
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super Digraph.EdgePair> action) {
+			while (true) {
+				while (index < count)
+					action.accept(new Digraph.EdgePair(from, neighbors[index++]));
+				if (start >= end)
+					return;
+				load(start++);
+			}
+		}
+		
+		@Override
+		public OfEdges trySplit() {
+			if (index < count)
+				return null;
+			int mid = splitPoint();
+			if (mid == Digraph.NO_VERTEX)
+				return null;
+			OfEdges prefix = new OfEdges(graph, offsets, start, mid);
+			start = mid;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return (offsets[end] - end) - (offsets[start] - start) + (count - index);
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+		
+		private void load(int v) {
+			int outDegree = graph.getNeighbors(v, neighbors);
+			if (outDegree > neighbors.length) {
+				neighbors = new int[Math.max(outDegree, 2 * neighbors.length)];
+				graph.getNeighbors(v, neighbors);
+			}
+			from = v;
+			count = outDegree;
+			index = 0;
+		}
+		
+		private Digraph<?> graph;
+		private int[] neighbors;
+		private int from;
+		private int count;
+		private int index;
+	}
+	
+	//
+	
+	protected DigraphSpliterator(long[] offsets, int start, int end) {
+		this.offsets = offsets;
+		this.start = start;
+		this.end = end;
+	}
+	
+	// Returns the vertex that splits the remaining range into two parts with
+	// about the same work, or NO_VERTEX if the range is too small to split.
+	
+	int splitPoint() {
+		if (end - start < 2)
+			return Digraph.NO_VERTEX;
+		long half = (offsets[start] + offsets[end]) >>> 1;
+		int low = start + 1;
+		int high = end - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] < half)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	long[] offsets;
+	int start;
+	int end;
+	
+}
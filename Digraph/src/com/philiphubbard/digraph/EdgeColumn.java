@@ -0,0 +1,85 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+// The base class for columns of primitive values attached to the edges of a
+// graph, like IntEdgeColumn, FloatEdgeColumn and LongEdgeColumn.  A column is
+// attached to the graph when it is constructed, and every edge has a value, 
+// which is initially 0.  The values for the edges from a vertex are stored 
+// in an array parallel to the sorted array of vertices pointed to, and the 
+// graph moves them along with their edges as edges are added and removed.
+//
+// An edge is identified by the vertex it is from and its position among the
+// sorted edges from that vertex, as for Digraph.targetAt().  Adding or 
+// removing edges from a vertex can change the positions of its other edges,
+// so a position should not be kept across such changes.  An iterator's 
+// getVertex() and getIndex() identify its current edge.
+//
+// A column cannot be attached to a read-only graph like CompactDigraph.  For
+// a ConcurrentDigraph, values must not be accessed while edges from the same
+// vertex are being added or removed by another thread.
+
+public abstract class EdgeColumn {
+	
+	// The graph to which the column is attached.
+	
+	public Digraph<?> getGraph() {
+		return graph;
+	}
+	
+	//
+	
+	// Constructor, attaching a column of values of the specified primitive
+	// type (e.g., float.class) to the graph.
+	// Throws UnsupportedOperationException if the graph is read-only.
+	
+	protected EdgeColumn(Digraph<?> graph, Class<?> type) 
+			throws UnsupportedOperationException {
+		this.graph = graph;
+		column = graph.addEdgeColumn(type);
+	}
+	
+	// Returns the array of values for the edges from the specified vertex,
+	// for reading the value at the specified position.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	// The function name is used in the exception's message.
+	
+	protected Object getValues(int from, int index, String function) 
+			throws IndexOutOfBoundsException {
+		graph.checkEdgeIndex(from, index, function);
+		return graph.getEdgeColumn(column, from);
+	}
+	
+	// Returns the array of values for the edges from the specified vertex,
+	// as above, for changing the value at the specified position.
+	
+	protected Object getValuesForWrite(int from, int index, String function) 
+			throws IndexOutOfBoundsException {
+		graph.checkEdgeIndex(from, index, function);
+		return graph.getEdgeColumnForWrite(column, from);
+	}
+	
+	private Digraph<?> graph;
+	private int column;
+	
+}
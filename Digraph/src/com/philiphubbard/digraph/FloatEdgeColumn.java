@@ -0,0 +1,63 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+// A column of float values attached to the edges of a graph.  See EdgeColumn 
+// for how the values are stored and how edges are identified.
+
+public class FloatEdgeColumn extends EdgeColumn {
+	
+	// Constructor, attaching the column to the graph, with a value of 0 for 
+	// every edge.
+	// Throws UnsupportedOperationException if the graph is read-only.
+	
+	public FloatEdgeColumn(Digraph<?> graph) throws UnsupportedOperationException {
+		super(graph, float.class);
+	}
+	
+	// The value for the edge at the specified position among the sorted
+	// edges from the specified vertex, which is in the range from 0 to
+	// getOutDegree(from) - 1.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public float get(int from, int index) throws IndexOutOfBoundsException {
+		return ((float[]) getValues(from, index, "FloatEdgeColumn.get()"))[index];
+	}
+	
+	// Set the value for the edge at the specified position among the sorted
+	// edges from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public void set(int from, int index, float value) throws IndexOutOfBoundsException {
+		((float[]) getValuesForWrite(from, index, "FloatEdgeColumn.set()"))[index] = value;
+	}
+	
+	// Add to the value for the edge at the specified position among the
+	// sorted edges from the specified vertex, and return the new value.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public float add(int from, int index, float delta) throws IndexOutOfBoundsException {
+		return ((float[]) getValuesForWrite(from, index, "FloatEdgeColumn.add()"))[index] += delta;
+	}
+	
+}
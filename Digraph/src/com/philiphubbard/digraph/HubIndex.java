@@ -0,0 +1,129 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Arrays;
+
+// A hash index of the edges from one high-degree vertex, which Digraph uses
+// for hasEdge() and getMultiplicity().  It maps each vertex pointed to by the
+// edges to the number of edges pointing to it, with open addressing and 
+// linear probing in parallel int arrays, so a lookup usually touches one or
+// two cache lines instead of the log2(degree) lines of a binary search over
+// the sorted edges.  A vertex whose count drops to 0 keeps its slot until
+// the table is rebuilt, which happens when the used slots pass 3/4 of the
+// capacity.
+
+final class HubIndex {
+	
+	// Constructor, indexing the first outDegree vertices in the array.
+	
+	HubIndex(int[] targets, int outDegree) {
+		allocate(outDegree);
+		for (int i = 0; i < outDegree; i++)
+			add(targets[i]);
+	}
+	
+	// The number of edges pointing to the specified vertex.
+	
+	int count(int vertex) {
+		int s = slot(vertex);
+		return (keys[s] == vertex) ? counts[s] : 0;
+	}
+	
+	// Records an edge added to the specified vertex.
+	
+	void add(int vertex) {
+		int s = slot(vertex);
+		if (keys[s] == vertex) {
+			counts[s]++;
+			return;
+		}
+		
+		keys[s] = vertex;
+		counts[s] = 1;
+		used++;
+		if (4 * used > 3 * keys.length)
+			rebuild();
+	}
+	
+	// Records an edge removed from the specified vertex.
+	
+	void remove(int vertex) {
+		int s = slot(vertex);
+		if ((keys[s] == vertex) && (counts[s] > 0))
+			counts[s]--;
+	}
+	
+	//
+	
+	// Helper function for finding the slot holding the specified vertex, or
+	// the empty slot where it would go.
+	
+	private int slot(int vertex) {
+		int mask = keys.length - 1;
+		int h = vertex * 0x9E3779B9;
+		int s = (h ^ (h >>> 16)) & mask;
+		while ((keys[s] != EMPTY) && (keys[s] != vertex))
+			s = (s + 1) & mask;
+		return s;
+	}
+	
+	// Helper function for allocating empty arrays with room for at least the
+	// specified number of vertices at a load of 1/2.
+	
+	private void allocate(int size) {
+		int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, 2 * size) - 1) << 1;
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[capacity];
+		used = 0;
+	}
+	
+	// Helper function for rehashing the vertices with nonzero counts.
+	
+	private void rebuild() {
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		int live = 0;
+		for (int i = 0; i < oldKeys.length; i++)
+			if ((oldKeys[i] != EMPTY) && (oldCounts[i] > 0))
+				live++;
+		
+		allocate(live);
+		for (int i = 0; i < oldKeys.length; i++)
+			if ((oldKeys[i] != EMPTY) && (oldCounts[i] > 0)) {
+				int s = slot(oldKeys[i]);
+				keys[s] = oldKeys[i];
+				counts[s] = oldCounts[i];
+				used++;
+			}
+	}
+	
+	private static final int EMPTY = Digraph.NO_VERTEX;
+	private static final int MIN_CAPACITY = 8;
+	
+	private int[] keys;
+	private int[] counts;
+	private int used;
+	
+}
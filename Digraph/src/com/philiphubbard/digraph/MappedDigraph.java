@@ -0,0 +1,246 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// An immutable directed graph served directly from a file that is mapped into
+// memory, so opening it takes no time to parse the file, and processes that
+// open the same file share the operating system's cached pages.  The write()
+// routine creates the file from any graph, and open() maps it.
+//
+// The file format is as follows, with all values little-endian:
+// - a header: the int MAGIC, the int VERSION, an int of flags (FLAG_MULTIPLES
+//   and FLAG_WEIGHTS), the int vertex capacity V and the long edge count E;
+// - V + 1 longs, the offset of each vertex's first edge, and then E;
+// - V ints, the in degree of each vertex;
+// - E ints, the vertex pointed to by each edge, grouped by the vertex pointed
+//   from and sorted within each group, as in CompactDigraph;
+// - if FLAG_WEIGHTS is set, E floats, the weight of each edge.
+// Edges have weights only if the file was written from a WeightedDigraph
+// (or a MappedDigraph with weights); otherwise the weights are 0.  The
+// iterators and accessors are those of NativeDigraph.
+
+public class MappedDigraph extends NativeDigraph<WeightedDigraph.Edge> {
+	
+	// Values identifying the format of the file.
+	
+	public static final int MAGIC = 0x48504744;
+	public static final int VERSION = 1;
+	public static final int FLAG_MULTIPLES = 0x1;
+	public static final int FLAG_WEIGHTS = 0x2;
+	
+	// Write the specified graph to the specified file, in the format that
+	// open() maps.  The data is streamed through a buffer of bounded size.
+	
+	public static void write(Digraph<?> graph, File file) throws IOException {
+		boolean weighted = hasWeights(graph);
+		int vertexCapacity = graph.getVertexCapacity();
+		long edgeCount = 0;
+		for (int v = 0; v < vertexCapacity; v++)
+			edgeCount += graph.getOutDegree(v);
+		
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(BYTE_ORDER);
+			
+			int flags = 0;
+			if (graph.getEdgeMultiples() == EdgeMultiples.ENABLED)
+				flags |= FLAG_MULTIPLES;
+			if (weighted)
+				flags |= FLAG_WEIGHTS;
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(vertexCapacity).putLong(edgeCount);
+			
+			long offset = 0;
+			for (int v = 0; v < vertexCapacity; v++) {
+				makeRoom(channel, buffer, 8);
+				buffer.putLong(offset);
+				offset += graph.getOutDegree(v);
+			}
+			makeRoom(channel, buffer, 8);
+			buffer.putLong(offset);
+			
+			for (int v = 0; v < vertexCapacity; v++) {
+				makeRoom(channel, buffer, 4);
+				buffer.putInt(graph.getInDegree(v));
+			}
+			
+			for (int v = 0; v < vertexCapacity; v++) {
+				Digraph<?>.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+				for (Digraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+					makeRoom(channel, buffer, 4);
+					buffer.putInt(e.getTo());
+				}
+			}
+			
+			if (weighted) {
+				for (int v = 0; v < vertexCapacity; v++) {
+					Digraph<?>.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+					for (Digraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+						makeRoom(channel, buffer, 4);
+						buffer.putFloat(((WeightedDigraph.Edge) e).getWeight());
+					}
+				}
+			}
+			
+			makeRoom(channel, buffer, buffer.capacity());
+		}
+		finally {
+			stream.close();
+		}
+	}
+	
+	// Map the specified file, which must have been created by write().
+	// Throws IOException if the file cannot be read or is not in the format.
+	
+	public static MappedDigraph open(File file) throws IOException {
+		RandomAccessFile stream = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = stream.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+			while (header.hasRemaining())
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException("MappedDigraph.open() file is too short");
+			header.flip();
+			
+			if (header.getInt() != MAGIC)
+				throw new IOException("MappedDigraph.open() file is not a graph");
+			if (header.getInt() != VERSION)
+				throw new IOException("MappedDigraph.open() unsupported version");
+			int flags = header.getInt();
+			int vertexCapacity = header.getInt();
+			long edgeCount = header.getLong();
+			boolean weighted = ((flags & FLAG_WEIGHTS) != 0);
+			
+			long offsetsSize = 8L * (vertexCapacity + 1);
+			long inDegreesSize = 4L * vertexCapacity;
+			long targetsSize = 4L * edgeCount;
+			long weightsSize = weighted ? 4L * edgeCount : 0;
+			if ((vertexCapacity < 0) || (edgeCount < 0) || (channel.size() != 
+					HEADER_SIZE + offsetsSize + inDegreesSize + targetsSize + weightsSize))
+				throw new IOException("MappedDigraph.open() file has the wrong size");
+			
+			// The mappings remain valid after the channel is closed.
+			
+			long position = HEADER_SIZE;
+			NativeBuffer offsets = 
+					new NativeBuffer(channel, position, offsetsSize, BYTE_ORDER);
+			position += offsetsSize;
+			NativeBuffer inDegrees = 
+					new NativeBuffer(channel, position, inDegreesSize, BYTE_ORDER);
+			position += inDegreesSize;
+			NativeBuffer targets = 
+					new NativeBuffer(channel, position, targetsSize, BYTE_ORDER);
+			position += targetsSize;
+			NativeBuffer weights = weighted ?
+					new NativeBuffer(channel, position, weightsSize, BYTE_ORDER) : null;
+			
+			EdgeMultiples multiples = ((flags & FLAG_MULTIPLES) != 0) ? 
+					EdgeMultiples.ENABLED : EdgeMultiples.DISABLED;
+			return new MappedDigraph(multiples, vertexCapacity, offsets, inDegrees, targets, weights);
+		}
+		finally {
+			stream.close();
+		}
+	}
+	
+	// Returns true if the file has edge weights.
+	
+	public boolean hasWeights() {
+		return (weights != null);
+	}
+	
+	// The graph is immutable, so it is its own snapshot.  Closing the graph
+	// also closes the snapshot.
+	
+	@Override
+	public MappedDigraph snapshot() {
+		return this;
+	}
+	
+	// Unmap the file, and release the memory of the reverse index.  Afterwards,
+	// the graph's routines throw IllegalStateException, and its existing 
+	// iterators must not be used.  Does nothing if the graph is already closed.
+	
+	@Override
+	public void close() {
+		if (isClosed())
+			return;
+		if (weights != null)
+			weights.close();
+		weights = null;
+		super.close();
+	}
+	
+	//
+	
+	@Override
+	protected WeightedDigraph.Edge createEdge(long i, int to) {
+		float weight = (weights != null) ? weights.getFloat(i) : 0;
+		return WeightedDigraph.Edge.copyOf(to, weight);
+	}
+	
+	//
+	
+	private MappedDigraph(EdgeMultiples multiples, int vertexCapacity, 
+						  NativeBuffer offsets, NativeBuffer inDegrees,
+						  NativeBuffer targets, NativeBuffer weights) {
+		super(multiples);
+		setBuffers(vertexCapacity, offsets, inDegrees, targets);
+		this.weights = weights;
+	}
+	
+	private static boolean hasWeights(Digraph<?> graph) {
+		if (graph instanceof WeightedDigraph)
+			return true;
+		if (graph instanceof MappedDigraph)
+			return ((MappedDigraph) graph).hasWeights();
+		return false;
+	}
+	
+	// Helper function for writing the buffer to the channel if it does not
+	// have room for the specified number of bytes.
+	
+	private static void makeRoom(FileChannel channel, ByteBuffer buffer, int size) 
+			throws IOException {
+		if (buffer.remaining() >= size)
+			return;
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	private static final int HEADER_SIZE = 24;
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+	
+	private NativeBuffer weights;
+}
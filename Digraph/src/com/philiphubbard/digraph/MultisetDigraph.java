@@ -0,0 +1,258 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayList;
+
+// A directed graph that stores multiple edges between a pair of vertices as
+// one edge with a count, instead of as separate edges.  The edges from each
+// vertex are stored as runs: a sorted array of the distinct vertices pointed
+// to, and a parallel int array of counts, so a pair of vertices with 50 
+// edges between them takes eight bytes, and there are no per-edge objects.
+// This representation suits data like the coverage of k-mer overlaps in
+// sequencing, where the same edge is seen many times.
+//
+// Since each pair of vertices has at most one stored edge, the graph reports
+// EdgeMultiples.DISABLED, and getOutDegree() and getInDegree() count distinct
+// neighbors.  The number of edges between a pair is getMultiplicity(), and 
+// getOutCount() is the total count of the edges from a vertex.  Iterators 
+// visit each run once, and the iterator's getCount() reads the count without
+// creating an edge.  The freeze() routine keeps only the distinct edges.
+
+public class MultisetDigraph extends Digraph<MultisetDigraph.Edge> {
+	
+	// An edge with the number of times it occurs.  An edge returned by an 
+	// iterator is a copy, so changing it does not change the graph.
+	
+	public static class Edge extends Digraph.Edge {
+		public Edge(int to) {
+			super(to);
+			count = 1;
+		}
+		
+		public Edge(int to, int count) {
+			super(to);
+			this.count = count;
+		}
+		
+		public int getCount() {
+			return count;
+		}
+		
+		private int count;
+	}
+	
+	// Constructor.  Vertices can be added with indices in the range
+	// from 0 to vertexCapacity - 1, and the capacity grows as needed
+	// when edges involving larger indices are added.
+	
+	public MultisetDigraph(int vertexCapacity) {
+		super(vertexCapacity, EdgeMultiples.DISABLED, EdgeObjects.CREATED);
+		countColumn = addEdgeColumn(int.class);
+	}
+	
+	// Add the edge's count of edges from the specified vertex pointing to
+	// another vertex, adding to the count of the run if there is one.
+	// Increases the vertex capacity if either vertex is beyond it.
+	// Silently does nothing if either vertex is negative.
+	// Throws IllegalArgumentException if the count is not positive, or if
+	// the count of the run would exceed Integer.MAX_VALUE, in which case the
+	// run keeps its count rather than overflowing or saturating.
+	
+	public void addEdge(int from, Edge edge) throws IllegalArgumentException {
+		if (edge.getCount() <= 0)
+			throw new IllegalArgumentException("MultisetDigraph.addEdge() " +
+											   "count must be positive");
+		int count = edge.getCount();
+		int i = indexOf(from, edge.getTo());
+		if (i != NO_VERTEX) {
+			try {
+				count = Math.addExact(((int[]) getEdgeColumn(countColumn, from))[i], count);
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException("MultisetDigraph.addEdge() " +
+												   "count overflows");
+			}
+		}
+		else
+			i = insertEdge(from, edge);
+		if (i != NO_VERTEX)
+			((int[]) getEdgeColumnForWrite(countColumn, from))[i] = count;
+	}
+	
+	// Remove one edge from the specified vertex to the other vertex, which
+	// decrements the count of the run and removes the run when the count 
+	// reaches 0.  Silently does nothing if there is no such edge.
+	
+	@Override
+	public void removeEdge(int from, int to) {
+		int i = indexOf(from, to);
+		if (i == NO_VERTEX)
+			return;
+		int[] counts = (int[]) getEdgeColumnForWrite(countColumn, from);
+		if (counts[i] > 1)
+			counts[i]--;
+		else
+			super.removeEdge(from, to);
+	}
+	
+	// The count of the run at the specified position among the sorted
+	// runs from the specified vertex, which is in the range from 0 to
+	// getOutDegree(from) - 1.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public int countAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "MultisetDigraph.countAt()");
+		return ((int[]) getEdgeColumn(countColumn, from))[index];
+	}
+	
+	// The total count of the edges from the specified vertex.  Takes time 
+	// proportional to the number of runs.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public long getOutCount(int from) throws IndexOutOfBoundsException {
+		int outDegree = getOutDegree(from);
+		if (outDegree == 0)
+			return 0;
+		int[] counts = (int[]) getEdgeColumn(countColumn, from);
+		long result = 0;
+		for (int i = 0; i < outDegree; i++)
+			result += counts[i];
+		return result;
+	}
+	
+	// The number of edges from one vertex to another is the count of the run.
+	
+	@Override
+	protected int countEdges(Digraph<Edge> graph, int from, int to) {
+		int i = graph.indexOf(from, to);
+		if (i == NO_VERTEX)
+			return 0;
+		return ((int[]) graph.getEdgeColumn(countColumn, from))[i];
+	}
+	
+	// Create an edge pointing to the specified vertex, for the iterators.
+	
+	@Override
+	protected Edge createEdge(int to) {
+		return new Edge(to);
+	}
+	
+	@Override
+	protected Edge createEdge(Digraph<Edge> graph, int from, int index) {
+		return new Edge(graph.targetAt(from, index), 
+						((int[]) graph.getEdgeColumn(countColumn, from))[index]);
+	}
+	
+	// An iterator over the runs of edges pointing out from the specified 
+	// vertex.  It can be used in a loop like the following:
+	// "for (iterator.begin(); !iterator.done(); iterator.next())"
+	// with getVertex() or the returned edge giving the vertex pointed to and
+	// getCount() giving the count, so the loop need not allocate.
+	
+	public class AdjacencyIterator 
+		extends Digraph<MultisetDigraph.Edge>.AdjacencyIterator {
+		
+		@Override
+		public Edge begin() {
+			return super.begin();
+		}
+		
+		@Override
+		public Edge next() {
+			return super.next();
+		}
+		
+		// The count of the current run, without creating an edge object.
+		// Throws IllegalStateException if the iteration is done.
+		
+		public int getCount() throws IllegalStateException {
+			int index = getIndex();
+			if (index == NO_VERTEX)
+				throw new IllegalStateException("MultisetDigraph.AdjacencyIterator." + 
+												"getCount() iteration is done");
+			return countAt(getVertex(), index);
+		}
+
+		protected AdjacencyIterator(MultisetDigraph graph, int from) {
+			super(graph, from);
+		}
+	}
+	
+	// Create an iterator for the runs of edges out from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyIterator createAdjacencyIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("MultisetDigraph.createAdjacencyIterator() " +
+											    "vertex out of range");
+		return new AdjacencyIterator(this, from);
+	}
+	
+	// An iterator over the runs of edges pointing out from the specified 
+	// vertex, returning each run as an array of one edge with its count.
+	// As a cursor, its currentCount() is the count of the run.
+	
+	public class AdjacencyMultipleIterator 
+		extends Digraph<MultisetDigraph.Edge>.AdjacencyMultipleIterator {
+		
+		@Override
+		public ArrayList<Edge> begin() {
+			return super.begin();
+		}
+		
+		@Override
+		public ArrayList<Edge> next() {
+			return super.next();
+		}
+
+		// The count of the cursor's run, or 0 if the cursor is not on a run.
+		
+		@Override
+		public int currentCount() {
+			int to = currentTarget();
+			return (to == NO_VERTEX) ? 0 : getMultiplicity(from, to);
+		}
+
+		protected AdjacencyMultipleIterator(MultisetDigraph graph, int from) {
+			super(graph, from);
+			this.from = from;
+		}
+		
+		private int from;
+	}
+	
+	// Create an iterator for the runs of edges out from the specified vertex,
+	// returning each run in an array.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+			throws IndexOutOfBoundsException {
+		if ((from < 0) || (getVertexCapacity() <= from))
+			throw new IndexOutOfBoundsException("MultisetDigraph.createAdjacencyMultipleIterator() " +
+											    "vertex out of range");
+		return new AdjacencyMultipleIterator(this, from);
+	}
+	
+	private int countColumn;
+}
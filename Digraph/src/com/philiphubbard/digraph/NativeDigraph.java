@@ -0,0 +1,522 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+// An immutable directed graph whose edges are stored outside the Java heap, in
+// native memory that is either allocated (OffHeapDigraph) or mapped from a file
+// (MappedDigraph).  The representation is the compressed sparse row (CSR) form
+// of CompactDigraph, but with long offsets, so the number of edges can exceed 
+// the size of a Java array.  A subclass supplies the buffers with setBuffers(),
+// and creates the edge object for each index with edgeAt().  The memory is 
+// released when close() is called, after which the graph cannot be used.
+
+public abstract class NativeDigraph<E extends Digraph.Edge> 
+	extends Digraph<E> implements Closeable {
+	
+	// An iterator over the edges the pointing out from the specified vertex.
+	// It can be used in a loop like the following:
+	// "for (Edge e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	// The edges it returns are created on demand, so later changes to them
+	// do not affect the graph.
+	
+	public class AdjacencyIterator extends Digraph<E>.AdjacencyIterator {
+		
+		@Override
+		public E begin() {
+			current = offsets.getLong(from);
+			return currentEdge();
+		}
+		
+		@Override
+		public E next() {
+			if (current < end)
+				current++;
+			return currentEdge();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		// The position of the current edge among the sorted edges from the
+		// vertex, or NO_VERTEX if the iteration is done.
+		
+		@Override
+		public int getIndex() {
+			return (current < end) ? (int) (current - offsets.getLong(from)) : NO_VERTEX;
+		}
+		
+		protected AdjacencyIterator(NativeDigraph<E> graph, int from) {
+			super(graph, from);
+			this.from = from;
+			end = offsets.getLong(from + 1);
+			current = end;
+		}
+		
+		private E currentEdge() {
+			return (current < end) ? edgeAt(current) : null;
+		}
+		
+		private int from;
+		private long current;
+		private long end;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	// Throws IllegalStateException if the graph has been closed.
+	
+	public AdjacencyIterator createAdjacencyIterator(int from) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkVertex(from, "NativeDigraph.createAdjacencyIterator()");
+		return new AdjacencyIterator(this, from);
+	}
+	
+	// An iterator over the edges the pointing out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// It can be used in a loop like the following:
+	// "for (ArrayList<Edge> e = iterator.begin(); !iterator.done(); e = iterator.next())"
+	
+	public class AdjacencyMultipleIterator 
+		extends Digraph<E>.AdjacencyMultipleIterator {
+		
+		@Override
+		public ArrayList<E> begin() {
+			current = offsets.getLong(from);
+			return matchingEdges();
+		}
+		
+		@Override
+		public ArrayList<E> next() {
+			if (current < end)
+				current++;
+			return matchingEdges();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		protected AdjacencyMultipleIterator(NativeDigraph<E> graph, int from) {
+			super(graph, from);
+			this.from = from;
+			end = offsets.getLong(from + 1);
+			current = end;
+		}
+		
+		// Return the edges matching the current edge (i.e., pointing to the
+		// same vertex), leaving the current edge as the last of them.
+		
+		private ArrayList<E> matchingEdges() {
+			if (current >= end)
+				return null;
+			int to = targets.getInt(current);
+			ArrayList<E> result = new ArrayList<E>();
+			result.add(edgeAt(current));
+			while ((current + 1 < end) && (targets.getInt(current + 1) == to))
+				result.add(edgeAt(++current));
+			return result;
+		}
+		
+		private int from;
+		private long current;
+		private long end;
+	}
+	
+	// Create an iterator for the edges out from the specified vertex,
+	// returning multiple edges to the same destination vertex in an array.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	// Throws IllegalStateException if the graph has been closed.
+	
+	public AdjacencyMultipleIterator createAdjacencyMultipleIterator(int from) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkVertex(from, "NativeDigraph.createAdjacencyMultipleIterator()");
+		return new AdjacencyMultipleIterator(this, from);
+	}
+	
+	// An iterator over the vertices with edges pointing in to the specified
+	// vertex, in increasing order, with a vertex repeated for edge multiples.
+	// It can be used in a loop like the following:
+	// "for (int v = iterator.begin(); !iterator.done(); v = iterator.next())"
+	// Returns NO_VERTEX when the iteration is done.
+	
+	public class InAdjacencyIterator extends Digraph<E>.InAdjacencyIterator {
+		
+		@Override
+		public int begin() {
+			current = inOffsets.getLong(to);
+			return currentVertex();
+		}
+		
+		@Override
+		public int next() {
+			if (current < end)
+				current++;
+			return currentVertex();
+		}
+		
+		@Override
+		public boolean done() {
+			return (current >= end);
+		}
+		
+		protected InAdjacencyIterator(NativeDigraph<E> graph, int to) {
+			super(graph, to);
+			this.to = to;
+			end = inOffsets.getLong(to + 1);
+			current = end;
+		}
+		
+		private int currentVertex() {
+			return (current < end) ? sources.getInt(current) : NO_VERTEX;
+		}
+		
+		private int to;
+		private long current;
+		private long end;
+	}
+	
+	// Create an iterator for the vertices with edges in to the specified
+	// vertex.  Enables the reverse index if it is not already enabled.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	// Throws IllegalStateException if the graph has been closed.
+	
+	@Override
+	public InAdjacencyIterator createInAdjacencyIterator(int to) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkVertex(to, "NativeDigraph.createInAdjacencyIterator()");
+		enableReverseIndex();
+		return new InAdjacencyIterator(this, to);
+	}
+	
+	// Build the index of the edges pointing in to each vertex, in allocated
+	// native memory (even if the edges are mapped from a file).  Does nothing 
+	// if the index exists.
+	// Throws IllegalStateException if the graph has been closed.
+	
+	@Override
+	public void enableReverseIndex() throws IllegalStateException {
+		checkOpen("NativeDigraph.enableReverseIndex()");
+		if (sources != null)
+			return;
+		
+		NativeBuffer starts = new NativeBuffer(8L * (vertexCapacity + 1));
+		long[] next = new long[vertexCapacity];
+		long edgeCount = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			starts.putLong(v, edgeCount);
+			next[v] = edgeCount;
+			edgeCount += inDegrees.getInt(v);
+		}
+		starts.putLong(vertexCapacity, edgeCount);
+		
+		// Visiting the vertices in increasing order keeps each 
+		// vertex's sources sorted.
+		
+		NativeBuffer s = new NativeBuffer(4L * edgeCount);
+		for (int v = 0; v < vertexCapacity; v++) {
+			long end = offsets.getLong(v + 1);
+			for (long i = offsets.getLong(v); i < end; i++)
+				s.putInt(next[targets.getInt(i)]++, v);
+		}
+		
+		inOffsets = starts;
+		sources = s;
+	}
+	
+	@Override
+	public boolean hasReverseIndex() {
+		return (sources != null);
+	}
+	
+	@Override
+	public int getVertexCapacity() {
+		return vertexCapacity;
+	}
+	
+	// The total number of edges in the graph.
+	// Throws IllegalStateException if the graph has been closed.
+	
+	public long getEdgeCount() throws IllegalStateException {
+		checkOpen("NativeDigraph.getEdgeCount()");
+		return offsets.getLong(vertexCapacity);
+	}
+	
+	@Override
+	public int getOutDegree(int from) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkVertex(from, "NativeDigraph.outDegree()");
+		return (int) (offsets.getLong(from + 1) - offsets.getLong(from));
+	}
+	
+	@Override
+	public int targetAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "NativeDigraph.targetAt()");
+		return targets.getInt(offsets.getLong(from) + index);
+	}
+	
+	@Override
+	public int getInDegree(int to) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkVertex(to, "NativeDigraph.inDegree()");
+		return inDegrees.getInt(to);
+	}
+	
+	@Override
+	public boolean isSink(int v) {
+		return (getOutDegree(v) == 0);
+	}
+	
+	// Release the native memory, or unmap the file.  Afterwards, the graph's
+	// routines throw IllegalStateException, and its existing iterators must
+	// not be used.  Does nothing if the graph is already closed.
+	
+	public void close() {
+		if (offsets == null)
+			return;
+		offsets.close();
+		targets.close();
+		inDegrees.close();
+		if (sources != null) {
+			inOffsets.close();
+			sources.close();
+		}
+		offsets = null;
+		targets = null;
+		inDegrees = null;
+		inOffsets = null;
+		sources = null;
+	}
+	
+	// Returns true if the graph has been closed.
+	
+	public boolean isClosed() {
+		return (offsets == null);
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdge(int from, int to) {
+		throw new UnsupportedOperationException("NativeDigraph.removeEdge() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void removeEdgesFrom(int from) {
+		throw new UnsupportedOperationException("NativeDigraph.removeEdgesFrom() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public int removeEdgesIf(EdgePredicate predicate) {
+		throw new UnsupportedOperationException("NativeDigraph.removeEdgesIf() " +
+												"graph is immutable");
+	}
+	
+	// The graph is immutable, so this routine always throws 
+	// UnsupportedOperationException.
+	
+	@Override
+	public void ensureCapacity(int vertexCapacity) {
+		throw new UnsupportedOperationException("NativeDigraph.ensureCapacity() " +
+												"graph is immutable");
+	}
+	
+	// A block of native memory, which can be larger than the maximum size of
+	// one buffer.  It is made of direct buffers of CHUNK_SIZE bytes each (the
+	// last may be smaller), addressed by the index of an int, float or long 
+	// element.  The chunk size is a multiple of 8, so no element spans two 
+	// chunks.  The memory is either allocated, or mapped from a file.
+	
+	static class NativeBuffer implements Closeable {
+		
+		// Allocate the specified number of bytes, initially zero.
+		
+		NativeBuffer(long size) {
+			chunks = new ByteBuffer[chunkCount(size)];
+			for (int i = 0; i < chunks.length; i++)
+				chunks[i] = ByteBuffer.allocateDirect(chunkSize(size, i)).order(ByteOrder.nativeOrder());
+		}
+		
+		// Map the specified number of bytes of a file, starting at the specified
+		// position, for reading with the specified byte order.
+		
+		NativeBuffer(FileChannel channel, long position, long size, ByteOrder order) 
+				throws IOException {
+			chunks = new ByteBuffer[chunkCount(size)];
+			for (int i = 0; i < chunks.length; i++)
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, 
+										position + (long) i * CHUNK_SIZE, 
+										chunkSize(size, i)).order(order);
+		}
+		
+		int getInt(long index) {
+			long offset = index << 2;
+			return chunks[(int) (offset >>> CHUNK_BITS)].getInt((int) (offset & CHUNK_MASK));
+		}
+		
+		void putInt(long index, int value) {
+			long offset = index << 2;
+			chunks[(int) (offset >>> CHUNK_BITS)].putInt((int) (offset & CHUNK_MASK), value);
+		}
+		
+		float getFloat(long index) {
+			long offset = index << 2;
+			return chunks[(int) (offset >>> CHUNK_BITS)].getFloat((int) (offset & CHUNK_MASK));
+		}
+		
+		long getLong(long index) {
+			long offset = index << 3;
+			return chunks[(int) (offset >>> CHUNK_BITS)].getLong((int) (offset & CHUNK_MASK));
+		}
+		
+		void putLong(long index, long value) {
+			long offset = index << 3;
+			chunks[(int) (offset >>> CHUNK_BITS)].putLong((int) (offset & CHUNK_MASK), value);
+		}
+		
+		// Release the memory without waiting for the garbage collector, if
+		// the platform allows it.
+		
+		public void close() {
+			for (ByteBuffer chunk : chunks)
+				release(chunk);
+			chunks = new ByteBuffer[0];
+		}
+		
+		private static int chunkCount(long size) {
+			return (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		}
+		
+		private static int chunkSize(long size, int i) {
+			return (int) Math.min(CHUNK_SIZE, size - (long) i * CHUNK_SIZE);
+		}
+		
+		private ByteBuffer[] chunks;
+	}
+	
+	//
+	
+	protected NativeDigraph(EdgeMultiples multiples) {
+		super(multiples);
+	}
+	
+	// Set the buffers holding the graph: the vertexCapacity + 1 long offsets 
+	// of each vertex's first edge, the int in degree of each vertex, and the 
+	// int target of each edge.  A subclass calls this routine once, from its
+	// constructor.
+	
+	protected void setBuffers(int vertexCapacity, NativeBuffer offsets, 
+							  NativeBuffer inDegrees, NativeBuffer targets) {
+		this.vertexCapacity = vertexCapacity;
+		this.offsets = offsets;
+		this.inDegrees = inDegrees;
+		this.targets = targets;
+	}
+	
+	// Create the edge object for the edge at the specified index, which points
+	// to the specified vertex.
+	
+	protected abstract E createEdge(long i, int to);
+	
+	@Override
+	protected void addEdge(int from, E newEdge) {
+		throw new UnsupportedOperationException("NativeDigraph.addEdge() " +
+												"graph is immutable");
+	}
+	
+	protected void checkOpen(String function) throws IllegalStateException {
+		if (offsets == null)
+			throw new IllegalStateException(function + " graph is closed");
+	}
+	
+	protected void checkVertex(int v, String function) 
+			throws IndexOutOfBoundsException, IllegalStateException {
+		checkOpen(function);
+		if ((v < 0) || (vertexCapacity <= v))
+			throw new IndexOutOfBoundsException(function + " vertex out of range");
+	}
+	
+	private E edgeAt(long i) {
+		return createEdge(i, targets.getInt(i));
+	}
+	
+	// Helper function for releasing the memory of a direct buffer immediately.
+	// It uses sun.misc.Unsafe.invokeCleaner(), which exists on Java 9 and later.
+	// Without it, the memory is released when the buffer is garbage collected.
+	
+	static void release(ByteBuffer buffer) {
+		if ((invokeCleaner == null) || (!buffer.isDirect()))
+			return;
+		try {
+			invokeCleaner.invoke(unsafe, buffer);
+		} catch (Exception e) {
+			// Fall back on the garbage collector.
+		}
+	}
+	
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	private static Object unsafe;
+	private static Method invokeCleaner;
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (Exception e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+	}
+	
+	private int vertexCapacity;
+	private NativeBuffer offsets;
+	private NativeBuffer targets;
+	private NativeBuffer inDegrees;
+	private NativeBuffer inOffsets;
+	private NativeBuffer sources;
+}
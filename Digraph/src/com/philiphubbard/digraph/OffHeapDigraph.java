@@ -0,0 +1,79 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+// An immutable directed graph whose edges are stored outside the Java heap, in
+// direct buffers of native memory.  The representation is the compressed sparse
+// row (CSR) form of CompactDigraph, but with long offsets, so the number of edges
+// can exceed the size of a Java array.  Since the garbage collector does not scan
+// native memory, its pauses do not grow with the size of the graph.  The memory
+// is released when close() is called, after which the graph cannot be used.
+// The iterators and accessors are those of NativeDigraph.
+
+public class OffHeapDigraph extends NativeDigraph<BasicDigraph.Edge> {
+	
+	// Constructor, which copies the edges currently in the specified graph to
+	// native memory.  Later changes to that graph do not affect this one.
+	
+	public OffHeapDigraph(Digraph<?> graph) {
+		super(graph.getEdgeMultiples());
+		
+		int vertexCapacity = graph.getVertexCapacity();
+		NativeBuffer offsets = new NativeBuffer(8L * (vertexCapacity + 1));
+		long edgeCount = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			offsets.putLong(v, edgeCount);
+			edgeCount += graph.getOutDegree(v);
+		}
+		offsets.putLong(vertexCapacity, edgeCount);
+		
+		NativeBuffer targets = new NativeBuffer(4L * edgeCount);
+		NativeBuffer inDegrees = new NativeBuffer(4L * vertexCapacity);
+		long i = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			Digraph<?>.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (Digraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+				int to = e.getTo();
+				targets.putInt(i++, to);
+				inDegrees.putInt(to, inDegrees.getInt(to) + 1);
+			}
+		}
+		
+		setBuffers(vertexCapacity, offsets, inDegrees, targets);
+	}
+	
+	// The graph is immutable, so it is its own snapshot.  Closing the graph
+	// also closes the snapshot.
+	
+	@Override
+	public OffHeapDigraph snapshot() {
+		return this;
+	}
+	
+	//
+	
+	@Override
+	protected BasicDigraph.Edge createEdge(long i, int to) {
+		return new BasicDigraph.Edge(to);
+	}
+}
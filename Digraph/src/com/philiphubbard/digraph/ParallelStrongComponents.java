@@ -0,0 +1,686 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Determine the strong components of a digraph using the processors in 
+// parallel, on the common ForkJoin pool.  The result is the same as for the
+// StrongComponents base class, except that getComponentId() numbers the 
+// components in order of a vertex chosen from each, not in reverse 
+// topological order.
+//
+// The implementation follows Hong, Rodia and Olukotun ("On Fast Parallel 
+// Detection of Strongly Connected Components (SCC) in Small-World Graphs", 
+// 2013).  It first trims the vertices that are trivial components, with no 
+// edges in or no edges out, and then, repeatedly, the vertices left with no
+// edges in or out from other untrimmed vertices.  It also trims the pairs of
+// vertices that form a cycle with no other edges in (or out).  In many
+// graphs, most vertices are trimmed.  The remaining vertices are split into
+// their weakly connected components, which contain whole strong components,
+// and each is divided with the forward-backward algorithm of Fleischer, 
+// Hendrickson and Pinar ("On Identifying Strongly Connected Components in 
+// Parallel", 2000): the vertices reachable both forward and backward from a
+// pivot vertex are its component, and each of the vertices reachable only 
+// forward, only backward and neither is a set of whole components, which is
+// divided in the same way.  A large set of vertices reachable neither way 
+// is split into its weakly connected components again, so many small 
+// components that trimming misses are divided at once instead of one at a 
+// time.  The sets are divided in rounds, with all the sets in a round 
+// divided in parallel, so deep graphs do not deepen the thread's stack.  
+// Each search from a pivot visits its vertices in levels, with a level of
+// many vertices divided among parallel tasks.
+//
+// The searches backward use an index of the edges pointing in to each 
+// vertex, which is built internally so the graph is not changed.  The graph
+// must not change while the components are computed.
+
+public class ParallelStrongComponents <E extends Digraph.Edge> extends StrongComponents<E> {
+	
+	// Constructor, which computes the components.
+	
+	public ParallelStrongComponents(Digraph<E> graph) {
+		this(graph, new Search(graph));
+	}
+	
+	//
+	
+	private ParallelStrongComponents(Digraph<E> graph, Search search) {
+		super(graph, search.run(), search.componentCount);
+	}
+	
+	// The state of the computation, shared by the parallel tasks.  Each vertex
+	// not yet in a component has a color, identifying the set of vertices it 
+	// is in, and a vertex is moved from one set to another with a 
+	// compare-and-set of its color, so only one task moves it.
+	
+	private static class Search {
+		
+		Search(Digraph<?> graph) {
+			this.graph = graph;
+			vertexCapacity = graph.getVertexCapacity();
+			colors = new AtomicIntegerArray(vertexCapacity);
+			id = new int[vertexCapacity];
+			nextColor = new AtomicInteger(INITIAL_COLOR + 1);
+		}
+		
+		// Computes the component of each vertex, and returns them numbered 
+		// from 0 to componentCount - 1.
+		
+		int[] run() {
+			buildSources();
+			trim();
+			
+			int remaining = 0;
+			for (int v = 0; v < vertexCapacity; v++)
+				if (colors.get(v) == INITIAL_COLOR)
+					remaining++;
+			ArrayList<Partition> partitions = new ArrayList<Partition>();
+			if (remaining > 0) {
+				int[] members = new int[remaining];
+				int n = 0;
+				for (int v = 0; v < vertexCapacity; v++)
+					if (colors.get(v) == INITIAL_COLOR)
+						members[n++] = v;
+				parents = new AtomicIntegerArray(vertexCapacity);
+				groups = new int[vertexCapacity];
+				splitWeak(members, INITIAL_COLOR, partitions);
+			}
+			
+			while (!partitions.isEmpty()) {
+				Partition[] round = partitions.toArray(new Partition[partitions.size()]);
+				ForkJoinPool.commonPool().invoke(new RoundTask(round, 0, round.length));
+				partitions.clear();
+				for (Partition partition : round)
+					partitions.addAll(partition.parts);
+			}
+			
+			// Each component is identified by one of its vertices until now.
+			
+			int[] numbers = new int[vertexCapacity];
+			for (int v = 0; v < vertexCapacity; v++)
+				if (id[v] == v)
+					numbers[v] = componentCount++;
+			for (int v = 0; v < vertexCapacity; v++)
+				id[v] = numbers[id[v]];
+			return id;
+		}
+		
+		// Builds the index of the vertices with edges pointing in to each 
+		// vertex, as one array with a range for each vertex.  The order of 
+		// the vertices in a range does not matter.
+		
+		private void buildSources() {
+			sourceOffsets = new int[vertexCapacity + 1];
+			for (int v = 0; v < vertexCapacity; v++)
+				sourceOffsets[v + 1] = sourceOffsets[v] + graph.getInDegree(v);
+			sources = new int[sourceOffsets[vertexCapacity]];
+			AtomicIntegerArray next = new AtomicIntegerArray(Arrays.copyOf(sourceOffsets, vertexCapacity));
+			ForkJoinPool.commonPool().invoke(new SourcesTask(next, 0, vertexCapacity));
+		}
+		
+		// Puts each vertex with no edges in or no edges out in its own 
+		// component, and then the vertices left with no edges in or out 
+		// from vertices not yet in components, and so on.  Then puts each
+		// pair of vertices forming a cycle with no other edges in or out in
+		// its own component, and trims the vertices that exposes.
+		
+		private void trim() {
+			inCounts = new AtomicIntegerArray(vertexCapacity);
+			outCounts = new AtomicIntegerArray(vertexCapacity);
+			int[] frontier = new int[vertexCapacity];
+			int size = 0;
+			for (int v = 0; v < vertexCapacity; v++) {
+				int in = sourceOffsets[v + 1] - sourceOffsets[v];
+				int out = graph.getOutDegree(v);
+				inCounts.set(v, in);
+				outCounts.set(v, out);
+				if ((in == 0) || (out == 0)) {
+					colors.set(v, DONE);
+					id[v] = v;
+					frontier[size++] = v;
+				}
+			}
+			int[] next = new int[vertexCapacity];
+			new Level(TRIM, frontier, size, next).run();
+			
+			AtomicInteger pairCount = new AtomicInteger();
+			ForkJoinPool.commonPool().invoke(new PairTask(frontier, pairCount, 0, vertexCapacity));
+			new Level(TRIM, frontier, pairCount.get(), next).run();
+			
+			inCounts = null;
+			outCounts = null;
+		}
+		
+		// Splits the specified vertices, all with the specified color, into 
+		// their weakly connected components, using a union-find structure 
+		// whose sets are joined with compare-and-set.  Gives each component
+		// a new color, unless there is only one, and adds it to the list.
+		
+		private void splitWeak(int[] members, int color, ArrayList<Partition> partitions) {
+			for (int v : members)
+				parents.set(v, v);
+			new UnionTask(members, color, 0, members.length).invoke();
+			
+			// The groups array, indexed by the root of each set, holds the 
+			// set's number plus one while the sets are numbered.  The roots
+			// are among the members, so other partitions do not share them.
+			
+			int[] roots = new int[members.length];
+			int groupCount = 0;
+			for (int i = 0; i < members.length; i++) {
+				roots[i] = find(members[i]);
+				if (groups[roots[i]] == 0)
+					groups[roots[i]] = ++groupCount;
+			}
+			if (groupCount == 1) {
+				groups[roots[0]] = 0;
+				partitions.add(new Partition(members, color));
+				return;
+			}
+			
+			int[] sizes = new int[groupCount];
+			for (int i = 0; i < members.length; i++)
+				sizes[groups[roots[i]] - 1]++;
+			int[][] groupMembers = new int[groupCount][];
+			for (int g = 0; g < groupCount; g++)
+				groupMembers[g] = new int[sizes[g]];
+			Arrays.fill(sizes, 0);
+			for (int i = 0; i < members.length; i++) {
+				int g = groups[roots[i]] - 1;
+				groupMembers[g][sizes[g]++] = members[i];
+			}
+			for (int i = 0; i < members.length; i++)
+				groups[roots[i]] = 0;
+			
+			for (int g = 0; g < groupCount; g++) {
+				int groupColor = nextColor.getAndIncrement();
+				for (int v : groupMembers[g])
+					colors.set(v, groupColor);
+				partitions.add(new Partition(groupMembers[g], groupColor));
+			}
+		}
+		
+		private int find(int v) {
+			int p;
+			while ((p = parents.get(v)) != v) {
+				int grandparent = parents.get(p);
+				if (grandparent != p)
+					parents.compareAndSet(v, p, grandparent);
+				v = p;
+			}
+			return v;
+		}
+		
+		// Joins the sets of the two vertices, always making the larger root 
+		// point to the smaller, so no cycles form.
+		
+		private void unite(int a, int b) {
+			while (true) {
+				a = find(a);
+				b = find(b);
+				if (a == b)
+					return;
+				if (a < b) {
+					int t = a;
+					a = b;
+					b = t;
+				}
+				if (parents.compareAndSet(a, a, b))
+					return;
+			}
+		}
+		
+		// Returns the one vertex not yet in a component that has an edge to 
+		// (or from, if in is false) the specified vertex, or NO_VERTEX if 
+		// there is not exactly one such edge.
+		
+		private int onlyNeighbor(int v, boolean in, Neighbors neighbors) {
+			if (in) {
+				if (inCounts.get(v) != 1)
+					return Digraph.NO_VERTEX;
+				for (int j = sourceOffsets[v]; j < sourceOffsets[v + 1]; j++)
+					if (colors.get(sources[j]) != DONE)
+						return sources[j];
+			}
+			else {
+				if (outCounts.get(v) != 1)
+					return Digraph.NO_VERTEX;
+				int n = neighbors.load(v);
+				for (int j = 0; j < n; j++)
+					if (colors.get(neighbors.buffer[j]) != DONE)
+						return neighbors.buffer[j];
+			}
+			return Digraph.NO_VERTEX;
+		}
+		
+		// A buffer for the vertices pointed to by the edges from one vertex,
+		// for use by one task.
+		
+		private class Neighbors {
+			
+			// Loads the vertices for the specified vertex, and returns how
+			// many there are.
+			
+			int load(int v) {
+				int n = graph.getNeighbors(v, buffer);
+				if (n > buffer.length) {
+					buffer = new int[Math.max(n, 2 * buffer.length)];
+					graph.getNeighbors(v, buffer);
+				}
+				return n;
+			}
+			
+			int[] buffer = new int[16];
+		}
+		
+		// A set of vertices that contains whole components, all with the 
+		// same color.
+		
+		private class Partition {
+			
+			Partition(int[] members, int color) {
+				this.members = members;
+				this.color = color;
+			}
+			
+			// Finds the component of a pivot vertex, and divides the rest of 
+			// the vertices into the parts reachable from the pivot, reaching
+			// the pivot, and neither.
+			
+			void divide() {
+				int pivot = members[members.length / 2];
+				id[pivot] = pivot;
+				if (members.length == 1) {
+					colors.set(pivot, DONE);
+					return;
+				}
+				
+				int forwardColor = nextColor.getAndIncrement();
+				int backwardColor = nextColor.getAndIncrement();
+				int[] frontier = new int[members.length];
+				int[] next = new int[members.length];
+				
+				colors.set(pivot, forwardColor);
+				frontier[0] = pivot;
+				Level forward = new Level(FORWARD, frontier, 1, next);
+				forward.color = color;
+				forward.forwardColor = forwardColor;
+				forward.run();
+				
+				colors.set(pivot, DONE);
+				frontier[0] = pivot;
+				Level backward = new Level(BACKWARD, frontier, 1, next);
+				backward.color = color;
+				backward.forwardColor = forwardColor;
+				backward.backwardColor = backwardColor;
+				backward.pivot = pivot;
+				backward.run();
+				
+				int forwardCount = 0;
+				int backwardCount = 0;
+				int otherCount = 0;
+				for (int v : members) {
+					int c = colors.get(v);
+					if (c == forwardColor)
+						forwardCount++;
+					else if (c == backwardColor)
+						backwardCount++;
+					else if (c == color)
+						otherCount++;
+				}
+				int[] forwardMembers = new int[forwardCount];
+				int[] backwardMembers = new int[backwardCount];
+				int[] otherMembers = new int[otherCount];
+				forwardCount = backwardCount = otherCount = 0;
+				for (int v : members) {
+					int c = colors.get(v);
+					if (c == forwardColor)
+						forwardMembers[forwardCount++] = v;
+					else if (c == backwardColor)
+						backwardMembers[backwardCount++] = v;
+					else if (c == color)
+						otherMembers[otherCount++] = v;
+				}
+				if (forwardCount > 0)
+					parts.add(new Partition(forwardMembers, forwardColor));
+				if (backwardCount > 0)
+					parts.add(new Partition(backwardMembers, backwardColor));
+				if (otherCount > VERTICES_PER_TASK)
+					splitWeak(otherMembers, color, parts);
+				else if (otherCount > 0)
+					parts.add(new Partition(otherMembers, color));
+			}
+			
+			final int[] members;
+			final int color;
+			final ArrayList<Partition> parts = new ArrayList<Partition>();
+		}
+		
+		private class RoundTask extends RecursiveAction {
+			
+			RoundTask(Partition[] partitions, int begin, int end) {
+				this.partitions = partitions;
+				this.begin = begin;
+				this.end = end;
+			}
+			
+			@Override
+			protected void compute() {
+				if (end - begin > 1) {
+					int middle = (begin + end) >>> 1;
+					invokeAll(new RoundTask(partitions, begin, middle),
+							  new RoundTask(partitions, middle, end));
+					return;
+				}
+				partitions[begin].divide();
+			}
+			
+			private Partition[] partitions;
+			private int begin;
+			private int end;
+			
+			private static final long serialVersionUID = 1L;
+		}
+		
+		// A breadth-first search, one level at a time.  Each vertex found is
+		// moved to a new set when it is added to the next level, so it is 
+		// added only once.
+		
+		private class Level {
+			
+			Level(int mode, int[] frontier, int size, int[] next) {
+				this.mode = mode;
+				this.frontier = frontier;
+				this.size = size;
+				this.next = next;
+				nextSize = new AtomicInteger();
+			}
+			
+			void run() {
+				while (size > 0) {
+					if (size > VERTICES_PER_TASK)
+						new LevelTask(this, 0, size).invoke();
+					else
+						visit(0, size);
+					int[] t = frontier;
+					frontier = next;
+					next = t;
+					size = nextSize.getAndSet(0);
+				}
+			}
+			
+			// Visits the vertices in the specified range of the level, and 
+			// adds the vertices found to the next level.
+			
+			void visit(int begin, int end) {
+				int[] found = new int[16];
+				int foundCount = 0;
+				Neighbors neighbors = new Neighbors();
+				for (int i = begin; i < end; i++) {
+					int u = frontier[i];
+					if (mode != BACKWARD) {
+						int n = neighbors.load(u);
+						for (int j = 0; j < n; j++) {
+							int w = neighbors.buffer[j];
+							if (mode == FORWARD) {
+								if (!colors.compareAndSet(w, color, forwardColor))
+									continue;
+							}
+							else if ((inCounts.decrementAndGet(w) != 0) || 
+									 (!colors.compareAndSet(w, INITIAL_COLOR, DONE))) {
+								continue;
+							}
+							else {
+								id[w] = w;
+							}
+							if (foundCount == found.length)
+								found = Arrays.copyOf(found, 2 * found.length);
+							found[foundCount++] = w;
+						}
+					}
+					if (mode != FORWARD) {
+						for (int j = sourceOffsets[u]; j < sourceOffsets[u + 1]; j++) {
+							int w = sources[j];
+							if (mode == BACKWARD) {
+								if (colors.compareAndSet(w, forwardColor, DONE))
+									id[w] = pivot;
+								else if (!colors.compareAndSet(w, color, backwardColor))
+									continue;
+							}
+							else if ((outCounts.decrementAndGet(w) != 0) || 
+									 (!colors.compareAndSet(w, INITIAL_COLOR, DONE))) {
+								continue;
+							}
+							else {
+								id[w] = w;
+							}
+							if (foundCount == found.length)
+								found = Arrays.copyOf(found, 2 * found.length);
+							found[foundCount++] = w;
+						}
+					}
+				}
+				int at = nextSize.getAndAdd(foundCount);
+				System.arraycopy(found, 0, next, at, foundCount);
+			}
+			
+			int mode;
+			int[] frontier;
+			int size;
+			int[] next;
+			AtomicInteger nextSize;
+			
+			// The color of the vertices that can be found, the colors for the
+			// vertices found forward and backward, and the pivot vertex.
+			
+			int color;
+			int forwardColor;
+			int backwardColor;
+			int pivot;
+		}
+		
+		private class LevelTask extends RecursiveAction {
+			
+			LevelTask(Level level, int begin, int end) {
+				this.level = level;
+				this.begin = begin;
+				this.end = end;
+			}
+			
+			@Override
+			protected void compute() {
+				if (end - begin > VERTICES_PER_TASK) {
+					int middle = (begin + end) >>> 1;
+					invokeAll(new LevelTask(level, begin, middle),
+							  new LevelTask(level, middle, end));
+					return;
+				}
+				level.visit(begin, end);
+			}
+			
+			private Level level;
+			private int begin;
+			private int end;
+			
+			private static final long serialVersionUID = 1L;
+		}
+		
+		// Finds the pairs of vertices not yet in components that form a cycle 
+		// with no other edges in to it, or no other edges out from it, and puts 
+		// each pair in its own component.  The vertex with the smaller index 
+		// claims the pair, and adds both vertices to the found array.
+		
+		private class PairTask extends RecursiveAction {
+			
+			PairTask(int[] found, AtomicInteger foundCount, int begin, int end) {
+				this.found = found;
+				this.foundCount = foundCount;
+				this.begin = begin;
+				this.end = end;
+			}
+			
+			@Override
+			protected void compute() {
+				if (end - begin > VERTICES_PER_TASK) {
+					int middle = (begin + end) >>> 1;
+					invokeAll(new PairTask(found, foundCount, begin, middle),
+							  new PairTask(found, foundCount, middle, end));
+					return;
+				}
+				Neighbors neighbors = new Neighbors();
+				for (int v = begin; v < end; v++) {
+					if (colors.get(v) != INITIAL_COLOR)
+						continue;
+					for (int k = 0; k < 2; k++) {
+						boolean in = (k == 0);
+						int w = onlyNeighbor(v, in, neighbors);
+						if ((w <= v) || (onlyNeighbor(w, in, neighbors) != v))
+							continue;
+						if (!colors.compareAndSet(v, INITIAL_COLOR, DONE))
+							break;
+						colors.set(w, DONE);
+						id[v] = id[w] = v;
+						int at = foundCount.getAndAdd(2);
+						found[at] = v;
+						found[at + 1] = w;
+						break;
+					}
+				}
+			}
+			
+			private int[] found;
+			private AtomicInteger foundCount;
+			private int begin;
+			private int end;
+			
+			private static final long serialVersionUID = 1L;
+		}
+		
+		// Joins the sets of the members that have edges between them.
+		
+		private class UnionTask extends RecursiveAction {
+			
+			UnionTask(int[] members, int color, int begin, int end) {
+				this.members = members;
+				this.color = color;
+				this.begin = begin;
+				this.end = end;
+			}
+			
+			@Override
+			protected void compute() {
+				if (end - begin > VERTICES_PER_TASK) {
+					int middle = (begin + end) >>> 1;
+					invokeAll(new UnionTask(members, color, begin, middle),
+							  new UnionTask(members, color, middle, end));
+					return;
+				}
+				Neighbors neighbors = new Neighbors();
+				for (int i = begin; i < end; i++) {
+					int v = members[i];
+					int n = neighbors.load(v);
+					for (int j = 0; j < n; j++) {
+						int w = neighbors.buffer[j];
+						if (colors.get(w) == color)
+							unite(v, w);
+					}
+				}
+			}
+			
+			private int[] members;
+			private int color;
+			private int begin;
+			private int end;
+			
+			private static final long serialVersionUID = 1L;
+		}
+		
+		private class SourcesTask extends RecursiveAction {
+			
+			SourcesTask(AtomicIntegerArray next, int begin, int end) {
+				this.next = next;
+				this.begin = begin;
+				this.end = end;
+			}
+			
+			@Override
+			protected void compute() {
+				if (end - begin > VERTICES_PER_TASK) {
+					int middle = (begin + end) >>> 1;
+					invokeAll(new SourcesTask(next, begin, middle),
+							  new SourcesTask(next, middle, end));
+					return;
+				}
+				Neighbors neighbors = new Neighbors();
+				for (int v = begin; v < end; v++) {
+					int n = neighbors.load(v);
+					for (int j = 0; j < n; j++)
+						sources[next.getAndIncrement(neighbors.buffer[j])] = v;
+				}
+			}
+			
+			private AtomicIntegerArray next;
+			private int begin;
+			private int end;
+			
+			private static final long serialVersionUID = 1L;
+		}
+		
+		private Digraph<?> graph;
+		private int vertexCapacity;
+		private AtomicIntegerArray colors;
+		private int[] id;
+		private int componentCount;
+		private AtomicInteger nextColor;
+		
+		private int[] sourceOffsets;
+		private int[] sources;
+		
+		// The numbers of edges in to and out from each vertex from vertices 
+		// not yet trimmed.
+		
+		private AtomicIntegerArray inCounts;
+		private AtomicIntegerArray outCounts;
+		
+		// The union-find structure for splitting sets into weakly connected 
+		// components, and the numbers of the sets while splitting.
+		
+		private AtomicIntegerArray parents;
+		private int[] groups;
+	}
+	
+	private static final int DONE = -1;
+	private static final int INITIAL_COLOR = 0;
+	
+	private static final int TRIM = 0;
+	private static final int FORWARD = 1;
+	private static final int BACKWARD = 2;
+	
+	private static final int VERTICES_PER_TASK = 1024;
+}
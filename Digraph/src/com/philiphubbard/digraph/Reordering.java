@@ -0,0 +1,224 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Arrays;
+
+// The result of relabeling the vertices of a graph to improve the locality
+// of traversals, from routines like BasicDigraph.reorder(): the relabeled 
+// graph, the forward map from each original vertex to its new vertex, and
+// the inverse map from each new vertex to its original vertex.  When vertex
+// indices come from something like hashing, the neighbors of a vertex are
+// scattered through the graph's arrays, and a traversal touches a new cache
+// line or page for almost every edge.  After relabeling with one of the
+// orderings, neighbors tend to have nearby indices.
+
+public class Reordering<G extends Digraph<?>> {
+	
+	// The orderings.  BFS numbers the vertices in the order of a breadth-first
+	// search, treating the edges as undirected and starting each component at
+	// its lowest vertex.  REVERSE_CUTHILL_MCKEE is the same search started at
+	// a vertex of minimum degree, visiting the neighbors of each vertex in 
+	// increasing order of degree, with the final order reversed, which tends
+	// to minimize the bandwidth (the largest difference between the vertices
+	// of an edge).  DEGREE numbers the vertices in decreasing order of total
+	// (in plus out) degree, which packs the hubs together.
+	
+	public enum Ordering { BFS, REVERSE_CUTHILL_MCKEE, DEGREE }
+	
+	// The relabeled graph.
+	
+	public G getGraph() {
+		return graph;
+	}
+	
+	// The new vertex for the specified original vertex.
+	
+	public int getNewVertex(int v) {
+		return forward[v];
+	}
+	
+	// The original vertex for the specified new vertex.
+	
+	public int getOriginalVertex(int v) {
+		return inverse[v];
+	}
+	
+	// Copies of the forward map, whose element v is the new vertex for the
+	// original vertex v, and the inverse map, whose element v is the original
+	// vertex for the new vertex v.
+	
+	public int[] getForwardMap() {
+		return forward.clone();
+	}
+	
+	public int[] getInverseMap() {
+		return inverse.clone();
+	}
+	
+	//
+	
+	Reordering(G graph, int[] forward, int[] inverse) {
+		this.graph = graph;
+		this.forward = forward;
+		this.inverse = inverse;
+	}
+	
+	// Computes the inverse map (the new order of the original vertices) for
+	// the specified graph and ordering.  The time is linear in the number of
+	// vertices and edges, plus the sorting of neighbors by degree for 
+	// REVERSE_CUTHILL_MCKEE.
+	
+	static int[] order(Digraph<?> graph, Ordering ordering) {
+		int n = graph.getVertexCapacity();
+		int[] degrees = new int[n];
+		int[][] neighbors = undirectedNeighbors(graph, degrees);
+		
+		switch (ordering) {
+		case BFS: {
+			int[] start = new int[n];
+			for (int v = 0; v < n; v++)
+				start[v] = v;
+			return search(neighbors, start, null);
+		}
+		case REVERSE_CUTHILL_MCKEE: {
+			int[] result = search(neighbors, byDegree(degrees, false), degrees);
+			for (int i = 0, j = n - 1; i < j; i++, j--) {
+				int t = result[i];
+				result[i] = result[j];
+				result[j] = t;
+			}
+			return result;
+		}
+		default:
+			return byDegree(degrees, true);
+		}
+	}
+	
+	// Inverts a map.
+	
+	static int[] invert(int[] map) {
+		int[] result = new int[map.length];
+		for (int i = 0; i < map.length; i++)
+			result[map[i]] = i;
+		return result;
+	}
+	
+	//
+	
+	// Helper function for gathering the vertices adjacent to each vertex by
+	// an edge in either direction, with a vertex repeated for each edge, and
+	// recording the number of them as the total degree.
+	
+	private static int[][] undirectedNeighbors(Digraph<?> graph, int[] degrees) {
+		int n = degrees.length;
+		int[] buffer = new int[0];
+		for (int v = 0; v < n; v++) {
+			int outDegree = graph.getOutDegree(v);
+			degrees[v] += outDegree;
+			if (buffer.length < outDegree)
+				buffer = new int[outDegree];
+			graph.getNeighbors(v, buffer);
+			for (int i = 0; i < outDegree; i++)
+				degrees[buffer[i]]++;
+		}
+		
+		int[][] result = new int[n][];
+		int[] counts = new int[n];
+		for (int v = 0; v < n; v++)
+			result[v] = new int[degrees[v]];
+		for (int v = 0; v < n; v++) {
+			int outDegree = graph.getNeighbors(v, buffer);
+			for (int i = 0; i < outDegree; i++) {
+				int w = buffer[i];
+				result[v][counts[v]++] = w;
+				result[w][counts[w]++] = v;
+			}
+		}
+		return result;
+	}
+	
+	// Helper function for a breadth-first search of every component, trying 
+	// the start vertices in the specified order.  If sortDegrees is not null,
+	// the newly reached neighbors of each vertex are visited in increasing 
+	// order of those degrees.  Returns the vertices in the order reached.
+	
+	private static int[] search(int[][] neighbors, int[] start, int[] sortDegrees) {
+		int n = neighbors.length;
+		boolean[] reached = new boolean[n];
+		int[] queue = new int[n];
+		long[] keys = new long[0];
+		int tail = 0;
+		for (int s : start) {
+			if (reached[s])
+				continue;
+			reached[s] = true;
+			queue[tail++] = s;
+			for (int head = tail - 1; head < tail; head++) {
+				int v = queue[head];
+				int first = tail;
+				for (int w : neighbors[v])
+					if (!reached[w]) {
+						reached[w] = true;
+						queue[tail++] = w;
+					}
+				
+				if ((sortDegrees != null) && (tail - first > 1)) {
+					int m = tail - first;
+					if (keys.length < m)
+						keys = new long[Math.max(m, 2 * keys.length)];
+					for (int i = 0; i < m; i++)
+						keys[i] = ((long) sortDegrees[queue[first + i]] << 32) | queue[first + i];
+					Arrays.sort(keys, 0, m);
+					for (int i = 0; i < m; i++)
+						queue[first + i] = (int) keys[i];
+				}
+			}
+		}
+		return queue;
+	}
+	
+	// Helper function for sorting the vertices by degree, with a counting 
+	// sort, breaking ties by increasing vertex.
+	
+	private static int[] byDegree(int[] degrees, boolean decreasing) {
+		int n = degrees.length;
+		int maxDegree = 0;
+		for (int d : degrees)
+			maxDegree = Math.max(maxDegree, d);
+		int[] counts = new int[maxDegree + 2];
+		for (int d : degrees)
+			counts[(decreasing ? maxDegree - d : d) + 1]++;
+		for (int d = 0; d <= maxDegree; d++)
+			counts[d + 1] += counts[d];
+		int[] result = new int[n];
+		for (int v = 0; v < n; v++)
+			result[counts[decreasing ? maxDegree - degrees[v] : degrees[v]]++] = v;
+		return result;
+	}
+	
+	private G graph;
+	private int[] forward;
+	private int[] inverse;
+	
+}
@@ -22,7 +22,7 @@
 
 package com.philiphubbard.digraph;
 
-import java.util.Stack;
+import java.util.Arrays;
 
 // Determine the strong components (strongly-connected components) of a digraph.
 // Vertices v and w are in the same strong component if v is reachable from w and
@@ -32,51 +32,215 @@ public class StrongComponents <E extends Digraph.Edge> {
 	
 	// The implementation is Tarjan's algorithm, adapted from the C++ code in
 	// Sedgewick's "Algorithms, Third Edition, Part Five: Graph Algorithms" (2002).
+	// The depth-first search does not recurse, so the depth of the graph is not 
+	// limited by the size of the thread's stack.  Instead, it keeps its own stack
+	// of frames in int arrays, one per vertex being searched, and a stack of the
+	// vertices pointed to by the edges from those vertices.  Each frame has a 
+	// cursor into the second stack for the next edge to follow.
 	
 	public StrongComponents(Digraph<E> graph) {
 		this.graph = graph;
 		
-		pre = new int[graph.getVertexCapacity()];
-		low = new int[graph.getVertexCapacity()];
-		id = new int[graph.getVertexCapacity()];
+		int vertexCapacity = graph.getVertexCapacity();
+		pre = new int[vertexCapacity];
+		low = new int[vertexCapacity];
+		id = new int[vertexCapacity];
 		
 		for (int i = 0; i < pre.length; i++)
 			pre[i] = Digraph.NO_VERTEX;
 		
-		stack = new Stack<Integer>();
+		stack = new int[vertexCapacity];
+		frameVertex = new int[vertexCapacity];
+		frameMin = new int[vertexCapacity];
+		frameEdge = new int[vertexCapacity];
+		frameEdgeEnd = new int[vertexCapacity];
+		edges = new int[Math.max(16, vertexCapacity)];
+		neighbors = new int[16];
 		
-		for (int v = 0; v < graph.getVertexCapacity(); v++)
+		for (int v = 0; v < vertexCapacity; v++)
 			if (pre[v] == Digraph.NO_VERTEX)
 				build(v);
+		buildMembers();
 	}
 	
 	public boolean isStronglyReachable(int v, int w) {
 		return (id[v] == id[w]);
 	}
 	
+	// The number of strong components.
+	
+	public int getComponentCount() {
+		return scnt;
+	}
+	
+	// The strong component of the specified vertex, in the range from 0 to 
+	// getComponentCount() - 1.  This class numbers the components in reverse
+	// topological order: if there is an edge from a vertex in component c to 
+	// a vertex in another component d, then d < c.
+	// Throws IndexOutOfBoundsException if the vertex is out of range.
+	
+	public int getComponentId(int v) throws IndexOutOfBoundsException {
+		if ((v < 0) || (id.length <= v))
+			throw new IndexOutOfBoundsException("StrongComponents.getComponentId() " +
+												"vertex out of range");
+		return id[v];
+	}
+	
+	// The number of vertices in the specified component.
+	// Throws IndexOutOfBoundsException if the component is out of range.
+	
+	public int getComponentSize(int component) throws IndexOutOfBoundsException {
+		if ((component < 0) || (scnt <= component))
+			throw new IndexOutOfBoundsException("StrongComponents.getComponentSize() " +
+												"component out of range");
+		return memberOffsets[component + 1] - memberOffsets[component];
+	}
+	
+	// The vertex at the specified position among the vertices of the specified
+	// component, in increasing order, with the position in the range from 0 to
+	// getComponentSize(component) - 1.  The vertices of all the components are
+	// stored in one array, with a range for each component, so a loop like the 
+	// following visits them without allocating:
+	// "for (int i = 0; i < getComponentSize(c); i++) { int v = memberAt(c, i); ... }"
+	// Throws IndexOutOfBoundsException if the component or position is out of range.
+	
+	public int memberAt(int component, int index) throws IndexOutOfBoundsException {
+		if ((index < 0) || (getComponentSize(component) <= index))
+			throw new IndexOutOfBoundsException("StrongComponents.memberAt() " +
+												"index out of range");
+		return members[memberOffsets[component] + index];
+	}
+	
+	// Returns the condensation of the graph: a graph with a vertex for each 
+	// strong component, and one edge from component c to component d if any
+	// vertex in c has an edge to any vertex in d, for d different from c.  The
+	// condensation has no cycles.  Its processing time is linear in the size 
+	// of the graph, which must not have changed since the components were
+	// computed.
+	
+	public BasicDigraph condensation() {
+		int[] lastFrom = new int[scnt];
+		Arrays.fill(lastFrom, Digraph.NO_VERTEX);
+		int[] from = new int[16];
+		int[] to = new int[16];
+		int n = 0;
+		int[] neighbors = new int[16];
+		for (int c = 0; c < scnt; c++) {
+			for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+				int v = members[i];
+				int outDegree = graph.getNeighbors(v, neighbors);
+				if (outDegree > neighbors.length) {
+					neighbors = new int[Math.max(outDegree, 2 * neighbors.length)];
+					graph.getNeighbors(v, neighbors);
+				}
+				for (int j = 0; j < outDegree; j++) {
+					int d = id[neighbors[j]];
+					if ((d == c) || (lastFrom[d] == c))
+						continue;
+					lastFrom[d] = c;
+					if (n == from.length) {
+						from = Arrays.copyOf(from, 2 * n);
+						to = Arrays.copyOf(to, 2 * n);
+					}
+					from[n] = c;
+					to[n++] = d;
+				}
+			}
+		}
+		
+		BasicDigraph result = new BasicDigraph(scnt, Digraph.EdgeMultiples.DISABLED);
+		result.addEdges(Arrays.copyOf(from, n), Arrays.copyOf(to, n));
+		return result;
+	}
+	
 	//
 	
-	private void build(int w) {
-		int t;
-		int min = low[w] = pre[w] = cnt++;
-		stack.push(w);
-		Digraph<E>.AdjacencyIterator it = graph.createAdjacencyIterator(w);
-		for (E edge = it.begin(); !it.done(); edge = it.next()) {
-			t = edge.getTo();
-			if (pre[t] == Digraph.NO_VERTEX)
-				build(t);
-			if (low[t] < min)
-				min = low[t];
+	// Constructor for a derived class that computes the components itself,
+	// as the component of each vertex, numbered from 0 to componentCount - 1.
+	
+	protected StrongComponents(Digraph<E> graph, int[] id, int componentCount) {
+		this.graph = graph;
+		this.id = id;
+		scnt = componentCount;
+		buildMembers();
+	}
+	
+	// Helper function for grouping the vertices by component, with a counting
+	// sort that keeps the vertices of each component in increasing order.
+	
+	private void buildMembers() {
+		memberOffsets = new int[scnt + 1];
+		for (int v = 0; v < id.length; v++)
+			memberOffsets[id[v] + 1]++;
+		for (int c = 0; c < scnt; c++)
+			memberOffsets[c + 1] += memberOffsets[c];
+		members = new int[id.length];
+		int[] next = Arrays.copyOf(memberOffsets, scnt);
+		for (int v = 0; v < id.length; v++)
+			members[next[id[v]]++] = v;
+	}
+	
+	// Helper function for the depth-first search from the specified vertex.
+	// Each iteration of the loop follows one edge from the vertex of the top
+	// frame, or finishes that vertex if all its edges have been followed.
+	
+	private void build(int root) {
+		enter(root);
+		while (depth > 0) {
+			int f = depth - 1;
+			if (frameEdge[f] < frameEdgeEnd[f]) {
+				int t = edges[frameEdge[f]++];
+				if (pre[t] == Digraph.NO_VERTEX) {
+					enter(t);
+					continue;
+				}
+				if (low[t] < frameMin[f])
+					frameMin[f] = low[t];
+				continue;
+			}
+			
+			int w = frameVertex[f];
+			int min = frameMin[f];
+			depth--;
+			edgeCount = (depth > 0) ? frameEdgeEnd[depth - 1] : 0;
+			if (min < low[w]) {
+				low[w] = min;
+			}
+			else {
+				int t;
+				do {
+					id[t = stack[--stackSize]] = scnt;
+					low[t] = graph.getVertexCapacity();
+				} while (t != w);
+				scnt++;
+			}
+			if ((depth > 0) && (low[w] < frameMin[depth - 1]))
+				frameMin[depth - 1] = low[w];
 		}
-		if (min < low[w]) {
-			low[w] = min;
-			return;
+	}
+	
+	// Helper function for starting the search of a vertex, by pushing it and 
+	// the vertices its edges point to.
+	
+	private void enter(int w) {
+		low[w] = pre[w] = cnt++;
+		stack[stackSize++] = w;
+		
+		int n = graph.getNeighbors(w, neighbors);
+		if (n > neighbors.length) {
+			neighbors = new int[Math.max(n, 2 * neighbors.length)];
+			n = graph.getNeighbors(w, neighbors);
 		}
-		do {
-			id[t = stack.pop()] = scnt;
-			low[t] = graph.getVertexCapacity();
-		} while (t != w);
-		scnt++;
+		if (edges.length < edgeCount + n)
+			edges = Arrays.copyOf(edges, Math.max(edgeCount + n, 2 * edges.length));
+		System.arraycopy(neighbors, 0, edges, edgeCount, n);
+		
+		frameVertex[depth] = w;
+		frameMin[depth] = low[w];
+		frameEdge[depth] = edgeCount;
+		edgeCount += n;
+		frameEdgeEnd[depth] = edgeCount;
+		depth++;
 	}
 
 	private Digraph<E> graph;
@@ -85,5 +249,31 @@ public class StrongComponents <E extends Digraph.Edge> {
 	private int[] id;
 	int cnt;
 	int scnt;
-	Stack<Integer> stack;
+	
+	// The vertices of the components, grouped by component, and the start of
+	// each group.
+	
+	private int[] members;
+	private int[] memberOffsets;
+	
+	// The stack of vertices not yet assigned to a component.
+	
+	private int[] stack;
+	private int stackSize;
+	
+	// The frames of the depth-first search: the vertex, the minimum low value 
+	// found from it so far, and the range of its edges not yet followed.
+	
+	private int[] frameVertex;
+	private int[] frameMin;
+	private int[] frameEdge;
+	private int[] frameEdgeEnd;
+	private int depth;
+	
+	// The stack of the vertices pointed to by the edges from the vertices
+	// in the frames, and a buffer for getting the edges from one vertex.
+	
+	private int[] edges;
+	private int edgeCount;
+	private int[] neighbors;
 }
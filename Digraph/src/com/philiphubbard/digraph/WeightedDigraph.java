@@ -22,13 +22,27 @@
 
 package com.philiphubbard.digraph;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 
-// A directed graph with edges that have weights.
+// A directed graph with edges that have weights.  The weights are stored in
+// a float array for each vertex, parallel to the sorted array of vertices
+// pointed to, so there are no per-edge objects.  Loops that read the weights
+// with weightAt(), or with an iterator's getWeight(), do not allocate.  Edge
+// objects are still available from the iterators, as views made on demand.
 
 public class WeightedDigraph extends Digraph<WeightedDigraph.Edge> {
 	
-	// A weighted edge.
+	// A weighted edge.  An edge returned by an iterator of the graph is a 
+	// view of the edge in the graph, so its getWeight() and setWeight() read
+	// and write the graph's weight.  An edge returned by an iterator of a 
+	// snapshot or an immutable graph is a copy, and its setWeight() throws.
 	
 	public static class Edge extends Digraph.Edge {
 		public Edge(int to) {
@@ -45,27 +59,281 @@ public class WeightedDigraph extends Digraph<WeightedDigraph.Edge> {
 			return weight;
 		}
 		
-		public void setWeight(float weight) {
+		// Set the weight of the edge, and of the edge in the graph if the
+		// edge is a view of it.
+		// Throws UnsupportedOperationException if the edge is a copy made
+		// by a snapshot or an immutable graph, since changing the copy would
+		// not change the graph.
+		
+		public void setWeight(float weight) throws UnsupportedOperationException {
+			if (copy)
+				throw new UnsupportedOperationException("WeightedDigraph.Edge.setWeight() " +
+														"edge is a copy from a graph");
 			this.weight = weight;
 		}
 		
+		//
+		
+		// Create a copy of an edge in a graph, whose weight cannot be set.
+		
+		static Edge copyOf(int to, float weight) {
+			Edge edge = new Edge(to, weight);
+			edge.copy = true;
+			return edge;
+		}
+		
 		private float weight;
+		private boolean copy = false;
+	}
+	
+	// The edge returned by the graph's own iterators.  After edges from the
+	// vertex are added or removed, it finds its edge again as the iterators 
+	// do, by keeping its place among the edges to the same vertex, counted 
+	// from the last of them.  Once its edge has been removed, it keeps the
+	// last weight, like an edge object that is no longer in a graph.
+	
+	private static class EdgeView extends Edge {
+		EdgeView(WeightedDigraph graph, int from, int index, float weight) {
+			super(graph.targetAt(from, index), weight);
+			this.graph = graph;
+			this.from = from;
+			this.index = index;
+			modCount = graph.getModCount(from);
+			int end = index + 1;
+			while ((end < graph.getOutDegree(from)) && (graph.targetAt(from, end) == getTo()))
+				end++;
+			fromLast = end - index;
+		}
+		
+		@Override
+		public float getWeight() {
+			if (locate())
+				super.setWeight(graph.weightAt(from, index));
+			return super.getWeight();
+		}
+		
+		@Override
+		public void setWeight(float weight) {
+			if (locate())
+				graph.setWeightAt(from, index, weight);
+			super.setWeight(weight);
+		}
+		
+		// Finds the edge again if edges from the vertex have changed, and
+		// returns false if it has been removed.  Of matching edges, those
+		// removed are taken to be the first, as for the iterators.
+		
+		private boolean locate() {
+			if (index == NO_VERTEX)
+				return false;
+			if (modCount != graph.getModCount(from)) {
+				modCount = graph.getModCount(from);
+				int count = graph.getMultiplicity(from, getTo());
+				if (count < fromLast) {
+					index = NO_VERTEX;
+					return false;
+				}
+				index = graph.indexOf(from, getTo()) + count - fromLast;
+			}
+			return true;
+		}
+		
+		private WeightedDigraph graph;
+		private int from;
+		private int index;
+		private int modCount;
+		private int fromLast;
 	}
 	
 	// Constructor.  Vertices can be added with indices in the range
-	// from 0 to vertexCapacity - 1.  The EdgeMultiples enum
+	// from 0 to vertexCapacity - 1, and the capacity grows as needed
+	// when edges involving larger indices are added.  The EdgeMultiples enum
 	// specifies whether the graph can have more than one edge between
 	// a pair of vertices or not.
 	
 	public WeightedDigraph(int vertexCapacity, EdgeMultiples multiples) {
-		super(vertexCapacity, multiples);
+		super(vertexCapacity, multiples, EdgeObjects.CREATED);
+		weightColumn = addEdgeColumn(float.class);
 	}
 	
 	// Add an edge from the specified vertex pointing to another vertex.
-	// Silently does nothing if the specified vertex is out of range.
+	// Increases the vertex capacity if either vertex is beyond it.
+	// Silently does nothing if either vertex is negative.
 	
 	public void addEdge(int from, Edge edge) {
-		super.addEdge(from, edge);
+		int i = insertEdge(from, edge);
+		if (i != NO_VERTEX)
+			((float[]) getEdgeColumnForWrite(weightColumn, from))[i] = edge.getWeight();
+	}
+	
+	// The weight of the edge at the specified position among the sorted 
+	// edges from the specified vertex, which is in the range from 0 to
+	// getOutDegree(from) - 1.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public float weightAt(int from, int index) throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "WeightedDigraph.weightAt()");
+		return ((float[]) getEdgeColumn(weightColumn, from))[index];
+	}
+	
+	// Set the weight of the edge at the specified position among the sorted 
+	// edges from the specified vertex.
+	// Throws IndexOutOfBoundsException if the vertex or position is out of range.
+	
+	public void setWeightAt(int from, int index, float weight) 
+			throws IndexOutOfBoundsException {
+		checkEdgeIndex(from, index, "WeightedDigraph.setWeightAt()");
+		((float[]) getEdgeColumnForWrite(weightColumn, from))[index] = weight;
+	}
+	
+	// A test of an edge and its weight, for removeEdgesIfWeight() and 
+	// retainEdgesWithWeight().
+	
+	public interface WeightPredicate {
+		boolean test(int from, int to, float weight);
+	}
+	
+	// Remove every edge for which the predicate returns true, as for the
+	// Digraph.removeEdgesIf() routine, and return the number of edges removed.
+	// The weights are read from the weight arrays, so no edges are allocated.
+	// The name differs from removeEdgesIf() so a lambda passed to either one
+	// is not ambiguous.
+	
+	public int removeEdgesIfWeight(final WeightPredicate predicate) {
+		return removeEdgesIf(new EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				float weight = ((float[]) getEdgeColumn(weightColumn, from))[index];
+				return predicate.test(from, to, weight);
+			}
+		});
+	}
+	
+	// Remove every edge for which the predicate returns false, as for the
+	// Digraph.retainEdges() routine, and return the number of edges removed.
+	
+	public int retainEdgesWithWeight(final WeightPredicate predicate) {
+		return removeEdgesIf(new EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				float weight = ((float[]) getEdgeColumn(weightColumn, from))[index];
+				return !predicate.test(from, to, weight);
+			}
+		});
+	}
+	
+	// Add many edges at once, an edge from from[i] to to[i] with weight
+	// weights[i] for each i.  The result is the same as calling addEdge()
+	// for each edge in order, but the edges are sorted and merged with the
+	// existing edges in one pass, which is much faster for large batches.
+	// Increases the vertex capacity as needed, and silently ignores edges
+	// involving negative vertices.
+	// Throws IllegalArgumentException if the array lengths differ.
+	
+	public void addEdges(int[] from, int[] to, float[] weights) 
+			throws IllegalArgumentException {
+		if (weights.length != to.length)
+			throw new IllegalArgumentException("WeightedDigraph.addEdges() " +
+											   "array lengths differ");
+		Object[] columnValues = new Object[weightColumn + 1];
+		columnValues[weightColumn] = weights;
+		super.addEdges(from, to, null, columnValues);
+	}
+	
+	// Returns a copy of the graph with the vertices relabeled in the specified
+	// ordering, to improve the locality of traversals, along with the maps
+	// between the original and new vertices.  The edges keep their weights,
+	// and the copy has a reverse index if this graph does.
+	
+	public Reordering<WeightedDigraph> reorder(Reordering.Ordering ordering) {
+		int[] inverse = Reordering.order(this, ordering);
+		int[] forward = Reordering.invert(inverse);
+		
+		int edgeCount = 0;
+		for (int v = 0; v < getVertexCapacity(); v++)
+			edgeCount += getOutDegree(v);
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		float[] weights = new float[edgeCount];
+		int k = 0;
+		for (int v : inverse) {
+			int outDegree = getOutDegree(v);
+			for (int i = 0; i < outDegree; i++) {
+				from[k] = forward[v];
+				to[k] = forward[targetAt(v, i)];
+				weights[k++] = weightAt(v, i);
+			}
+		}
+		
+		WeightedDigraph result = new WeightedDigraph(getVertexCapacity(), getEdgeMultiples());
+		result.addEdges(from, to, weights);
+		if (hasReverseIndex())
+			result.enableReverseIndex();
+		return new Reordering<WeightedDigraph>(result, forward, inverse);
+	}
+	
+	// Write the graph to the specified stream in a compact binary format,
+	// which readFrom() reads.  The sorted vertices pointed to by each vertex's
+	// edges are stored as variable-length gaps, followed by the raw float
+	// weights, and the data is written through a buffer of bounded size.
+	// The stream is not closed.
+	
+	public void writeTo(OutputStream stream) throws IOException {
+		writeTo(Channels.newChannel(stream));
+		stream.flush();
+	}
+	
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		writeEdges(channel, DigraphFormat.WEIGHTED);
+	}
+	
+	// Read a graph written by writeTo() from the specified stream, reading
+	// the edges of each vertex directly into the graph through a buffer of
+	// bounded size.  Reads no further than the end of the graph's data.
+	// Throws IOException if the data is not a WeightedDigraph or ends early.
+	
+	public static WeightedDigraph readFrom(InputStream stream) throws IOException {
+		return readFrom(Channels.newChannel(stream));
+	}
+	
+	public static WeightedDigraph readFrom(ReadableByteChannel channel) throws IOException {
+		DigraphFormat.Reader in = new DigraphFormat.Reader(channel, DigraphFormat.WEIGHTED);
+		EdgeMultiples multiples = in.hasMultiples() ? 
+				EdgeMultiples.ENABLED : EdgeMultiples.DISABLED;
+		WeightedDigraph graph = new WeightedDigraph(in.getVertexCapacity(), multiples);
+		graph.readEdges(in);
+		return graph;
+	}
+	
+	// Each edge's weight is serialized as a raw float.
+	
+	@Override
+	protected int getEdgeDataSize() {
+		return 4;
+	}
+	
+	@Override
+	protected void writeEdgeData(int from, int index, ByteBuffer buffer) {
+		buffer.putFloat(((float[]) getEdgeColumn(weightColumn, from))[index]);
+	}
+	
+	@Override
+	protected void readEdgeData(int from, int index, ByteBuffer buffer) {
+		((float[]) getEdgeColumnForWrite(weightColumn, from))[index] = buffer.getFloat();
+	}
+	
+	// Create the edge at the specified position, for the iterators: a view of
+	// the edge if the graph is this one, or a copy if it is a snapshot.
+	
+	@Override
+	protected Edge createEdge(Digraph<Edge> graph, int from, int index) {
+		float weight = ((float[]) graph.getEdgeColumn(weightColumn, from))[index];
+		if (graph == this)
+			return new EdgeView(this, from, index, weight);
+		return Edge.copyOf(graph.targetAt(from, index), weight);
+	}
+	
+	@Override
+	protected Edge createEdge(int to) {
+		return new Edge(to);
 	}
 	
 	// An iterator over the edges the pointing out from the specified vertex.
@@ -84,10 +352,32 @@ public class WeightedDigraph extends Digraph<WeightedDigraph.Edge> {
 		public Edge next() {
 			return super.next();
 		}
+		
+		// The weight of the current edge, without creating an edge object.
+		// Throws IllegalStateException if the iteration is done.
+		
+		public float getWeight() throws IllegalStateException {
+			return weightAt(getVertex(), currentIndex("getWeight()"));
+		}
+		
+		// Set the weight of the current edge.
+		// Throws IllegalStateException if the iteration is done.
+		
+		public void setWeight(float weight) throws IllegalStateException {
+			setWeightAt(getVertex(), currentIndex("setWeight()"), weight);
+		}
 
 		protected AdjacencyIterator(WeightedDigraph graph, int from) {
 			super(graph, from);
 		}
+		
+		private int currentIndex(String function) throws IllegalStateException {
+			int index = getIndex();
+			if (index == NO_VERTEX)
+				throw new IllegalStateException("WeightedDigraph.AdjacencyIterator." + 
+												function + " iteration is done");
+			return index;
+		}
 	}
 	
 	// Create an iterator for the edges out from the specified vertex.
@@ -135,4 +425,6 @@ public class WeightedDigraph extends Digraph<WeightedDigraph.Edge> {
 											    "vertex out of range");
 		return new AdjacencyMultipleIterator(this, from);
 	}
+	
+	private int weightColumn;
 }
\ No newline at end of file
@@ -22,7 +22,17 @@
 
 package com.philiphubbard.digraph;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 // Confidence tests for the BasicDigraph class.
 // Uses assert(), so must be run with a run configuration that includes "-ea" in the 
@@ -36,6 +46,22 @@ public class BasicDigraphTest {
 		testSimple(Digraph.EdgeMultiples.DISABLED);
 		testSimple(Digraph.EdgeMultiples.ENABLED);
 		testMultiples();
+		testReverseIndex();
+		testInDegrees();
+		testAddEdges(Digraph.EdgeMultiples.DISABLED);
+		testAddEdges(Digraph.EdgeMultiples.ENABLED);
+		testSerialization(Digraph.EdgeMultiples.DISABLED);
+		testSerialization(Digraph.EdgeMultiples.ENABLED);
+		testSnapshot(Digraph.EdgeMultiples.DISABLED);
+		testSnapshot(Digraph.EdgeMultiples.ENABLED);
+		testRemoveEdges(Digraph.EdgeMultiples.DISABLED, false);
+		testRemoveEdges(Digraph.EdgeMultiples.ENABLED, false);
+		testRemoveEdges(Digraph.EdgeMultiples.ENABLED, true);
+		testMultiplicity(Digraph.EdgeMultiples.DISABLED);
+		testMultiplicity(Digraph.EdgeMultiples.ENABLED);
+		testCursor();
+		testStreams();
+		testEdgeSubclass();
 
 		System.out.println("BasicDigraph passed.");
 	}
@@ -59,14 +85,38 @@ public class BasicDigraphTest {
 		}
 		assert (failedAsExpected);
 		
+		// Adding an edge with a negative vertex silently does nothing.
+		
+		graph0.addEdge(-1, new BasicDigraph.Edge(2));
+		graph0.addEdge(1, new BasicDigraph.Edge(-2));
+		assert (graph0.getVertexCapacity() == 0);
+		
 		// Adding an edge to a vertex that is outside the graph's capacity
-		// silently does nothing.
+		// increases the capacity.
 		
 		graph0.addEdge(1, new BasicDigraph.Edge(2));
+		assert (graph0.getVertexCapacity() == 3);
+		BasicDigraph.AdjacencyIterator it0g = graph0.createAdjacencyIterator(1);
+		assert (it0g.begin().getTo() == 2);
+		assert (it0g.next() == null);
+		assert (graph0.getInDegree(2) == 1);
+		assert (graph0.getOutDegree(2) == 0);
+		
+		graph0.addEdge(40, new BasicDigraph.Edge(1));
+		assert (graph0.getVertexCapacity() == 41);
+		assert (graph0.getInDegree(1) == 1);
+		assert (graph0.getOutDegree(40) == 1);
+		
+		graph0.ensureCapacity(100);
+		assert (graph0.getVertexCapacity() == 100);
+		graph0.ensureCapacity(50);
+		assert (graph0.getVertexCapacity() == 100);
+		assert (graph0.getOutDegree(99) == 0);
+		assert (graph0.getInDegree(99) == 0);
 		
 		failedAsExpected = false;
 		try {
-			graph0.createAdjacencyIterator(1);
+			graph0.createAdjacencyIterator(100);
 		} catch (IndexOutOfBoundsException e) {
 			failedAsExpected = true;
 		}
@@ -104,6 +154,36 @@ public class BasicDigraphTest {
 		assert (graph1.getInDegree(3) == 2);
 		assert (graph1.getOutDegree(3) == 0);
 		
+		// Verify that an iterator keeps its place when edges are added before
+		// and after its current edge, and that the degrees stay up to date.
+		
+		BasicDigraph.AdjacencyIterator it0d = graph1.createAdjacencyIterator(0);
+		assert (it0d.begin().getTo() == 2);
+		graph1.addEdge(0, new BasicDigraph.Edge(1));
+		graph1.addEdge(0, new BasicDigraph.Edge(4));
+		assert (it0d.next().getTo() == 3);
+		assert (it0d.next().getTo() == 4);
+		assert (it0d.next() == null);
+		assert (it0d.done());
+		assert (graph1.getOutDegree(0) == 4);
+		assert (graph1.getInDegree(4) == 1);
+		
+		// An iterator whose current edge is the last one, and is removed, is done.
+		
+		BasicDigraph.AdjacencyIterator it0e = graph1.createAdjacencyIterator(0);
+		for (it0e.begin(); it0e.next().getTo() != 4; )
+			;
+		graph1.removeEdge(0, 4);
+		assert (it0e.done());
+		graph1.addEdge(0, new BasicDigraph.Edge(4));
+		assert (it0e.done());
+		
+		graph1.removeEdge(0, 1);
+		graph1.removeEdge(0, 4);
+		assert (graph1.getOutDegree(0) == 2);
+		assert (graph1.getInDegree(1) == 0);
+		assert (graph1.getInDegree(4) == 0);
+		
 		// Verify that iterators get updated when their current edges are removed.
 		
 		BasicDigraph graph2 = new BasicDigraph(16, multiples);
@@ -402,5 +482,746 @@ public class BasicDigraphTest {
 
 		System.out.println("BasicDigraph edge multiples passed.");
 	}
+	
+	private static void testReverseIndex() {
+		System.out.println("Testing BasicDigraph reverse index");
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdge(4, new BasicDigraph.Edge(0));
+		graph.addEdge(1, new BasicDigraph.Edge(0));
+		graph.addEdge(3, new BasicDigraph.Edge(0));
+		graph.addEdge(1, new BasicDigraph.Edge(0));
+		graph.addEdge(0, new BasicDigraph.Edge(2));
+		assert (!graph.hasReverseIndex());
+		
+		// Creating an in-adjacency iterator enables the index, and the iteration
+		// returns sources in increasing order.
+		
+		BasicDigraph.InAdjacencyIterator it0 = graph.createInAdjacencyIterator(0);
+		assert (graph.hasReverseIndex());
+		int[] expected0 = { 1, 1, 3, 4 };
+		int n0 = 0;
+		for (int v = it0.begin(); !it0.done(); v = it0.next())
+			assert (v == expected0[n0++]);
+		assert (n0 == 4);
+		assert (it0.next() == Digraph.NO_VERTEX);
+		assert (graph.getInDegree(0) == 4);
+		
+		BasicDigraph.InAdjacencyIterator it5 = graph.createInAdjacencyIterator(5);
+		assert (it5.begin() == Digraph.NO_VERTEX);
+		assert (it5.done());
+		
+		// The index is kept up to date, and iterators keep their places.
+		
+		BasicDigraph.InAdjacencyIterator it0a = graph.createInAdjacencyIterator(0);
+		assert (it0a.begin() == 1);
+		assert (it0a.next() == 1);
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		graph.addEdge(5, new BasicDigraph.Edge(0));
+		graph.removeEdge(1, 0);
+		graph.removeEdge(4, 0);
+		assert (graph.getInDegree(0) == 4);
+		assert (it0a.next() == 2);
+		assert (it0a.next() == 3);
+		assert (it0a.next() == 5);
+		assert (it0a.next() == Digraph.NO_VERTEX);
+		
+		boolean failedAsExpected = false;
+		try {
+			graph.createInAdjacencyIterator(6);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// An index enabled after the graph has grown covers the room left 
+		// for further growth, so the index grows with the graph, also with
+		// a snapshot sharing it.
+		
+		BasicDigraph grown = new BasicDigraph(6, Digraph.EdgeMultiples.ENABLED);
+		grown.addEdge(0, new BasicDigraph.Edge(6));
+		assert (grown.getVertexCapacity() == 7);
+		grown.enableReverseIndex();
+		Digraph<BasicDigraph.Edge> snapshot = grown.snapshot();
+		grown.addEdge(0, new BasicDigraph.Edge(8));
+		grown.addEdge(8, new BasicDigraph.Edge(7));
+		assert (grown.getVertexCapacity() == 9);
+		grown.addEdge(30, new BasicDigraph.Edge(8));
+		grown.ensureCapacity(40);
+		grown.addEdge(39, new BasicDigraph.Edge(8));
+		assert (grown.getInDegree(6) == 1);
+		assert (grown.getInDegree(7) == 1);
+		assert (grown.getInDegree(8) == 3);
+		BasicDigraph.InAdjacencyIterator it8 = grown.createInAdjacencyIterator(8);
+		int[] expected8 = { 0, 30, 39 };
+		int n8 = 0;
+		for (int v = it8.begin(); !it8.done(); v = it8.next())
+			assert (v == expected8[n8++]);
+		assert (n8 == 3);
+		assert (grown.createInAdjacencyIterator(7).begin() == 8);
+		assert (snapshot.getVertexCapacity() == 7);
+		assert (snapshot.getInDegree(6) == 1);
+		assert (snapshot.createInAdjacencyIterator(6).begin() == 0);
 
+		System.out.println("BasicDigraph reverse index passed.");
+	}
+	
+	private static void testInDegrees() {
+		System.out.println("Testing BasicDigraph in degrees:");
+		
+		// Enough edges that the in degrees are counted by more than one task
+		// when there is more than one processor.
+		
+		int vertexCount = 500;
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.ENABLED);
+		Random random = new Random(22);
+		for (int v = 0; v < vertexCount; v++) {
+			int outDegree = (v % 10 == 0) ? 2000 : 100;
+			for (int i = 0; i < outDegree; i++)
+				graph.addEdge(v, new BasicDigraph.Edge(random.nextInt(vertexCount)));
+		}
+		
+		int[] expected = new int[vertexCount];
+		for (int v = 0; v < vertexCount; v++)
+			for (int i = 0; i < graph.getOutDegree(v); i++)
+				expected[graph.targetAt(v, i)]++;
+		for (int v = 0; v < vertexCount; v++)
+			assert (graph.getInDegree(v) == expected[v]);
+		
+		// The cached degrees are kept up to date, and grow with the graph.
+		
+		graph.addEdge(3, new BasicDigraph.Edge(7));
+		assert (graph.getInDegree(7) == expected[7] + 1);
+		int multiplicity = graph.getMultiplicity(3, 7);
+		graph.removeEdge(3, 7);
+		assert (graph.getInDegree(7) == expected[7] + 1 - multiplicity);
+		graph.addEdge(vertexCount + 5, new BasicDigraph.Edge(vertexCount + 9));
+		assert (graph.getInDegree(vertexCount + 9) == 1);
+		assert (graph.getInDegree(vertexCount + 5) == 0);
+		
+		graph.enableReverseIndex();
+		assert (graph.getInDegree(vertexCount + 9) == 1);
+		assert (graph.getInDegree(1) == expected[1]);
+		
+		System.out.println("BasicDigraph in degrees passed.");
+	}
+	
+	private static void testAddEdges(Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing BasicDigraph adding edges in bulk (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// Adding edges in bulk gives the same graph as adding them one at a time,
+		// including edges that duplicate existing edges, edges beyond the vertex
+		// capacity, and edges with negative vertices.
+		
+		Random random = new Random(5);
+		int vertexCapacity = 20;
+		int[] from = new int[300];
+		int[] to = new int[300];
+		for (int i = 0; i < from.length; i++) {
+			from[i] = random.nextInt(vertexCapacity + 2) - 1;
+			to[i] = random.nextInt(vertexCapacity + 2) - 1;
+		}
+		
+		BasicDigraph graph1 = new BasicDigraph(vertexCapacity, multiples);
+		BasicDigraph graph2 = new BasicDigraph(vertexCapacity, multiples);
+		for (int v = 0; v < vertexCapacity; v += 3) {
+			graph1.addEdge(v, new BasicDigraph.Edge(v / 2));
+			graph2.addEdge(v, new BasicDigraph.Edge(v / 2));
+		}
+		graph2.enableReverseIndex();
+		assert (graph2.getInDegree(0) == 1);
+		
+		for (int i = 0; i < from.length; i++)
+			graph1.addEdge(from[i], new BasicDigraph.Edge(to[i]));
+		graph2.addEdges(from, to);
+		
+		assert (graph1.getVertexCapacity() == graph2.getVertexCapacity());
+		for (int v = 0; v < graph1.getVertexCapacity(); v++) {
+			assert (graph1.getOutDegree(v) == graph2.getOutDegree(v));
+			assert (graph1.getInDegree(v) == graph2.getInDegree(v));
+			BasicDigraph.AdjacencyIterator it1 = graph1.createAdjacencyIterator(v);
+			BasicDigraph.AdjacencyIterator it2 = graph2.createAdjacencyIterator(v);
+			BasicDigraph.Edge e1 = it1.begin();
+			BasicDigraph.Edge e2 = it2.begin();
+			for (; !it1.done(); e1 = it1.next(), e2 = it2.next())
+				assert (e1.getTo() == e2.getTo());
+			assert (it2.done());
+			
+			int inDegree = 0;
+			BasicDigraph.InAdjacencyIterator in2 = graph2.createInAdjacencyIterator(v);
+			int prev = Digraph.NO_VERTEX;
+			for (int u = in2.begin(); !in2.done(); u = in2.next()) {
+				assert (prev <= u);
+				prev = u;
+				inDegree++;
+			}
+			assert (inDegree == graph1.getInDegree(v));
+		}
+		
+		boolean failedAsExpected = false;
+		try {
+			graph2.addEdges(new int[2], new int[3]);
+		} catch (IllegalArgumentException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("BasicDigraph adding edges in bulk passed.");
+	}
+	
+	private static void testSerialization(Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing BasicDigraph serialization (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// The graph is large enough that its data does not fit in one buffer,
+		// and has gaps between vertices large enough to need several bytes.
+		
+		Random random = new Random(9);
+		int vertexCapacity = 20000;
+		int[] from = new int[200000];
+		int[] to = new int[200000];
+		for (int i = 0; i < from.length; i++) {
+			from[i] = random.nextInt(vertexCapacity);
+			to[i] = (random.nextInt(4) == 0) ? random.nextInt(vertexCapacity) : 
+				random.nextInt(64);
+		}
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, multiples);
+		graph.addEdges(from, to);
+		
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			graph.writeTo(out);
+			
+			// Reading stops at the end of the graph's data.
+			
+			out.write(42);
+			ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+			BasicDigraph copy = BasicDigraph.readFrom(in);
+			assert (in.read() == 42);
+			
+			assert (copy.getVertexCapacity() == vertexCapacity);
+			assert (copy.getEdgeMultiples() == multiples);
+			for (int v = 0; v < vertexCapacity; v++) {
+				assert (graph.getOutDegree(v) == copy.getOutDegree(v));
+				assert (graph.getInDegree(v) == copy.getInDegree(v));
+				BasicDigraph.AdjacencyIterator it1 = graph.createAdjacencyIterator(v);
+				BasicDigraph.AdjacencyIterator it2 = copy.createAdjacencyIterator(v);
+				BasicDigraph.Edge e1 = it1.begin();
+				BasicDigraph.Edge e2 = it2.begin();
+				for (; !it1.done(); e1 = it1.next(), e2 = it2.next())
+					assert (e1.getTo() == e2.getTo());
+				assert (it2.done());
+			}
+			
+			// The copy can be changed like any other graph.
+			
+			copy.addEdge(0, new BasicDigraph.Edge(vertexCapacity));
+			assert (copy.getVertexCapacity() == vertexCapacity + 1);
+			assert (copy.getInDegree(vertexCapacity) == 1);
+			
+			byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+			boolean failedAsExpected = false;
+			try {
+				BasicDigraph.readFrom(new ByteArrayInputStream(truncated));
+			} catch (IOException e) {
+				failedAsExpected = true;
+			}
+			assert (failedAsExpected);
+			
+			failedAsExpected = false;
+			try {
+				WeightedDigraph.readFrom(new ByteArrayInputStream(out.toByteArray()));
+			} catch (IOException e) {
+				failedAsExpected = true;
+			}
+			assert (failedAsExpected);
+			
+			// A corrupt vertex capacity or out degree larger than the data
+			// could hold fails without allocating arrays for it.
+			
+			byte[] badCapacity = out.toByteArray();
+			ByteBuffer.wrap(badCapacity).order(ByteOrder.LITTLE_ENDIAN)
+				.putInt(16, Integer.MAX_VALUE - 8);
+			failedAsExpected = false;
+			try {
+				BasicDigraph.readFrom(new ByteArrayInputStream(badCapacity));
+			} catch (IOException e) {
+				failedAsExpected = e.getMessage().endsWith("bad header");
+			}
+			assert (failedAsExpected);
+			
+			ByteArrayOutputStream small = new ByteArrayOutputStream();
+			new BasicDigraph(2, multiples).writeTo(small);
+			ByteBuffer badDegree = 
+					ByteBuffer.allocate(small.size() + 4).order(ByteOrder.LITTLE_ENDIAN);
+			badDegree.put(small.toByteArray(), 0, small.size() - 2);
+			badDegree.putLong(20, 6);
+			badDegree.put(new byte[] { (byte) 0xf0, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 0 });
+			failedAsExpected = false;
+			try {
+				BasicDigraph.readFrom(new ByteArrayInputStream(badDegree.array()));
+			} catch (IOException e) {
+				failedAsExpected = e.getMessage().endsWith("bad degree");
+			}
+			assert (failedAsExpected);
+		}
+		catch (IOException e) {
+			assert (false);
+		}
+		
+		System.out.println("BasicDigraph serialization passed.");
+	}
+	
+	private static void testSnapshot(Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing BasicDigraph snapshots (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// Changes to a graph after a snapshot, of every kind, do not affect 
+		// the snapshot, and the graph itself sees its changes.
+		
+		Random random = new Random(13);
+		int vertexCapacity = 50;
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, multiples);
+		for (int i = 0; i < 300; i++)
+			graph.addEdge(random.nextInt(vertexCapacity), 
+						  new BasicDigraph.Edge(random.nextInt(vertexCapacity)));
+		graph.enableReverseIndex();
+		
+		BasicDigraph copy = new BasicDigraph(vertexCapacity, multiples);
+		for (int v = 0; v < vertexCapacity; v++) {
+			BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (BasicDigraph.Edge e = it.begin(); !it.done(); e = it.next())
+				copy.addEdge(v, new BasicDigraph.Edge(e.getTo()));
+		}
+		
+		Digraph<BasicDigraph.Edge> snapshot1 = graph.snapshot();
+		for (int i = 0; i < 100; i++) {
+			int from = random.nextInt(vertexCapacity);
+			int to = random.nextInt(vertexCapacity);
+			if (random.nextBoolean())
+				graph.addEdge(from, new BasicDigraph.Edge(to));
+			else
+				graph.removeEdge(from, to);
+		}
+		Digraph<BasicDigraph.Edge> snapshot2 = graph.snapshot();
+		BasicDigraph copy2 = new BasicDigraph(vertexCapacity, multiples);
+		for (int v = 0; v < vertexCapacity; v++) {
+			BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (BasicDigraph.Edge e = it.begin(); !it.done(); e = it.next())
+				copy2.addEdge(v, new BasicDigraph.Edge(e.getTo()));
+		}
+		
+		graph.addEdges(new int[] { 0, 1, 2 }, new int[] { 3, 4, vertexCapacity + 5 });
+		for (int v = 0; v < vertexCapacity; v++) {
+			int outDegree;
+			do {
+				outDegree = graph.getOutDegree(v);
+				graph.removeEdge(v, v % 7);
+			} while (graph.getOutDegree(v) < outDegree);
+		}
+		assert (graph.getVertexCapacity() == vertexCapacity + 6);
+		
+		assertSameEdges(snapshot1, copy);
+		assertSameEdges(snapshot2, copy2);
+		assert (snapshot1.getVertexCapacity() == vertexCapacity);
+		
+		for (int v = 0; v < vertexCapacity; v++) {
+			BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+			for (BasicDigraph.Edge e = it.begin(); !it.done(); e = it.next())
+				assert (e.getTo() != v % 7);
+		}
+		
+		// A snapshot works with the algorithms, and cannot be changed.
+		
+		StrongComponents<BasicDigraph.Edge> sc = new StrongComponents<BasicDigraph.Edge>(snapshot1);
+		StrongComponents<BasicDigraph.Edge> scCopy = new StrongComponents<BasicDigraph.Edge>(copy);
+		for (int v = 0; v < vertexCapacity; v++)
+			assert (sc.isStronglyReachable(0, v) == scCopy.isStronglyReachable(0, v));
+		
+		assert (snapshot1.snapshot() == snapshot1);
+		boolean failedAsExpected = false;
+		try {
+			snapshot1.removeEdge(0, 1);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("BasicDigraph snapshots passed.");
+	}
+	
+	private static void testRemoveEdges(Digraph.EdgeMultiples multiples, boolean reverseIndex) {
+		System.out.println("Testing BasicDigraph bulk edge removal (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ ", reverse index " + (reverseIndex ? "enabled" : "disabled")
+							+ "):");
+		
+		// The result of removing edges in bulk matches a graph built with only
+		// the edges that are kept.
+		
+		Random random = new Random(17);
+		int vertexCapacity = 60;
+		int edgeCount = 600;
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			from[i] = random.nextInt(vertexCapacity);
+			to[i] = random.nextInt(vertexCapacity / 2);
+		}
+		
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, multiples);
+		graph.addEdges(from, to);
+		if (reverseIndex)
+			graph.enableReverseIndex();
+		else
+			graph.getInDegree(0); // caches the in degrees, which must be updated
+		BasicDigraph expected = new BasicDigraph(vertexCapacity, multiples);
+		for (int i = 0; i < edgeCount; i++)
+			if (((from[i] + to[i]) % 3 != 0) && (from[i] != 5))
+				expected.addEdge(from[i], new BasicDigraph.Edge(to[i]));
+		
+		// An iterator started before the removal continues after it.
+		
+		int v0 = 0;
+		while (graph.getOutDegree(v0) < 3)
+			v0++;
+		BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(v0);
+		it.begin();
+		
+		Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		
+		graph.removeEdgesFrom(5);
+		graph.removeEdgesFrom(vertexCapacity);
+		assert (graph.getOutDegree(5) == 0);
+		int removed = graph.removeEdgesIf(new Digraph.EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				return ((from + to) % 3 == 0);
+			}
+		});
+		assert (removed > 0);
+		
+		for (int v = 0; v < vertexCapacity; v++)
+			assert (graph.getInDegree(v) == expected.getInDegree(v));
+		assertSameEdges(graph, expected);
+		
+		int last = -1;
+		for (BasicDigraph.Edge e = it.next(); !it.done(); e = it.next()) {
+			assert ((v0 + e.getTo()) % 3 != 0);
+			assert (e.getTo() >= last);
+			last = e.getTo();
+		}
+		
+		// Removing nothing returns 0, and retainEdges() keeps the edges for
+		// which the predicate is true.
+		
+		assert (graph.removeEdgesIf(new Digraph.EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				return ((from + to) % 3 == 0);
+			}
+		}) == 0);
+		
+		int kept = 0;
+		for (int v = 0; v < vertexCapacity; v++)
+			for (int i = 0; i < graph.getOutDegree(v); i++)
+				if (graph.targetAt(v, i) < 10)
+					kept++;
+		graph.retainEdges(new Digraph.EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				return (to < 10);
+			}
+		});
+		int count = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			count += graph.getOutDegree(v);
+			for (int i = 0; i < graph.getOutDegree(v); i++)
+				assert (graph.targetAt(v, i) < 10);
+		}
+		assert (count == kept);
+		
+		// The snapshot still has all the original edges.
+		
+		BasicDigraph original = new BasicDigraph(vertexCapacity, multiples);
+		original.addEdges(from, to);
+		assertSameEdges(snapshot, original);
+		
+		System.out.println("BasicDigraph bulk edge removal passed.");
+	}
+	
+	private static void testMultiplicity(Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing BasicDigraph multiplicity (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// The counts match the edges as they are added and removed, with 
+		// binary search and with the hash indices of high-degree vertices.
+		
+		Random random = new Random(19);
+		int vertexCapacity = 40;
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, multiples);
+		assert (graph.getHubThreshold() == Digraph.DEFAULT_HUB_THRESHOLD);
+		graph.setHubThreshold(20);
+		
+		int[][] counts = new int[vertexCapacity][vertexCapacity];
+		for (int i = 0; i < 2000; i++) {
+			int from = (i % 2 == 0) ? 0 : random.nextInt(vertexCapacity);
+			int to = random.nextInt(vertexCapacity);
+			if (random.nextInt(3) > 0) {
+				graph.addEdge(from, new BasicDigraph.Edge(to));
+				if ((multiples == Digraph.EdgeMultiples.ENABLED) || (counts[from][to] == 0))
+					counts[from][to]++;
+			}
+			else {
+				graph.removeEdge(from, to);
+				if (counts[from][to] > 0)
+					counts[from][to]--;
+			}
+			if (i % 100 == 0)
+				assertCounts(graph, counts);
+		}
+		assertCounts(graph, counts);
+		
+		// Bulk changes also keep the counts right.
+		
+		graph.addEdges(new int[] { 0, 0, 1 }, new int[] { 39, 39, 2 });
+		counts[0][39] = (multiples == Digraph.EdgeMultiples.ENABLED) ? counts[0][39] + 2 : 1;
+		counts[1][2] = (multiples == Digraph.EdgeMultiples.ENABLED) ? counts[1][2] + 1 : 1;
+		assertCounts(graph, counts);
+		
+		graph.removeEdgesIf(new Digraph.EdgePredicate() {
+			public boolean test(int from, int index, int to) {
+				return (to == 5);
+			}
+		});
+		for (int v = 0; v < vertexCapacity; v++)
+			counts[v][5] = 0;
+		assertCounts(graph, counts);
+		
+		Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		graph.removeEdgesFrom(0);
+		assert (snapshot.getMultiplicity(0, 39) == counts[0][39]);
+		Arrays.fill(counts[0], 0);
+		assertCounts(graph, counts);
+		
+		graph.setHubThreshold(Integer.MAX_VALUE);
+		assertCounts(graph, counts);
+		graph.setHubThreshold(1);
+		assertCounts(graph, counts);
+		
+		assert (!graph.hasEdge(-1, 0));
+		assert (graph.getMultiplicity(0, vertexCapacity) == 0);
+		
+		boolean failedAsExpected = false;
+		try {
+			graph.setHubThreshold(0);
+		} catch (IllegalArgumentException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("BasicDigraph multiplicity passed.");
+	}
+	
+	private static void testCursor() {
+		System.out.println("Testing BasicDigraph cursors and neighbor copies:");
+		
+		BasicDigraph graph = new BasicDigraph(5, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdges(new int[] { 0, 0, 0, 0, 0, 0 }, new int[] { 3, 1, 3, 4, 3, 1 });
+		
+		// The cursor visits each group of edges to a common vertex once.
+		
+		int[] expectedTargets = { 1, 3, 4 };
+		int[] expectedCounts = { 2, 3, 1 };
+		BasicDigraph.AdjacencyMultipleIterator it = graph.createAdjacencyMultipleIterator(0);
+		assert (it.currentTarget() == Digraph.NO_VERTEX);
+		int groups = 0;
+		while (it.advance()) {
+			assert (it.currentTarget() == expectedTargets[groups]);
+			assert (it.currentCount() == expectedCounts[groups]);
+			groups++;
+		}
+		assert (groups == 3);
+		assert (!it.advance());
+		assert (it.currentCount() == 0);
+		
+		// Removing the current group's edges moves the cursor on correctly.
+		
+		it = graph.createAdjacencyMultipleIterator(0);
+		assert (it.advance() && (it.currentTarget() == 1));
+		graph.removeEdge(0, 1);
+		graph.removeEdge(0, 1);
+		assert (it.advance() && (it.currentTarget() == 3));
+		
+		// The same works for a read-only graph and a snapshot.
+		
+		CompactDigraph compact = graph.freeze();
+		CompactDigraph.AdjacencyMultipleIterator itc = compact.createAdjacencyMultipleIterator(0);
+		assert (itc.advance() && (itc.currentTarget() == 3) && (itc.currentCount() == 3));
+		assert (itc.advance() && (itc.currentTarget() == 4) && (itc.currentCount() == 1));
+		assert (!itc.advance());
+		Digraph<BasicDigraph.Edge>.AdjacencyMultipleIterator its = 
+				graph.snapshot().createAdjacencyMultipleIterator(0);
+		assert (its.advance() && (its.currentTarget() == 3) && (its.currentCount() == 3));
+		
+		// Neighbors are copied into a caller's array, as far as they fit.
+		
+		int[] neighbors = new int[2];
+		assert (graph.getNeighbors(0, neighbors) == 4);
+		assert ((neighbors[0] == 3) && (neighbors[1] == 3));
+		neighbors = new int[4];
+		assert (compact.getNeighbors(0, neighbors) == 4);
+		assert (Arrays.equals(neighbors, new int[] { 3, 3, 3, 4 }));
+		assert (graph.getNeighbors(2, neighbors) == 0);
+		
+		boolean failedAsExpected = false;
+		try {
+			graph.getNeighbors(5, neighbors);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("BasicDigraph cursors and neighbor copies passed.");
+	}
+	
+	private static class LabeledEdge extends BasicDigraph.Edge {
+		LabeledEdge(int to, String label) {
+			super(to);
+			this.label = label;
+		}
+		
+		String label;
+	}
+	
+	private static void testEdgeSubclass() {
+		System.out.println("Testing BasicDigraph with an edge subclass:");
+		
+		// Iterators create plain edges until an edge of a derived class is 
+		// added, after which the added edges themselves are returned.
+		
+		BasicDigraph graph = new BasicDigraph(3, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(0);
+		assert (it.begin() != it.begin());
+		Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		
+		LabeledEdge labeled = new LabeledEdge(2, "a");
+		graph.addEdge(0, labeled);
+		it = graph.createAdjacencyIterator(0);
+		BasicDigraph.Edge e = it.begin();
+		assert ((e.getTo() == 1) && (e == it.begin()));
+		assert (((LabeledEdge) it.next()).label.equals("a"));
+		
+		// Bulk adding and removing keep the stored edges.
+		
+		graph.addEdges(new int[] { 0, 1 }, new int[] { 0, 2 });
+		graph.removeEdge(0, 1);
+		it = graph.createAdjacencyIterator(0);
+		assert (it.begin().getTo() == 0);
+		assert (it.next() == labeled);
+		assert (graph.createAdjacencyIterator(1).begin().getTo() == 2);
+		
+		// The earlier snapshot keeps creating its edges.
+		
+		BasicDigraph.Edge s = snapshot.createAdjacencyIterator(0).begin();
+		assert ((s.getTo() == 1) && !(s instanceof LabeledEdge));
+		assert (snapshot.getOutDegree(0) == 1);
+		
+		// So does a ConcurrentDigraph.
+		
+		ConcurrentDigraph concurrent = new ConcurrentDigraph(3, Digraph.EdgeMultiples.DISABLED);
+		concurrent.addEdge(0, new BasicDigraph.Edge(1));
+		concurrent.addEdge(0, labeled);
+		ConcurrentDigraph.AdjacencyIterator cit = concurrent.createAdjacencyIterator(0);
+		assert (cit.begin().getTo() == 1);
+		assert (cit.next() == labeled);
+		
+		System.out.println("BasicDigraph with an edge subclass passed.");
+	}
+	
+	private static void testStreams() {
+		System.out.println("Testing BasicDigraph streams:");
+		
+		// Vertex 0 is a hub with half the edges.
+		
+		Random random = new Random(29);
+		int vertexCapacity = 1000;
+		int edgeCount = 20000;
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			from[i] = (i % 2 == 0) ? 0 : random.nextInt(vertexCapacity);
+			to[i] = random.nextInt(vertexCapacity);
+		}
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdges(from, to);
+		
+		assert (graph.vertices().count() == vertexCapacity);
+		assert (graph.vertices().parallel().sum() == (long) vertexCapacity * (vertexCapacity - 1) / 2);
+		assert (graph.vertices().parallel().mapToLong(v -> graph.getOutDegree(v)).sum() == edgeCount);
+		
+		// The edges come in order, sequentially and in parallel.
+		
+		List<Digraph.EdgePair> edges = graph.edges().collect(Collectors.toList());
+		assert (edges.size() == edgeCount);
+		int k = 0;
+		for (int v = 0; v < vertexCapacity; v++)
+			for (int i = 0; i < graph.getOutDegree(v); i++) {
+				Digraph.EdgePair pair = edges.get(k++);
+				assert ((pair.getFrom() == v) && (pair.getTo() == graph.targetAt(v, i)));
+			}
+		assert (graph.edges().parallel().collect(Collectors.toList()).equals(edges));
+		assert (graph.edges().parallel().filter(e -> e.getFrom() == 0).count() == graph.getOutDegree(0));
+		
+		// Splitting balances the edges, not the vertices, so the hub ends up
+		// in a small range.
+		
+		Spliterator<Digraph.EdgePair> suffix = graph.edges().spliterator();
+		assert (suffix.estimateSize() == edgeCount);
+		Spliterator<Digraph.EdgePair> prefix = suffix.trySplit();
+		assert (prefix.estimateSize() + suffix.estimateSize() == edgeCount);
+		assert (prefix.estimateSize() > edgeCount / 4);
+		assert (suffix.estimateSize() > edgeCount / 4);
+		
+		// A read-only graph streams the same edges.
+		
+		assert (graph.freeze().edges().parallel().collect(Collectors.toList()).equals(edges));
+		
+		System.out.println("BasicDigraph streams passed.");
+	}
+	
+	private static void assertCounts(BasicDigraph graph, int[][] counts) {
+		for (int v = 0; v < counts.length; v++)
+			for (int w = 0; w < counts.length; w++) {
+				assert (graph.getMultiplicity(v, w) == counts[v][w]);
+				assert (graph.hasEdge(v, w) == (counts[v][w] > 0));
+				int i = graph.indexOf(v, w);
+				assert ((i == Digraph.NO_VERTEX) == (counts[v][w] == 0));
+				assert ((i == Digraph.NO_VERTEX) || (graph.targetAt(v, i) == w));
+			}
+	}
+	
+	private static void assertSameEdges(Digraph<BasicDigraph.Edge> graph, BasicDigraph expected) {
+		for (int v = 0; v < expected.getVertexCapacity(); v++) {
+			assert (graph.getOutDegree(v) == expected.getOutDegree(v));
+			assert (graph.getInDegree(v) == expected.getInDegree(v));
+			Digraph<BasicDigraph.Edge>.AdjacencyIterator it1 = graph.createAdjacencyIterator(v);
+			BasicDigraph.AdjacencyIterator it2 = expected.createAdjacencyIterator(v);
+			BasicDigraph.Edge e2 = it2.begin();
+			for (BasicDigraph.Edge e1 = it1.begin(); !it1.done(); e1 = it1.next()) {
+				assert (e1.getTo() == e2.getTo());
+				e2 = it2.next();
+			}
+			assert (it2.done());
+			
+			int inDegree = 0;
+			Digraph<BasicDigraph.Edge>.InAdjacencyIterator in = graph.createInAdjacencyIterator(v);
+			for (in.begin(); !in.done(); in.next())
+				inDegree++;
+			assert (inDegree == expected.getInDegree(v));
+		}
+	}
 }
@@ -0,0 +1,199 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// Confidence tests for the CompactDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class CompactDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing CompactDigraph:");
+		
+		testSimple();
+		testMultiples();
+		testAlgorithms();
+
+		System.out.println("CompactDigraph passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple CompactDigraph behaviors:");
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(0, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(4, new BasicDigraph.Edge(0));
+		
+		CompactDigraph compact = graph.freeze();
+		assert (compact.getVertexCapacity() == 6);
+		assert (compact.getEdgeCount() == 5);
+		assert (compact.getEdgeMultiples() == Digraph.EdgeMultiples.DISABLED);
+		
+		// The edges are sorted by the vertex they point to.
+		
+		CompactDigraph.AdjacencyIterator it0 = compact.createAdjacencyIterator(0);
+		int expectedTo = 1;
+		for (BasicDigraph.Edge edge = it0.begin(); !it0.done(); edge = it0.next())
+			assert (edge.getTo() == expectedTo++);
+		assert (expectedTo == 4);
+
+		// The index of the iterator's current edge identifies it for targetAt().
+		
+		for (int v = 0; v < compact.getVertexCapacity(); v++) {
+			CompactDigraph.AdjacencyIterator it = compact.createAdjacencyIterator(v);
+			int index = 0;
+			for (BasicDigraph.Edge edge = it.begin(); !it.done(); edge = it.next()) {
+				assert (it.getIndex() == index++);
+				assert (compact.targetAt(v, it.getIndex()) == edge.getTo());
+			}
+			assert (index == compact.getOutDegree(v));
+			assert (it.getIndex() == Digraph.NO_VERTEX);
+		}
+		
+		CompactDigraph.AdjacencyIterator it1 = compact.createAdjacencyIterator(1);
+		it1.begin();
+		assert (it1.done());
+		
+		assert (compact.getOutDegree(0) == 3);
+		assert (compact.getInDegree(0) == 1);
+		assert (compact.getOutDegree(3) == 0);
+		assert (compact.getInDegree(3) == 2);
+		assert (compact.getOutDegree(5) == 0);
+		assert (compact.getInDegree(5) == 0);
+		assert (compact.isSink(3));
+		assert (!compact.isSink(4));
+		
+		CompactDigraph.InAdjacencyIterator in3 = compact.createInAdjacencyIterator(3);
+		assert (compact.hasReverseIndex());
+		assert (in3.begin() == 0);
+		assert (in3.next() == 2);
+		assert (in3.next() == Digraph.NO_VERTEX);
+		assert (in3.done());
+		CompactDigraph.InAdjacencyIterator in4 = compact.createInAdjacencyIterator(4);
+		assert (in4.begin() == Digraph.NO_VERTEX);
+		
+		boolean failedAsExpected = false;
+		try {
+			compact.createAdjacencyIterator(6);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// The snapshot is immutable, and is not affected by changes to the
+		// graph it was made from.
+		
+		failedAsExpected = false;
+		try {
+			compact.removeEdge(0, 1);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		graph.removeEdge(0, 1);
+		graph.addEdge(5, new BasicDigraph.Edge(4));
+		assert (compact.getOutDegree(0) == 3);
+		assert (compact.getOutDegree(5) == 0);
+		
+		System.out.println("CompactDigraph simple behaviors passed.");
+	}
+	
+	private static void testMultiples() {
+		System.out.println("Testing CompactDigraph edge multiples:");
+		
+		WeightedDigraph graph = new WeightedDigraph(4, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 1.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(1, 2.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 3.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(3, 4.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 5.0f));
+		
+		CompactDigraph compact = new CompactDigraph(graph);
+		assert (compact.getEdgeMultiples() == Digraph.EdgeMultiples.ENABLED);
+		assert (compact.getOutDegree(0) == 5);
+		assert (compact.getInDegree(2) == 3);
+		
+		int[] expectedCounts = { 0, 1, 3, 1 };
+		int groups = 0;
+		CompactDigraph.AdjacencyMultipleIterator it = compact.createAdjacencyMultipleIterator(0);
+		for (ArrayList<BasicDigraph.Edge> edges = it.begin(); !it.done(); edges = it.next()) {
+			int to = edges.get(0).getTo();
+			for (BasicDigraph.Edge edge : edges)
+				assert (edge.getTo() == to);
+			assert (edges.size() == expectedCounts[to]);
+			groups++;
+		}
+		assert (groups == 3);
+		
+		for (int to = 0; to < 4; to++) {
+			assert (compact.getMultiplicity(0, to) == expectedCounts[to]);
+			assert (compact.hasEdge(0, to) == (expectedCounts[to] > 0));
+		}
+		assert (!compact.hasEdge(0, 4));
+		
+		System.out.println("CompactDigraph edge multiples passed.");
+	}
+	
+	private static void testAlgorithms() {
+		System.out.println("Testing algorithms on CompactDigraph:");
+		
+		BasicDigraph graph = new BasicDigraph(7, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(3, new BasicDigraph.Edge(4));
+		graph.addEdge(4, new BasicDigraph.Edge(2));
+		graph.addEdge(5, new BasicDigraph.Edge(6));
+		graph.addEdge(6, new BasicDigraph.Edge(5));
+		
+		CompactDigraph compact = graph.freeze();
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new StrongComponents<BasicDigraph.Edge>(graph);
+		StrongComponents<BasicDigraph.Edge> scCompact = 
+				new StrongComponents<BasicDigraph.Edge>(compact);
+		for (int i = 0; i < 7; i++)
+			for (int j = 0; j < 7; j++)
+				assert (sc.isStronglyReachable(i, j) == scCompact.isStronglyReachable(i, j));
+		assert (scCompact.isStronglyReachable(0, 4));
+		assert (scCompact.isStronglyReachable(5, 6));
+		assert (!scCompact.isStronglyReachable(4, 5));
+		
+		EulerPaths<BasicDigraph.Edge> euler = new EulerPaths<BasicDigraph.Edge>(compact);
+		ArrayList<ArrayDeque<Integer>> paths = euler.getPaths();
+		assert (paths.size() == 2);
+		assert (paths.get(0).size() == 7);
+		assert (paths.get(1).size() == 3);
+		
+		System.out.println("Algorithms on CompactDigraph passed.");
+	}
+}
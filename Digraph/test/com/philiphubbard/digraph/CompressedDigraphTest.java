@@ -0,0 +1,307 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Confidence tests for the CompressedDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class CompressedDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing CompressedDigraph:");
+		
+		testSimple();
+		testMultiples();
+		testRandom();
+		testAlgorithms();
+		testSize();
+
+		System.out.println("CompressedDigraph passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple CompressedDigraph behaviors:");
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(0, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(4, new BasicDigraph.Edge(0));
+		
+		CompressedDigraph compressed = new CompressedDigraph(graph);
+		assert (compressed.getVertexCapacity() == 6);
+		assert (compressed.getEdgeCount() == 5);
+		assert (compressed.getEdgeMultiples() == Digraph.EdgeMultiples.DISABLED);
+		
+		CompressedDigraph.AdjacencyIterator it0 = compressed.createAdjacencyIterator(0);
+		int expectedTo = 1;
+		for (BasicDigraph.Edge edge = it0.begin(); !it0.done(); edge = it0.next())
+			assert (edge.getTo() == expectedTo++);
+		assert (expectedTo == 4);
+
+		// The index of the iterator's current edge identifies it for targetAt().
+		
+		for (int v = 0; v < compressed.getVertexCapacity(); v++) {
+			CompressedDigraph.AdjacencyIterator it = compressed.createAdjacencyIterator(v);
+			int index = 0;
+			for (BasicDigraph.Edge edge = it.begin(); !it.done(); edge = it.next()) {
+				assert (it.getIndex() == index++);
+				assert (compressed.targetAt(v, it.getIndex()) == edge.getTo());
+			}
+			assert (index == compressed.getOutDegree(v));
+			assert (it.getIndex() == Digraph.NO_VERTEX);
+		}
+		
+		// The edge from 4 to 0 has a negative first difference.
+		
+		assert (compressed.targetAt(4, 0) == 0);
+		assert (compressed.targetAt(0, 2) == 3);
+		
+		CompressedDigraph.AdjacencyIterator it1 = compressed.createAdjacencyIterator(1);
+		it1.begin();
+		assert (it1.done());
+		
+		assert (compressed.getOutDegree(0) == 3);
+		assert (compressed.getInDegree(0) == 1);
+		assert (compressed.getOutDegree(3) == 0);
+		assert (compressed.getInDegree(3) == 2);
+		assert (compressed.isSink(3));
+		assert (!compressed.isSink(4));
+		
+		assert (!compressed.hasReverseIndex());
+		CompressedDigraph.InAdjacencyIterator in3 = compressed.createInAdjacencyIterator(3);
+		assert (compressed.hasReverseIndex());
+		assert (in3.begin() == 0);
+		assert (in3.next() == 2);
+		assert (in3.next() == Digraph.NO_VERTEX);
+		assert (in3.done());
+		CompressedDigraph.InAdjacencyIterator in4 = compressed.createInAdjacencyIterator(4);
+		assert (in4.begin() == Digraph.NO_VERTEX);
+		
+		boolean failedAsExpected = false;
+		try {
+			compressed.createAdjacencyIterator(6);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			compressed.removeEdge(0, 1);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		graph.removeEdge(0, 1);
+		assert (compressed.getOutDegree(0) == 3);
+		
+		// A frozen copy has the same edges.
+		
+		CompactDigraph compact = compressed.freeze();
+		assert (compact.getEdgeCount() == 5);
+		assert (compact.targetAt(0, 0) == 1);
+		
+		System.out.println("CompressedDigraph simple behaviors passed.");
+	}
+	
+	private static void testMultiples() {
+		System.out.println("Testing CompressedDigraph edge multiples:");
+		
+		WeightedDigraph graph = new WeightedDigraph(4, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 1.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(1, 2.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 3.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(3, 4.0f));
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 5.0f));
+		
+		CompressedDigraph compressed = new CompressedDigraph(graph);
+		assert (compressed.getEdgeMultiples() == Digraph.EdgeMultiples.ENABLED);
+		assert (compressed.getOutDegree(0) == 5);
+		assert (compressed.getInDegree(2) == 3);
+		
+		int[] expectedCounts = { 0, 1, 3, 1 };
+		int groups = 0;
+		CompressedDigraph.AdjacencyMultipleIterator it = 
+				compressed.createAdjacencyMultipleIterator(0);
+		for (ArrayList<BasicDigraph.Edge> edges = it.begin(); !it.done(); edges = it.next()) {
+			int to = edges.get(0).getTo();
+			for (BasicDigraph.Edge edge : edges)
+				assert (edge.getTo() == to);
+			assert (edges.size() == expectedCounts[to]);
+			groups++;
+		}
+		assert (groups == 3);
+		
+		for (int to = 0; to < 4; to++)
+			assert (compressed.getMultiplicity(0, to) == expectedCounts[to]);
+		
+		CompressedDigraph.InAdjacencyIterator in2 = compressed.createInAdjacencyIterator(2);
+		int count = 0;
+		for (int v = in2.begin(); !in2.done(); v = in2.next()) {
+			assert (v == 0);
+			count++;
+		}
+		assert (count == 3);
+		
+		System.out.println("CompressedDigraph edge multiples passed.");
+	}
+	
+	// Compares a random graph, with vertices well past INDEX_INTERVAL and
+	// far-apart neighbors, with its compressed copy.
+	
+	private static void testRandom() {
+		System.out.println("Testing random CompressedDigraph:");
+		
+		int vertexCount = 5 * CompressedDigraph.INDEX_INTERVAL + 7;
+		Random random = new Random(21);
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.ENABLED);
+		for (int i = 0; i < 8 * vertexCount; i++) {
+			int from = random.nextInt(vertexCount);
+			if (from % 3 != 0)
+				graph.addEdge(from, new BasicDigraph.Edge(random.nextInt(vertexCount)));
+		}
+		
+		CompressedDigraph compressed = new CompressedDigraph(graph);
+		long edgeCount = 0;
+		for (int v = 0; v < vertexCount; v++)
+			edgeCount += graph.getOutDegree(v);
+		assert (compressed.getEdgeCount() == edgeCount);
+		int[] neighbors = new int[vertexCount];
+		for (int v = 0; v < vertexCount; v++) {
+			assert (compressed.getOutDegree(v) == graph.getOutDegree(v));
+			assert (compressed.getInDegree(v) == graph.getInDegree(v));
+			int n = compressed.getNeighbors(v, neighbors);
+			assert (n == graph.getOutDegree(v));
+			for (int i = 0; i < n; i++) {
+				assert (neighbors[i] == graph.targetAt(v, i));
+				assert (compressed.targetAt(v, i) == neighbors[i]);
+			}
+			
+			CompressedDigraph.AdjacencyIterator it = compressed.createAdjacencyIterator(v);
+			int i = 0;
+			for (BasicDigraph.Edge edge = it.begin(); !it.done(); edge = it.next())
+				assert (edge.getTo() == neighbors[i++]);
+			assert (i == n);
+			
+			Digraph<BasicDigraph.Edge>.InAdjacencyIterator expected = 
+					graph.createInAdjacencyIterator(v);
+			CompressedDigraph.InAdjacencyIterator actual = 
+					compressed.createInAdjacencyIterator(v);
+			int u = actual.begin();
+			for (int w = expected.begin(); !expected.done(); w = expected.next()) {
+				assert (u == w);
+				u = actual.next();
+			}
+			assert (actual.done());
+		}
+		
+		System.out.println("Random CompressedDigraph passed.");
+	}
+	
+	private static void testAlgorithms() {
+		System.out.println("Testing algorithms on CompressedDigraph:");
+		
+		BasicDigraph graph = new BasicDigraph(7, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(3, new BasicDigraph.Edge(4));
+		graph.addEdge(4, new BasicDigraph.Edge(2));
+		graph.addEdge(5, new BasicDigraph.Edge(6));
+		graph.addEdge(6, new BasicDigraph.Edge(5));
+		
+		CompressedDigraph compressed = new CompressedDigraph(graph);
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new StrongComponents<BasicDigraph.Edge>(graph);
+		StrongComponents<BasicDigraph.Edge> scCompressed = 
+				new StrongComponents<BasicDigraph.Edge>(compressed);
+		for (int i = 0; i < 7; i++)
+			for (int j = 0; j < 7; j++)
+				assert (sc.isStronglyReachable(i, j) == scCompressed.isStronglyReachable(i, j));
+		
+		EulerPaths<BasicDigraph.Edge> euler = new EulerPaths<BasicDigraph.Edge>(compressed);
+		ArrayList<ArrayDeque<Integer>> paths = euler.getPaths();
+		assert (paths.size() == 2);
+		assert (paths.get(0).size() == 7);
+		assert (paths.get(1).size() == 3);
+		
+		System.out.println("Algorithms on CompressedDigraph passed.");
+	}
+	
+	// A grid whose vertices are shuffled compresses poorly, but after 
+	// reordering most differences fit in one byte.
+	
+	private static void testSize() {
+		System.out.println("Testing CompressedDigraph size:");
+		
+		int side = 40;
+		int vertexCount = side * side;
+		int[] shuffle = new int[vertexCount];
+		for (int v = 0; v < vertexCount; v++)
+			shuffle[v] = v;
+		Random random = new Random(7);
+		for (int v = vertexCount - 1; v > 0; v--) {
+			int w = random.nextInt(v + 1);
+			int t = shuffle[v];
+			shuffle[v] = shuffle[w];
+			shuffle[w] = t;
+		}
+		
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.DISABLED);
+		for (int r = 0; r < side; r++) {
+			for (int c = 0; c < side; c++) {
+				int v = shuffle[r * side + c];
+				if (c + 1 < side)
+					graph.addEdge(v, new BasicDigraph.Edge(shuffle[r * side + c + 1]));
+				if (r + 1 < side)
+					graph.addEdge(v, new BasicDigraph.Edge(shuffle[(r + 1) * side + c]));
+			}
+		}
+		
+		CompressedDigraph shuffled = new CompressedDigraph(graph);
+		long edgeCount = shuffled.getEdgeCount();
+		assert (edgeCount == 2 * side * (side - 1));
+		BasicDigraph reordered = 
+				graph.reorder(Reordering.Ordering.REVERSE_CUTHILL_MCKEE).getGraph();
+		CompressedDigraph compressed = new CompressedDigraph(reordered);
+		assert (compressed.getEdgeCount() == edgeCount);
+		assert (compressed.getEdgeBytes() < shuffled.getEdgeBytes());
+		
+		// Even with each vertex's degree and byte count, the edges take less
+		// space than the four bytes per edge of an int array.
+		
+		assert (compressed.getEdgeBytes() < 4 * edgeCount);
+		
+		System.out.println("CompressedDigraph size passed.");
+	}
+}
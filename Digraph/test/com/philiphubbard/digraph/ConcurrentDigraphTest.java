@@ -0,0 +1,342 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Confidence tests for the ConcurrentDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class ConcurrentDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing ConcurrentDigraph:");
+		
+		testSimple();
+		testConcurrentAdd(Digraph.EdgeMultiples.DISABLED);
+		testConcurrentAdd(Digraph.EdgeMultiples.ENABLED);
+		testReadersAndWriters();
+		testSnapshotReaders();
+
+		System.out.println("ConcurrentDigraph passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple ConcurrentDigraph behaviors:");
+		
+		ConcurrentDigraph graph = new ConcurrentDigraph(4, Digraph.EdgeMultiples.DISABLED, 3);
+		assert (graph.hasReverseIndex());
+		
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(0, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(200));
+		assert (graph.getVertexCapacity() == 201);
+		assert (graph.getOutDegree(0) == 2);
+		assert (graph.getInDegree(1) == 2);
+		assert (graph.getInDegree(200) == 1);
+		assert (graph.isSink(200));
+		
+		ConcurrentDigraph.InAdjacencyIterator in1 = graph.createInAdjacencyIterator(1);
+		assert (in1.begin() == 0);
+		assert (in1.next() == 2);
+		assert (in1.next() == Digraph.NO_VERTEX);
+		
+		// An iterator keeps its place when edges are added and removed.
+		
+		ConcurrentDigraph.AdjacencyIterator it0 = graph.createAdjacencyIterator(0);
+		assert (it0.begin().getTo() == 1);
+		graph.removeEdge(0, 1);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		assert (it0.next().getTo() == 3);
+		assert (it0.next() == null);
+		assert (it0.done());
+		
+		CompactDigraph frozen = graph.freeze();
+		assert (frozen.getEdgeCount() == 4);
+		
+		Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		graph.removeEdge(1, 200);
+		assert (snapshot.getOutDegree(1) == 1);
+		assert (snapshot.getInDegree(200) == 1);
+		assert (graph.getInDegree(200) == 0);
+		
+		boolean failedAsExpected = false;
+		try {
+			new ConcurrentDigraph(4, Digraph.EdgeMultiples.DISABLED, 0);
+		} catch (IllegalArgumentException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("ConcurrentDigraph simple behaviors passed.");
+	}
+	
+	private static void testConcurrentAdd(final Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing ConcurrentDigraph adding edges from many threads (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// Threads add edges at the same time, some of them beyond the initial
+		// capacity.  The result matches adding the edges in one thread.
+		
+		final int threadCount = 8;
+		final int edgeCount = 20000;
+		final int vertexCapacity = 1000;
+		final ConcurrentDigraph graph = new ConcurrentDigraph(vertexCapacity, multiples);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						Random random = new Random(seed);
+						for (int i = 0; i < edgeCount; i++) {
+							int from = random.nextInt(2 * vertexCapacity);
+							int to = random.nextInt(2 * vertexCapacity);
+							graph.addEdge(from, new BasicDigraph.Edge(to));
+						}
+					}
+					catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		join(threads);
+		assert (failure.get() == null);
+		
+		BasicDigraph expected = new BasicDigraph(vertexCapacity, multiples);
+		for (int t = 0; t < threadCount; t++) {
+			Random random = new Random(t);
+			for (int i = 0; i < edgeCount; i++) {
+				int from = random.nextInt(2 * vertexCapacity);
+				int to = random.nextInt(2 * vertexCapacity);
+				expected.addEdge(from, new BasicDigraph.Edge(to));
+			}
+		}
+		
+		assert (graph.getVertexCapacity() == expected.getVertexCapacity());
+		for (int v = 0; v < expected.getVertexCapacity(); v++) {
+			assert (graph.getOutDegree(v) == expected.getOutDegree(v));
+			assert (graph.getInDegree(v) == expected.getInDegree(v));
+			BasicDigraph.AdjacencyIterator it1 = expected.createAdjacencyIterator(v);
+			ConcurrentDigraph.AdjacencyIterator it2 = graph.createAdjacencyIterator(v);
+			BasicDigraph.Edge e2 = it2.begin();
+			for (BasicDigraph.Edge e1 = it1.begin(); !it1.done(); e1 = it1.next()) {
+				assert (e1.getTo() == e2.getTo());
+				e2 = it2.next();
+			}
+			assert (it2.done());
+		}
+		
+		System.out.println("ConcurrentDigraph adding edges from many threads passed.");
+	}
+	
+	private static void testReadersAndWriters() {
+		System.out.println("Testing ConcurrentDigraph with readers and writers:");
+		
+		// Writers add and remove edges from their own vertices, while readers
+		// iterate over all the vertices.  An iteration sees sorted edges, and 
+		// the degrees agree afterwards.
+		
+		final int threadCount = 4;
+		final int vertexCapacity = 512;
+		final ConcurrentDigraph graph = 
+				new ConcurrentDigraph(vertexCapacity, Digraph.EdgeMultiples.ENABLED);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		
+		Thread[] threads = new Thread[2 * threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						Random random = new Random(seed);
+						for (int i = 0; i < 20000; i++) {
+							int from = threadCount * random.nextInt(vertexCapacity / threadCount) + seed;
+							int to = random.nextInt(vertexCapacity);
+							if (random.nextInt(3) == 0)
+								graph.removeEdge(from, to);
+							else
+								graph.addEdge(from, new BasicDigraph.Edge(to));
+						}
+					}
+					catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[threadCount + t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int pass = 0; pass < 20; pass++)
+							for (int v = 0; v < vertexCapacity; v++) {
+								int previous = 0;
+								ConcurrentDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(v);
+								for (BasicDigraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+									if (e.getTo() < previous)
+										throw new IllegalStateException("edges out of order");
+									previous = e.getTo();
+								}
+								graph.getInDegree(v);
+							}
+					}
+					catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		join(threads);
+		assert (failure.get() == null);
+		
+		int outTotal = 0;
+		int inTotal = 0;
+		for (int v = 0; v < vertexCapacity; v++) {
+			outTotal += graph.getOutDegree(v);
+			inTotal += graph.getInDegree(v);
+			int inDegree = 0;
+			ConcurrentDigraph.InAdjacencyIterator in = graph.createInAdjacencyIterator(v);
+			for (in.begin(); !in.done(); in.next())
+				inDegree++;
+			assert (inDegree == graph.getInDegree(v));
+		}
+		assert (outTotal == inTotal);
+		assert (outTotal > 0);
+		
+		System.out.println("ConcurrentDigraph with readers and writers passed.");
+	}
+	
+	private static void testSnapshotReaders() {
+		System.out.println("Testing ConcurrentDigraph snapshots with many readers:");
+		
+		// Readers share snapshots, whose hash indices, cached in degrees and
+		// reverse indices are built on the first reads, while a writer keeps
+		// changing the graphs and reading them with targetAt().  The readers
+		// see the graphs as they were when the snapshots were made.
+		
+		final int threadCount = 4;
+		final int vertexCapacity = 256;
+		final ConcurrentDigraph graph = 
+				new ConcurrentDigraph(vertexCapacity, Digraph.EdgeMultiples.ENABLED);
+		final BasicDigraph basic = new BasicDigraph(vertexCapacity, Digraph.EdgeMultiples.ENABLED);
+		graph.setHubThreshold(4);
+		basic.setHubThreshold(4);
+		Random random = new Random(7);
+		for (int i = 0; i < 4 * vertexCapacity; i++) {
+			int from = random.nextInt(vertexCapacity / 4);
+			int to = random.nextInt(vertexCapacity);
+			graph.addEdge(from, new BasicDigraph.Edge(to));
+			basic.addEdge(from, new BasicDigraph.Edge(to));
+		}
+		
+		final CompactDigraph expected = basic.freeze();
+		final Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		final Digraph<BasicDigraph.Edge> basicSnapshot = basic.snapshot();
+		final Digraph<BasicDigraph.Edge> indexedSnapshot = basic.snapshot();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		
+		Thread[] threads = new Thread[threadCount + 1];
+		for (int t = 0; t < threadCount; t++) {
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int v = 0; v < vertexCapacity; v++) {
+							for (int w = 0; w < vertexCapacity; w++) {
+								int count = expected.getMultiplicity(v, w);
+								if ((snapshot.getMultiplicity(v, w) != count) ||
+										(basicSnapshot.hasEdge(v, w) != (count > 0)))
+									throw new IllegalStateException("wrong edge count");
+							}
+							if (basicSnapshot.getInDegree(v) != expected.getInDegree(v))
+								throw new IllegalStateException("wrong in degree");
+							Digraph<BasicDigraph.Edge>.InAdjacencyIterator it = 
+									indexedSnapshot.createInAdjacencyIterator(v);
+							int in = 0;
+							for (int u = it.begin(); !it.done(); u = it.next())
+								if (expected.hasEdge(u, v))
+									in++;
+							if ((in != expected.getInDegree(v)) ||
+									(indexedSnapshot.getInDegree(v) != in))
+								throw new IllegalStateException("wrong reverse index");
+						}
+					}
+					catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+		}
+		threads[threadCount] = new Thread(new Runnable() {
+			public void run() {
+				try {
+					Random random = new Random(11);
+					for (int i = 0; i < 20000; i++) {
+						int from = random.nextInt(vertexCapacity / 4);
+						int to = random.nextInt(vertexCapacity);
+						graph.addEdge(from, new BasicDigraph.Edge(to));
+						if (graph.targetAt(from, 0) > to)
+							throw new IllegalStateException("edges out of order");
+						graph.removeEdge(random.nextInt(vertexCapacity / 4), to);
+					}
+				}
+				catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		});
+		for (Thread thread : threads)
+			thread.start();
+		join(threads);
+		assert (failure.get() == null);
+		
+		boolean failedAsExpected = false;
+		try {
+			snapshot.setHubThreshold(8);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("ConcurrentDigraph snapshots with many readers passed.");
+	}
+	
+	private static void join(Thread[] threads) {
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				assert (false);
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Random;
+
+// Confidence tests for the DegreeStatistics class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class DegreeStatisticsTest {
+
+	public static void test() {
+		System.out.println("Testing DegreeStatistics:");
+		
+		testSimple();
+		testLarge();
+		
+		System.out.println("DegreeStatistics passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple DegreeStatistics behaviors:");
+		
+		// 0 -> 1 -> 2 -> 3, 0 -> 2 and 4 -> 2, with 5 isolated.
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(2));
+		graph.addEdge(4, new BasicDigraph.Edge(2));
+		
+		DegreeStatistics stats = new DegreeStatistics(graph);
+		assert (stats.getVertexCount() == 6);
+		assert (stats.getEdgeCount() == 5);
+		assert (stats.getMaxInDegree() == 3);
+		assert (stats.getMaxOutDegree() == 2);
+		assert (stats.getMeanDegree() == 5.0 / 6.0);
+		assert (stats.getSourceCount() == 2);
+		assert (stats.getSinkCount() == 1);
+		assert (stats.getIsolatedCount() == 1);
+		assert (stats.getBranchCount() == 2);
+		
+		int[] expectedIn = { 3, 2, 0, 1 };
+		int[] in = stats.getInDegreeHistogram();
+		assert (in.length == expectedIn.length);
+		for (int d = 0; d < in.length; d++)
+			assert (in[d] == expectedIn[d]);
+		int[] expectedOut = { 2, 3, 1 };
+		int[] out = stats.getOutDegreeHistogram();
+		assert (out.length == expectedOut.length);
+		for (int d = 0; d < out.length; d++)
+			assert (out[d] == expectedOut[d]);
+		
+		// The histograms returned are copies, and later changes to the graph
+		// do not affect the statistics.
+		
+		in[0] = 100;
+		assert (stats.getInDegreeHistogram()[0] == 3);
+		graph.addEdge(5, new BasicDigraph.Edge(5));
+		assert (stats.getIsolatedCount() == 1);
+		
+		// The same statistics come from other kinds of graphs.
+		
+		graph.removeEdge(5, 5);
+		DegreeStatistics compact = new DegreeStatistics(graph.freeze());
+		assert (compact.getEdgeCount() == 5);
+		assert (compact.getSourceCount() == 2);
+		assert (compact.getBranchCount() == 2);
+		
+		DegreeStatistics empty = 
+				new DegreeStatistics(new BasicDigraph(0, Digraph.EdgeMultiples.DISABLED));
+		assert (empty.getVertexCount() == 0);
+		assert (empty.getMeanDegree() == 0.0);
+		assert (empty.getMaxOutDegree() == 0);
+		
+		System.out.println("Simple DegreeStatistics behaviors passed.");
+	}
+	
+	// Compares the statistics of a graph with enough vertices to be divided
+	// among several tasks against statistics computed directly.
+	
+	private static void testLarge() {
+		System.out.println("Testing large DegreeStatistics:");
+		
+		int vertexCount = 20000;
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.ENABLED);
+		Random random = new Random(22);
+		for (int i = 0; i < 3 * vertexCount; i++) {
+			int from = random.nextInt(vertexCount);
+			int to = (from % 7 == 0) ? 0 : random.nextInt(vertexCount);
+			graph.addEdge(from, new BasicDigraph.Edge(to));
+		}
+		
+		DegreeStatistics stats = new DegreeStatistics(graph);
+		
+		int maxIn = 0;
+		int maxOut = 0;
+		int sources = 0;
+		int sinks = 0;
+		int branches = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			int in = graph.getInDegree(v);
+			int out = graph.getOutDegree(v);
+			maxIn = Math.max(maxIn, in);
+			maxOut = Math.max(maxOut, out);
+			if ((in == 0) && (out > 0))
+				sources++;
+			if ((in > 0) && (out == 0))
+				sinks++;
+			if ((in > 1) || (out > 1))
+				branches++;
+		}
+		assert (stats.getEdgeCount() == 3 * vertexCount);
+		assert (stats.getMaxInDegree() == maxIn);
+		assert (stats.getMaxOutDegree() == maxOut);
+		assert (stats.getSourceCount() == sources);
+		assert (stats.getSinkCount() == sinks);
+		assert (stats.getBranchCount() == branches);
+		assert (stats.getMeanDegree() == 3.0);
+		
+		int[] in = stats.getInDegreeHistogram();
+		int total = 0;
+		for (int d = 0; d < in.length; d++)
+			total += in[d];
+		assert (total == vertexCount);
+		assert (in[maxIn] > 0);
+		
+		System.out.println("Large DegreeStatistics passed.");
+	}
+}
@@ -0,0 +1,170 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Confidence tests for the DigraphBuilder class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class DigraphBuilderTest {
+
+	public static void test() {
+		System.out.println("Testing DigraphBuilder:");
+		
+		testSimple();
+		testConcurrent(Digraph.EdgeMultiples.DISABLED);
+		testConcurrent(Digraph.EdgeMultiples.ENABLED);
+
+		System.out.println("DigraphBuilder passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple DigraphBuilder behaviors:");
+		
+		DigraphBuilder builder = new DigraphBuilder(4, Digraph.EdgeMultiples.DISABLED, 
+													DigraphBuilder.Weights.ENABLED);
+		builder.addEdge(0, 3, 1.0f);
+		builder.addEdge(0, 1, 2.0f);
+		builder.addEdge(0, 3, 1.0f);
+		builder.addEdge(2, 0, 3.0f);
+		
+		WeightedDigraph graph = builder.buildWeighted();
+		assert (graph.getOutDegree(0) == 2);
+		assert (graph.getInDegree(3) == 1);
+		WeightedDigraph.AdjacencyIterator it0 = graph.createAdjacencyIterator(0);
+		WeightedDigraph.Edge edge = it0.begin();
+		assert ((edge.getTo() == 1) && (edge.getWeight() == 2.0f));
+		edge = it0.next();
+		assert ((edge.getTo() == 3) && (edge.getWeight() == 1.0f));
+		assert (it0.next() == null);
+		
+		// The graph built can be changed like any other graph.
+		
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 4.0f));
+		assert (graph.getOutDegree(0) == 3);
+		
+		// Building empties the builder.
+		
+		BasicDigraph empty = builder.buildBasic();
+		assert (empty.getOutDegree(0) == 0);
+		
+		boolean failedAsExpected = false;
+		try {
+			builder.addEdge(0, 4);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		DigraphBuilder unweighted = new DigraphBuilder(4, Digraph.EdgeMultiples.ENABLED, 
+													   DigraphBuilder.Weights.DISABLED);
+		failedAsExpected = false;
+		try {
+			unweighted.addEdge(0, 1, 1.0f);
+		} catch (IllegalStateException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("DigraphBuilder simple behaviors passed.");
+	}
+	
+	private static void testConcurrent(final Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing DigraphBuilder with many threads (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// Threads add edges at the same time, with some vertices having enough
+		// edges to need several chunks.  The result matches adding the edges
+		// to a BasicDigraph in one thread.
+		
+		final int threadCount = 8;
+		final int edgeCount = 50000;
+		final int vertexCapacity = 3000;
+		final DigraphBuilder builder = 
+				new DigraphBuilder(vertexCapacity, multiples, DigraphBuilder.Weights.ENABLED);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						Random random = new Random(seed);
+						for (int i = 0; i < edgeCount; i++) {
+							int from = (i % 10 == 0) ? 7 : random.nextInt(vertexCapacity);
+							int to = random.nextInt(vertexCapacity);
+							builder.addEdge(from, to, to);
+						}
+					}
+					catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				assert (false);
+			}
+		}
+		assert (failure.get() == null);
+		
+		BasicDigraph expected = new BasicDigraph(vertexCapacity, multiples);
+		for (int t = 0; t < threadCount; t++) {
+			Random random = new Random(t);
+			for (int i = 0; i < edgeCount; i++) {
+				int from = (i % 10 == 0) ? 7 : random.nextInt(vertexCapacity);
+				int to = random.nextInt(vertexCapacity);
+				expected.addEdge(from, new BasicDigraph.Edge(to));
+			}
+		}
+		
+		WeightedDigraph graph = builder.buildWeighted();
+		assert (graph.getVertexCapacity() == vertexCapacity);
+		assert (graph.getOutDegree(7) == expected.getOutDegree(7));
+		for (int v = 0; v < vertexCapacity; v++) {
+			assert (graph.getOutDegree(v) == expected.getOutDegree(v));
+			assert (graph.getInDegree(v) == expected.getInDegree(v));
+			BasicDigraph.AdjacencyIterator it1 = expected.createAdjacencyIterator(v);
+			WeightedDigraph.AdjacencyIterator it2 = graph.createAdjacencyIterator(v);
+			WeightedDigraph.Edge e2 = it2.begin();
+			for (BasicDigraph.Edge e1 = it1.begin(); !it1.done(); e1 = it1.next()) {
+				assert (e1.getTo() == e2.getTo());
+				assert (e2.getWeight() == e2.getTo());
+				e2 = it2.next();
+			}
+			assert (it2.done());
+		}
+		
+		System.out.println("DigraphBuilder with many threads passed.");
+	}
+}
@@ -31,8 +31,19 @@ public class DigraphTest {
 	public static void main(String[] args) {
 		BasicDigraphTest.test();
 		WeightedDigraphTest.test();
+		CompactDigraphTest.test();
+		OffHeapDigraphTest.test();
+		MappedDigraphTest.test();
+		ConcurrentDigraphTest.test();
+		DigraphBuilderTest.test();
+		EdgeColumnTest.test();
+		MultisetDigraphTest.test();
+		ReorderingTest.test();
+		CompressedDigraphTest.test();
+		DegreeStatisticsTest.test();
 		EulerPathsTest.test();
 		StrongComponentsTest.test();
+		ParallelStrongComponentsTest.test();
 		MRVertexTest.test();
 		MRCompressChainsAnalyze.analyze();
 	}
@@ -0,0 +1,176 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+// Confidence tests for the IntEdgeColumn, FloatEdgeColumn and LongEdgeColumn
+// classes.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class EdgeColumnTest {
+
+	public static void test() {
+		System.out.println("Testing EdgeColumn:");
+		
+		testSimple();
+		testAddRemove(Digraph.EdgeMultiples.DISABLED);
+		testAddRemove(Digraph.EdgeMultiples.ENABLED);
+		testReadOnly();
+		
+		System.out.println("EdgeColumn passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple EdgeColumn behaviors:");
+		
+		BasicDigraph graph = new BasicDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		
+		// Existing edges have a value of 0.
+		
+		IntEdgeColumn counts = new IntEdgeColumn(graph);
+		FloatEdgeColumn scores = new FloatEdgeColumn(graph);
+		LongEdgeColumn ids = new LongEdgeColumn(graph);
+		assert (counts.getGraph() == graph);
+		assert (counts.get(0, 0) == 0);
+		assert (scores.get(0, 1) == 0.0f);
+		assert (ids.get(0, 1) == 0L);
+		
+		counts.set(0, 1, 5);
+		assert (counts.add(0, 1, 2) == 7);
+		scores.set(0, 0, 0.5f);
+		ids.set(0, 1, 1L << 40);
+		assert (counts.get(0, 0) == 0);
+		assert (counts.get(0, 1) == 7);
+		assert (scores.get(0, 0) == 0.5f);
+		assert (ids.get(0, 1) == 1L << 40);
+		
+		// An iterator identifies its current edge for a column.
+		
+		BasicDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(0);
+		for (BasicDigraph.Edge edge = it.begin(); !it.done(); edge = it.next()) {
+			if (edge.getTo() == 3)
+				assert (counts.get(it.getVertex(), it.getIndex()) == 7);
+			else
+				assert (scores.get(it.getVertex(), it.getIndex()) == 0.5f);
+		}
+		
+		boolean failedAsExpected = false;
+		try {
+			counts.get(0, 2);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			ids.set(4, 0, 1L);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("EdgeColumn simple behaviors passed.");
+	}
+	
+	private static void testAddRemove(Digraph.EdgeMultiples multiples) {
+		System.out.println("Testing EdgeColumn with edges added and removed (edge multiples "
+							+ (multiples == Digraph.EdgeMultiples.ENABLED ? "enabled" : "disabled")
+							+ "):");
+		
+		// Each edge's value is its target times ten, and stays with the edge 
+		// as other edges are added before and after it, in one at a time and
+		// in bulk, and as other edges are removed.
+		
+		BasicDigraph graph = new BasicDigraph(2, multiples);
+		IntEdgeColumn column = new IntEdgeColumn(graph);
+		
+		int[] order = { 5, 2, 8, 1, 9 };
+		for (int to : order) {
+			graph.addEdge(0, new BasicDigraph.Edge(to));
+			for (int i = 0; i < graph.getOutDegree(0); i++)
+				if (graph.targetAt(0, i) == to)
+					column.set(0, i, to * 10);
+		}
+		checkValues(graph, column);
+		
+		graph.addEdges(new int[] { 0, 0, 1 }, new int[] { 0, 7, 3 });
+		for (int i = 0; i < graph.getOutDegree(0); i++) {
+			int to = graph.targetAt(0, i);
+			if ((to == 0) || (to == 7))
+				column.set(0, i, to * 10);
+		}
+		column.set(1, 0, 30);
+		checkValues(graph, column);
+		
+		graph.removeEdge(0, 2);
+		graph.removeEdge(0, 9);
+		graph.removeEdge(0, 0);
+		assert (graph.getOutDegree(0) == 4);
+		checkValues(graph, column);
+		
+		// The graph grows past its original capacity with the column attached.
+		
+		graph.addEdge(40, new BasicDigraph.Edge(41));
+		assert (column.get(40, 0) == 0);
+		column.set(40, 0, 410);
+		checkValues(graph, column);
+		
+		// Changing values after a snapshot copies the shared arrays first.
+		
+		Digraph<BasicDigraph.Edge> snapshot = graph.snapshot();
+		column.set(0, 0, -1);
+		assert (snapshot.getOutDegree(0) == 4);
+		assert (column.get(0, 0) == -1);
+		column.set(0, 0, graph.targetAt(0, 0) * 10);
+		checkValues(graph, column);
+		
+		System.out.println("EdgeColumn with edges added and removed passed.");
+	}
+	
+	private static void testReadOnly() {
+		System.out.println("Testing EdgeColumn with read-only graphs:");
+		
+		BasicDigraph graph = new BasicDigraph(2, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		
+		boolean failedAsExpected = false;
+		try {
+			new FloatEdgeColumn(graph.freeze());
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("EdgeColumn with read-only graphs passed.");
+	}
+	
+	private static void checkValues(BasicDigraph graph, IntEdgeColumn column) {
+		for (int v = 0; v < graph.getVertexCapacity(); v++)
+			for (int i = 0; i < graph.getOutDegree(v); i++)
+				assert (column.get(v, i) == graph.targetAt(v, i) * 10);
+	}
+	
+}
@@ -0,0 +1,255 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// Confidence tests for the MappedDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class MappedDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing MappedDigraph:");
+		
+		try {
+			testSimple();
+			testWeights();
+			testAlgorithms();
+			testBadFile();
+		}
+		catch (IOException e) {
+			assert (false);
+		}
+
+		System.out.println("MappedDigraph passed.");
+	}
+	
+	private static void testSimple() throws IOException {
+		System.out.println("Testing simple MappedDigraph behaviors:");
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(4, new BasicDigraph.Edge(0));
+		
+		File file = File.createTempFile("MappedDigraphTest", ".dg");
+		file.deleteOnExit();
+		MappedDigraph.write(graph, file);
+		
+		MappedDigraph mapped = MappedDigraph.open(file);
+		assert (mapped.getVertexCapacity() == 6);
+		assert (mapped.getEdgeCount() == 5);
+		assert (mapped.getEdgeMultiples() == Digraph.EdgeMultiples.ENABLED);
+		assert (!mapped.hasWeights());
+		
+		int[] expected0 = { 1, 3, 3 };
+		int n0 = 0;
+		MappedDigraph.AdjacencyIterator it0 = mapped.createAdjacencyIterator(0);
+		for (WeightedDigraph.Edge edge = it0.begin(); !it0.done(); edge = it0.next()) {
+			assert (edge.getTo() == expected0[n0++]);
+			assert (edge.getWeight() == 0);
+		}
+		assert (n0 == 3);
+
+		// The index of the iterator's current edge identifies it for targetAt().
+		
+		for (int v = 0; v < mapped.getVertexCapacity(); v++) {
+			MappedDigraph.AdjacencyIterator it = mapped.createAdjacencyIterator(v);
+			int index = 0;
+			for (WeightedDigraph.Edge edge = it.begin(); !it.done(); edge = it.next()) {
+				assert (it.getIndex() == index++);
+				assert (mapped.targetAt(v, it.getIndex()) == edge.getTo());
+			}
+			assert (index == mapped.getOutDegree(v));
+			assert (it.getIndex() == Digraph.NO_VERTEX);
+		}
+		
+		int groups = 0;
+		MappedDigraph.AdjacencyMultipleIterator itm0 = mapped.createAdjacencyMultipleIterator(0);
+		for (ArrayList<WeightedDigraph.Edge> edges = itm0.begin(); !itm0.done(); edges = itm0.next()) {
+			assert (edges.size() == ((edges.get(0).getTo() == 3) ? 2 : 1));
+			groups++;
+		}
+		assert (groups == 2);
+		
+		assert (mapped.getOutDegree(0) == 3);
+		assert (mapped.getInDegree(3) == 3);
+		assert (mapped.getInDegree(5) == 0);
+		assert (mapped.isSink(3));
+		
+		MappedDigraph.InAdjacencyIterator in3 = mapped.createInAdjacencyIterator(3);
+		assert (in3.begin() == 0);
+		assert (in3.next() == 0);
+		assert (in3.next() == 2);
+		assert (in3.next() == Digraph.NO_VERTEX);
+		
+		boolean failedAsExpected = false;
+		try {
+			mapped.createAdjacencyIterator(6);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			mapped.removeEdge(0, 1);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// After the graph is closed, it cannot be used.
+		
+		mapped.close();
+		assert (mapped.isClosed());
+		mapped.close();
+		
+		failedAsExpected = false;
+		try {
+			mapped.getOutDegree(0);
+		} catch (IllegalStateException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("MappedDigraph simple behaviors passed.");
+	}
+	
+	private static void testWeights() throws IOException {
+		System.out.println("Testing MappedDigraph weights:");
+		
+		WeightedDigraph graph = new WeightedDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new WeightedDigraph.Edge(2, 0.5f));
+		graph.addEdge(0, new WeightedDigraph.Edge(1, 1.5f));
+		graph.addEdge(3, new WeightedDigraph.Edge(0, -2.0f));
+		
+		File file = File.createTempFile("MappedDigraphTest", ".dg");
+		file.deleteOnExit();
+		MappedDigraph.write(graph, file);
+		MappedDigraph mapped = MappedDigraph.open(file);
+		assert (mapped.hasWeights());
+		assert (mapped.getEdgeMultiples() == Digraph.EdgeMultiples.DISABLED);
+		
+		MappedDigraph.AdjacencyIterator it0 = mapped.createAdjacencyIterator(0);
+		WeightedDigraph.Edge edge = it0.begin();
+		assert ((edge.getTo() == 1) && (edge.getWeight() == 1.5f));
+		edge = it0.next();
+		assert ((edge.getTo() == 2) && (edge.getWeight() == 0.5f));
+		assert (it0.next() == null);
+		assert (it0.done());
+		
+		MappedDigraph.AdjacencyIterator it3 = mapped.createAdjacencyIterator(3);
+		edge = it3.begin();
+		assert ((edge.getTo() == 0) && (edge.getWeight() == -2.0f));
+		
+		// The graph is immutable, and its edges are copies.
+		
+		boolean failedAsExpected = false;
+		try {
+			edge.setWeight(1.0f);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// Writing a mapped graph keeps its weights.
+		
+		File copy = File.createTempFile("MappedDigraphTest", ".dg");
+		copy.deleteOnExit();
+		MappedDigraph.write(mapped, copy);
+		mapped.close();
+		
+		MappedDigraph mappedCopy = MappedDigraph.open(copy);
+		assert (mappedCopy.hasWeights());
+		assert (mappedCopy.getEdgeCount() == 3);
+		edge = mappedCopy.createAdjacencyIterator(3).begin();
+		assert ((edge.getTo() == 0) && (edge.getWeight() == -2.0f));
+		mappedCopy.close();
+		
+		System.out.println("MappedDigraph weights passed.");
+	}
+	
+	private static void testAlgorithms() throws IOException {
+		System.out.println("Testing algorithms on MappedDigraph:");
+		
+		BasicDigraph graph = new BasicDigraph(7, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(3, new BasicDigraph.Edge(4));
+		graph.addEdge(4, new BasicDigraph.Edge(2));
+		graph.addEdge(5, new BasicDigraph.Edge(6));
+		graph.addEdge(6, new BasicDigraph.Edge(5));
+		
+		File file = File.createTempFile("MappedDigraphTest", ".dg");
+		file.deleteOnExit();
+		MappedDigraph.write(graph, file);
+		MappedDigraph mapped = MappedDigraph.open(file);
+		
+		StrongComponents<WeightedDigraph.Edge> sc = 
+				new StrongComponents<WeightedDigraph.Edge>(mapped);
+		assert (sc.isStronglyReachable(0, 4));
+		assert (sc.isStronglyReachable(5, 6));
+		assert (!sc.isStronglyReachable(4, 5));
+		
+		EulerPaths<WeightedDigraph.Edge> euler = new EulerPaths<WeightedDigraph.Edge>(mapped);
+		ArrayList<ArrayDeque<Integer>> paths = euler.getPaths();
+		assert (paths.size() == 2);
+		assert (paths.get(0).size() == 7);
+		assert (paths.get(1).size() == 3);
+		
+		mapped.close();
+		
+		System.out.println("Algorithms on MappedDigraph passed.");
+	}
+	
+	private static void testBadFile() throws IOException {
+		System.out.println("Testing MappedDigraph with a bad file:");
+		
+		File file = File.createTempFile("MappedDigraphTest", ".dg");
+		file.deleteOnExit();
+		FileOutputStream stream = new FileOutputStream(file);
+		stream.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		stream.close();
+		
+		boolean failedAsExpected = false;
+		try {
+			MappedDigraph.open(file);
+		} catch (IOException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("MappedDigraph with a bad file passed.");
+	}
+}
@@ -0,0 +1,174 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+// Confidence tests for the MultisetDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class MultisetDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing MultisetDigraph:");
+		
+		testSimple();
+		testRandom();
+		
+		System.out.println("MultisetDigraph passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple MultisetDigraph behaviors:");
+		
+		MultisetDigraph graph = new MultisetDigraph(4);
+		graph.addEdge(0, new MultisetDigraph.Edge(2));
+		graph.addEdge(0, new MultisetDigraph.Edge(1, 50));
+		graph.addEdge(0, new MultisetDigraph.Edge(2, 3));
+		graph.addEdge(1, new MultisetDigraph.Edge(2));
+		
+		assert (graph.getEdgeMultiples() == Digraph.EdgeMultiples.DISABLED);
+		assert (graph.getOutDegree(0) == 2);
+		assert (graph.getInDegree(2) == 2);
+		assert (graph.getOutCount(0) == 54);
+		assert (graph.getMultiplicity(0, 1) == 50);
+		assert (graph.getMultiplicity(0, 2) == 4);
+		assert (graph.getMultiplicity(0, 3) == 0);
+		assert (graph.hasEdge(1, 2));
+		assert (graph.countAt(0, 0) == 50);
+		
+		// Each run is visited once, with its count.
+		
+		int[] expectedTo = { 1, 2 };
+		int[] expectedCounts = { 50, 4 };
+		int runs = 0;
+		MultisetDigraph.AdjacencyIterator it = graph.createAdjacencyIterator(0);
+		for (MultisetDigraph.Edge e = it.begin(); !it.done(); e = it.next()) {
+			assert (e.getTo() == expectedTo[runs]);
+			assert (e.getCount() == expectedCounts[runs]);
+			assert (it.getCount() == expectedCounts[runs]);
+			runs++;
+		}
+		assert (runs == 2);
+		
+		MultisetDigraph.AdjacencyMultipleIterator itm = graph.createAdjacencyMultipleIterator(0);
+		ArrayList<MultisetDigraph.Edge> run = itm.begin();
+		assert ((run.size() == 1) && (run.get(0).getCount() == 50));
+		
+		itm = graph.createAdjacencyMultipleIterator(0);
+		assert (itm.advance() && (itm.currentTarget() == 1) && (itm.currentCount() == 50));
+		assert (itm.advance() && (itm.currentTarget() == 2) && (itm.currentCount() == 4));
+		assert (!itm.advance());
+		
+		// Removing an edge decrements the count, and the run goes away at 0.
+		
+		Digraph<MultisetDigraph.Edge> snapshot = graph.snapshot();
+		graph.removeEdge(0, 2);
+		assert (graph.getMultiplicity(0, 2) == 3);
+		graph.removeEdge(0, 2);
+		graph.removeEdge(0, 2);
+		graph.removeEdge(0, 2);
+		assert (!graph.hasEdge(0, 2));
+		assert (graph.getOutDegree(0) == 1);
+		graph.removeEdge(0, 2);
+		assert (graph.getOutDegree(0) == 1);
+		
+		// A snapshot keeps the counts as they were.
+		
+		assert (snapshot.getMultiplicity(0, 2) == 4);
+		assert (snapshot.createAdjacencyIterator(0).begin().getCount() == 50);
+		
+		// The capacity grows as needed.
+		
+		graph.addEdge(3, new MultisetDigraph.Edge(10, 2));
+		assert (graph.getVertexCapacity() == 11);
+		assert (graph.getMultiplicity(3, 10) == 2);
+		
+		boolean failedAsExpected = false;
+		try {
+			graph.addEdge(0, new MultisetDigraph.Edge(1, 0));
+		} catch (IllegalArgumentException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// A count that would overflow is rejected, and the run keeps its count.
+		
+		graph.addEdge(4, new MultisetDigraph.Edge(5, Integer.MAX_VALUE - 1));
+		graph.addEdge(4, new MultisetDigraph.Edge(5));
+		assert (graph.getMultiplicity(4, 5) == Integer.MAX_VALUE);
+		failedAsExpected = false;
+		try {
+			graph.addEdge(4, new MultisetDigraph.Edge(5));
+		} catch (IllegalArgumentException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		assert (graph.getMultiplicity(4, 5) == Integer.MAX_VALUE);
+		
+		failedAsExpected = false;
+		try {
+			it.getCount();
+		} catch (IllegalStateException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("MultisetDigraph simple behaviors passed.");
+	}
+	
+	private static void testRandom() {
+		System.out.println("Testing MultisetDigraph with random edges:");
+		
+		// The counts match a graph with edge multiples enabled, built from the
+		// same edges.
+		
+		Random random = new Random(23);
+		int vertexCapacity = 30;
+		MultisetDigraph graph = new MultisetDigraph(vertexCapacity);
+		BasicDigraph expected = new BasicDigraph(vertexCapacity, Digraph.EdgeMultiples.ENABLED);
+		for (int i = 0; i < 3000; i++) {
+			int from = random.nextInt(vertexCapacity);
+			int to = random.nextInt(vertexCapacity);
+			if (random.nextInt(4) > 0) {
+				graph.addEdge(from, new MultisetDigraph.Edge(to));
+				expected.addEdge(from, new BasicDigraph.Edge(to));
+			}
+			else {
+				graph.removeEdge(from, to);
+				expected.removeEdge(from, to);
+			}
+		}
+		
+		for (int v = 0; v < vertexCapacity; v++) {
+			assert (graph.getOutCount(v) == expected.getOutDegree(v));
+			for (int w = 0; w < vertexCapacity; w++)
+				assert (graph.getMultiplicity(v, w) == expected.getMultiplicity(v, w));
+		}
+		
+		System.out.println("MultisetDigraph with random edges passed.");
+	}
+	
+}
@@ -0,0 +1,161 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// Confidence tests for the OffHeapDigraph class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class OffHeapDigraphTest {
+
+	public static void test() {
+		System.out.println("Testing OffHeapDigraph:");
+		
+		testSimple();
+		testAlgorithms();
+
+		System.out.println("OffHeapDigraph passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple OffHeapDigraph behaviors:");
+		
+		BasicDigraph graph = new BasicDigraph(6, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(4, new BasicDigraph.Edge(0));
+		
+		OffHeapDigraph offHeap = new OffHeapDigraph(graph);
+		assert (offHeap.getVertexCapacity() == 6);
+		assert (offHeap.getEdgeCount() == 5);
+		assert (offHeap.getEdgeMultiples() == Digraph.EdgeMultiples.ENABLED);
+		
+		int[] expected0 = { 1, 3, 3 };
+		int n0 = 0;
+		OffHeapDigraph.AdjacencyIterator it0 = offHeap.createAdjacencyIterator(0);
+		for (BasicDigraph.Edge edge = it0.begin(); !it0.done(); edge = it0.next())
+			assert (edge.getTo() == expected0[n0++]);
+		assert (n0 == 3);
+
+		// The index of the iterator's current edge identifies it for targetAt().
+		
+		for (int v = 0; v < offHeap.getVertexCapacity(); v++) {
+			OffHeapDigraph.AdjacencyIterator it = offHeap.createAdjacencyIterator(v);
+			int index = 0;
+			for (BasicDigraph.Edge edge = it.begin(); !it.done(); edge = it.next()) {
+				assert (it.getIndex() == index++);
+				assert (offHeap.targetAt(v, it.getIndex()) == edge.getTo());
+			}
+			assert (index == offHeap.getOutDegree(v));
+			assert (it.getIndex() == Digraph.NO_VERTEX);
+		}
+		
+		int groups = 0;
+		OffHeapDigraph.AdjacencyMultipleIterator itm0 = offHeap.createAdjacencyMultipleIterator(0);
+		for (ArrayList<BasicDigraph.Edge> edges = itm0.begin(); !itm0.done(); edges = itm0.next()) {
+			assert (edges.size() == ((edges.get(0).getTo() == 3) ? 2 : 1));
+			groups++;
+		}
+		assert (groups == 2);
+		
+		assert (offHeap.getOutDegree(0) == 3);
+		assert (offHeap.getInDegree(3) == 3);
+		assert (offHeap.getInDegree(5) == 0);
+		assert (offHeap.isSink(3));
+		
+		OffHeapDigraph.InAdjacencyIterator in3 = offHeap.createInAdjacencyIterator(3);
+		assert (in3.begin() == 0);
+		assert (in3.next() == 0);
+		assert (in3.next() == 2);
+		assert (in3.next() == Digraph.NO_VERTEX);
+		
+		boolean failedAsExpected = false;
+		try {
+			offHeap.createAdjacencyIterator(6);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			offHeap.removeEdge(0, 1);
+		} catch (UnsupportedOperationException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// After the graph is closed, it cannot be used.
+		
+		offHeap.close();
+		assert (offHeap.isClosed());
+		offHeap.close();
+		
+		failedAsExpected = false;
+		try {
+			offHeap.getOutDegree(0);
+		} catch (IllegalStateException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("OffHeapDigraph simple behaviors passed.");
+	}
+	
+	private static void testAlgorithms() {
+		System.out.println("Testing algorithms on OffHeapDigraph:");
+		
+		BasicDigraph graph = new BasicDigraph(7, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(3, new BasicDigraph.Edge(4));
+		graph.addEdge(4, new BasicDigraph.Edge(2));
+		graph.addEdge(5, new BasicDigraph.Edge(6));
+		graph.addEdge(6, new BasicDigraph.Edge(5));
+		
+		OffHeapDigraph offHeap = new OffHeapDigraph(graph);
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new StrongComponents<BasicDigraph.Edge>(offHeap);
+		assert (sc.isStronglyReachable(0, 4));
+		assert (sc.isStronglyReachable(5, 6));
+		assert (!sc.isStronglyReachable(4, 5));
+		
+		EulerPaths<BasicDigraph.Edge> euler = new EulerPaths<BasicDigraph.Edge>(offHeap);
+		ArrayList<ArrayDeque<Integer>> paths = euler.getPaths();
+		assert (paths.size() == 2);
+		assert (paths.get(0).size() == 7);
+		assert (paths.get(1).size() == 3);
+		
+		offHeap.close();
+		
+		System.out.println("Algorithms on OffHeapDigraph passed.");
+	}
+}
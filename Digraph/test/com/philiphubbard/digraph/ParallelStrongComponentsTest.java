@@ -0,0 +1,243 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Confidence tests for the ParallelStrongComponents class.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class ParallelStrongComponentsTest {
+	
+	public static void test() {
+		System.out.println("Testing ParallelStrongComponents:");
+		
+		testSimple();
+		testRandom(2000, 1.5, 1);
+		testRandom(2000, 4.0, 2);
+		testRandom(50000, 1.2, 3);
+		testDeep();
+		testManyComponents();
+		
+		System.out.println("ParallelStrongComponents passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing ParallelStrongComponents in a simple graph:");
+		
+		// The graph from StrongComponentsTest, with components {0, 2, 3, 4, 5, 6},
+		// {1}, {7, 8} and {9, 10, 11, 12}, plus an isolated vertex 13 and a vertex
+		// 14 with only an edge to itself.
+		
+		BasicDigraph graph = new BasicDigraph(15, Digraph.EdgeMultiples.ENABLED);
+		int[] from = { 0, 0, 0, 2, 2, 3, 3, 4, 4, 4, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 11, 12, 14 };
+		int[] to =   { 1, 5, 6, 0, 3, 2, 5, 2, 3, 11, 4, 4, 9, 6, 8, 7, 9, 10, 11, 12, 12, 9, 14 };
+		graph.addEdges(from, to);
+		graph.addEdges(from, to);
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new ParallelStrongComponents<BasicDigraph.Edge>(graph);
+		int[] component = { 2, 1, 2, 2, 2, 2, 2, 3, 3, 0, 0, 0, 0, 4, 5 };
+		for (int i = 0; i < 15; i++)
+			for (int j = 0; j < 15; j++)
+				assert (sc.isStronglyReachable(i, j) == (component[i] == component[j]));
+		
+		// The graph is not changed.
+		
+		assert (!graph.hasReverseIndex());
+		
+		// Other kinds of graphs give the same result.
+		
+		StrongComponents<BasicDigraph.Edge> scCompact = 
+				new ParallelStrongComponents<BasicDigraph.Edge>(graph.freeze());
+		for (int i = 0; i < 15; i++)
+			for (int j = 0; j < 15; j++)
+				assert (scCompact.isStronglyReachable(i, j) == (component[i] == component[j]));
+		
+		new ParallelStrongComponents<BasicDigraph.Edge>(
+				new BasicDigraph(0, Digraph.EdgeMultiples.DISABLED));
+		
+		System.out.println("ParallelStrongComponents in a simple graph passed.");
+	}
+	
+	// Compares the components of a random graph with those from the base class.
+	
+	private static void testRandom(int vertexCount, double edgesPerVertex, long seed) {
+		System.out.println("Testing ParallelStrongComponents in a random graph with " + 
+						   vertexCount + " vertices:");
+		
+		Random random = new Random(seed);
+		int edgeCount = (int) (edgesPerVertex * vertexCount);
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			from[i] = random.nextInt(vertexCount);
+			to[i] = random.nextInt(vertexCount);
+		}
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.ENABLED);
+		graph.addEdges(from, to);
+		
+		StrongComponents<BasicDigraph.Edge> expected = 
+				new StrongComponents<BasicDigraph.Edge>(graph);
+		StrongComponents<BasicDigraph.Edge> actual = 
+				new ParallelStrongComponents<BasicDigraph.Edge>(graph);
+		assert (actual.getComponentCount() == expected.getComponentCount());
+		
+		// The condensations are the same, with the components renumbered.
+		
+		int[] renumber = new int[expected.getComponentCount()];
+		for (int v = 0; v < vertexCount; v++)
+			renumber[actual.getComponentId(v)] = expected.getComponentId(v);
+		BasicDigraph expectedCondensation = expected.condensation();
+		BasicDigraph actualCondensation = actual.condensation();
+		for (int c = 0; c < actual.getComponentCount(); c++) {
+			int d = renumber[c];
+			assert (actualCondensation.getOutDegree(c) == expectedCondensation.getOutDegree(d));
+			for (int i = 0; i < actualCondensation.getOutDegree(c); i++)
+				assert (expectedCondensation.hasEdge(d, renumber[actualCondensation.targetAt(c, i)]));
+		}
+		
+		// Components are numbered in reverse topological order by the base class.
+		
+		for (int c = 0; c < expected.getComponentCount(); c++)
+			for (int i = 0; i < expectedCondensation.getOutDegree(c); i++)
+				assert (expectedCondensation.targetAt(c, i) < c);
+		
+		
+		// Comparing each vertex with a random sample of vertices, and with 
+		// the vertices pointed to, covers both large and small components.
+		
+		for (int v = 0; v < vertexCount; v++) {
+			for (int i = 0; i < 20; i++) {
+				int w = random.nextInt(vertexCount);
+				assert (actual.isStronglyReachable(v, w) == expected.isStronglyReachable(v, w));
+			}
+			for (int i = 0; i < graph.getOutDegree(v); i++) {
+				int w = graph.targetAt(v, i);
+				assert (actual.isStronglyReachable(v, w) == expected.isStronglyReachable(v, w));
+			}
+		}
+		
+		System.out.println("ParallelStrongComponents in a random graph passed.");
+	}
+	
+	// A long chain of small cycles, which trimming does not remove and which
+	// takes many divisions, and a long path, which trimming removes.
+	
+	private static void testDeep() {
+		System.out.println("Testing ParallelStrongComponents in a deep graph:");
+		
+		int cycleCount = 100000;
+		BasicDigraph graph = new BasicDigraph(3 * cycleCount, Digraph.EdgeMultiples.DISABLED);
+		int[] from = new int[4 * cycleCount - 1];
+		int[] to = new int[4 * cycleCount - 1];
+		int n = 0;
+		for (int c = 0; c < cycleCount; c++) {
+			int v = 3 * c;
+			for (int i = 0; i < 3; i++) {
+				from[n] = v + i;
+				to[n++] = v + (i + 1) % 3;
+			}
+			if (c + 1 < cycleCount) {
+				from[n] = v + 2;
+				to[n++] = v + 3;
+			}
+		}
+		graph.addEdges(from, to);
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new ParallelStrongComponents<BasicDigraph.Edge>(graph);
+		for (int c = 0; c < cycleCount; c++) {
+			int v = 3 * c;
+			assert (sc.isStronglyReachable(v, v + 1));
+			assert (sc.isStronglyReachable(v, v + 2));
+			if (c + 1 < cycleCount)
+				assert (!sc.isStronglyReachable(v, v + 3));
+		}
+		
+		int vertexCount = 1000000;
+		from = new int[vertexCount - 1];
+		to = new int[vertexCount - 1];
+		for (int v = 0; v < vertexCount - 1; v++) {
+			from[v] = v;
+			to[v] = v + 1;
+		}
+		BasicDigraph path = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.DISABLED);
+		path.addEdges(from, to);
+		sc = new ParallelStrongComponents<BasicDigraph.Edge>(path);
+		for (int v = 1; v < vertexCount; v++)
+			assert (!sc.isStronglyReachable(v - 1, v));
+		
+		System.out.println("ParallelStrongComponents in a deep graph passed.");
+	}
+	
+	// Many small components that trimming does not remove, which would be 
+	// divided one at a time if they were not first split apart: disjoint
+	// cycles of two and three vertices, and cycles of three joined in pairs
+	// by an edge, which trims nothing.
+	
+	private static void testManyComponents() {
+		System.out.println("Testing ParallelStrongComponents with many components:");
+		
+		int groupCount = 40000;
+		int vertexCount = 8 * groupCount;
+		int[] from = new int[9 * groupCount];
+		int[] to = new int[9 * groupCount];
+		int n = 0;
+		for (int g = 0; g < groupCount; g++) {
+			int v = 8 * g;
+			from[n] = v;
+			to[n++] = v + 1;
+			from[n] = v + 1;
+			to[n++] = v;
+			for (int c = 0; c < 2; c++) {
+				int u = v + 2 + 3 * c;
+				for (int i = 0; i < 3; i++) {
+					from[n] = u + i;
+					to[n++] = u + (i + 1) % 3;
+				}
+			}
+			from[n] = v + 2;
+			to[n++] = v + 5;
+		}
+		BasicDigraph graph = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdges(Arrays.copyOf(from, n), Arrays.copyOf(to, n));
+		
+		StrongComponents<BasicDigraph.Edge> sc = 
+				new ParallelStrongComponents<BasicDigraph.Edge>(graph);
+		assert (sc.getComponentCount() == 3 * groupCount);
+		for (int g = 0; g < groupCount; g++) {
+			int v = 8 * g;
+			assert (sc.isStronglyReachable(v, v + 1));
+			assert (sc.isStronglyReachable(v + 2, v + 4));
+			assert (sc.isStronglyReachable(v + 5, v + 7));
+			assert (!sc.isStronglyReachable(v + 2, v + 5));
+			if (g + 1 < groupCount)
+				assert (!sc.isStronglyReachable(v, v + 8));
+		}
+		
+		System.out.println("ParallelStrongComponents with many components passed.");
+	}
+}
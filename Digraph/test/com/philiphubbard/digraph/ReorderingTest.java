@@ -0,0 +1,179 @@
+// Copyright (c) 2014 Philip M. Hubbard
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+// 
+// http://opensource.org/licenses/MIT
+
+package com.philiphubbard.digraph;
+
+import java.util.Random;
+
+// Confidence tests for the Reordering class and the reorder() routines.
+// Uses assert(), so must be run with a run configuration that includes "-ea" in the 
+// VM arguments.
+
+public class ReorderingTest {
+
+	public static void test() {
+		System.out.println("Testing Reordering:");
+		
+		testSimple();
+		for (Reordering.Ordering ordering : Reordering.Ordering.values())
+			testOrdering(ordering);
+		testBandwidth();
+		
+		System.out.println("Reordering passed.");
+	}
+	
+	private static void testSimple() {
+		System.out.println("Testing simple Reordering behaviors:");
+		
+		// A path 0 -> 3 -> 1 -> 2 in BFS order from 0 becomes 0 -> 1 -> 2 -> 3.
+		
+		BasicDigraph graph = new BasicDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		graph.addEdge(0, new BasicDigraph.Edge(3));
+		graph.addEdge(3, new BasicDigraph.Edge(1));
+		graph.addEdge(1, new BasicDigraph.Edge(2));
+		
+		Reordering<BasicDigraph> bfs = graph.reorder(Reordering.Ordering.BFS);
+		int[] expected = { 0, 2, 3, 1 };
+		for (int v = 0; v < 4; v++) {
+			assert (bfs.getNewVertex(v) == expected[v]);
+			assert (bfs.getOriginalVertex(expected[v]) == v);
+		}
+		BasicDigraph path = bfs.getGraph();
+		for (int v = 0; v < 3; v++)
+			assert ((path.getOutDegree(v) == 1) && (path.targetAt(v, 0) == v + 1));
+		
+		// The maps returned are copies.
+		
+		bfs.getForwardMap()[0] = 3;
+		assert (bfs.getNewVertex(0) == 0);
+		
+		// DEGREE puts the vertex with the most edges first.
+		
+		graph.addEdge(2, new BasicDigraph.Edge(3));
+		graph.addEdge(2, new BasicDigraph.Edge(0));
+		Reordering<BasicDigraph> byDegree = graph.reorder(Reordering.Ordering.DEGREE);
+		assert (byDegree.getOriginalVertex(0) == 2);
+		
+		System.out.println("Simple Reordering behaviors passed.");
+	}
+	
+	private static void testOrdering(Reordering.Ordering ordering) {
+		System.out.println("Testing Reordering with ordering " + ordering + ":");
+		
+		// The relabeled graph has the same edges and weights, mapped to the
+		// new vertices, and the maps are inverse permutations.
+		
+		Random random = new Random(31);
+		int vertexCapacity = 200;
+		WeightedDigraph graph = new WeightedDigraph(vertexCapacity, Digraph.EdgeMultiples.DISABLED);
+		for (int i = 0; i < 600; i++) {
+			int from = random.nextInt(vertexCapacity - 10);
+			int to = random.nextInt(vertexCapacity - 10);
+			graph.addEdge(from, new WeightedDigraph.Edge(to, 1000.0f * from + to));
+		}
+		graph.enableReverseIndex();
+		
+		Reordering<WeightedDigraph> reordering = graph.reorder(ordering);
+		WeightedDigraph result = reordering.getGraph();
+		int[] forward = reordering.getForwardMap();
+		int[] inverse = reordering.getInverseMap();
+		assert (result.getVertexCapacity() == vertexCapacity);
+		assert (result.hasReverseIndex());
+		
+		boolean[] seen = new boolean[vertexCapacity];
+		for (int v = 0; v < vertexCapacity; v++) {
+			assert (!seen[forward[v]]);
+			seen[forward[v]] = true;
+			assert (inverse[forward[v]] == v);
+		}
+		
+		for (int v = 0; v < vertexCapacity; v++) {
+			int w = forward[v];
+			assert (result.getOutDegree(w) == graph.getOutDegree(v));
+			assert (result.getInDegree(w) == graph.getInDegree(v));
+			for (int i = 0; i < graph.getOutDegree(v); i++) {
+				int to = graph.targetAt(v, i);
+				int j = result.indexOf(w, forward[to]);
+				assert (j != Digraph.NO_VERTEX);
+				assert (result.weightAt(w, j) == graph.weightAt(v, i));
+			}
+		}
+		
+		// The strong components are the same.
+		
+		StrongComponents<WeightedDigraph.Edge> sc = new StrongComponents<WeightedDigraph.Edge>(graph);
+		StrongComponents<WeightedDigraph.Edge> scResult = 
+				new StrongComponents<WeightedDigraph.Edge>(result);
+		for (int v = 0; v < vertexCapacity; v += 7)
+			for (int w = 0; w < vertexCapacity; w += 3)
+				assert (sc.isStronglyReachable(v, w) == 
+						scResult.isStronglyReachable(forward[v], forward[w]));
+		
+		System.out.println("Reordering with ordering " + ordering + " passed.");
+	}
+	
+	private static void testBandwidth() {
+		System.out.println("Testing Reordering bandwidth:");
+		
+		// A grid with scrambled vertices has a large bandwidth, which reverse
+		// Cuthill-McKee brings back down to about the width of the grid.
+		
+		int width = 20;
+		int vertexCapacity = width * width;
+		int[] scramble = new int[vertexCapacity];
+		for (int v = 0; v < vertexCapacity; v++)
+			scramble[v] = v;
+		Random random = new Random(37);
+		for (int v = vertexCapacity - 1; v > 0; v--) {
+			int j = random.nextInt(v + 1);
+			int t = scramble[v];
+			scramble[v] = scramble[j];
+			scramble[j] = t;
+		}
+		
+		BasicDigraph graph = new BasicDigraph(vertexCapacity, Digraph.EdgeMultiples.DISABLED);
+		for (int r = 0; r < width; r++)
+			for (int c = 0; c < width; c++) {
+				int v = r * width + c;
+				if (c + 1 < width)
+					graph.addEdge(scramble[v], new BasicDigraph.Edge(scramble[v + 1]));
+				if (r + 1 < width)
+					graph.addEdge(scramble[v], new BasicDigraph.Edge(scramble[v + width]));
+			}
+		
+		assert (bandwidth(graph) > 4 * width);
+		assert (bandwidth(graph.reorder(Reordering.Ordering.REVERSE_CUTHILL_MCKEE).getGraph()) 
+				<= 2 * width);
+		assert (bandwidth(graph.reorder(Reordering.Ordering.BFS).getGraph()) <= 2 * width);
+		
+		System.out.println("Reordering bandwidth passed.");
+	}
+	
+	private static int bandwidth(BasicDigraph graph) {
+		int result = 0;
+		for (int v = 0; v < graph.getVertexCapacity(); v++)
+			for (int i = 0; i < graph.getOutDegree(v); i++)
+				result = Math.max(result, Math.abs(graph.targetAt(v, i) - v));
+		return result;
+	}
+	
+}
@@ -29,6 +29,8 @@ public class StrongComponentsTest {
 
 		testSimple();
 		testEdgeMultiples();
+		testDeep();
+		testComponents();
 		
 		System.out.println("StrongComponents passed.");
 	}
@@ -69,6 +71,101 @@ public class StrongComponentsTest {
 		System.out.println("StrongComponents with edge multiples passed.");
 	}
 	
+	// A depth-first search of a long path goes deeper than the thread's stack
+	// would allow with recursion.
+	
+	private static void testDeep() {
+		System.out.println("Testing StrongComponents in a deep graph:");
+		
+		int vertexCount = 1000000;
+		int[] from = new int[vertexCount - 1];
+		int[] to = new int[vertexCount - 1];
+		for (int v = 0; v < vertexCount - 1; v++) {
+			from[v] = v;
+			to[v] = v + 1;
+		}
+		BasicDigraph path = new BasicDigraph(vertexCount, Digraph.EdgeMultiples.DISABLED);
+		path.addEdges(from, to);
+		
+		StrongComponents<BasicDigraph.Edge> sc = new StrongComponents<BasicDigraph.Edge>(path);
+		for (int v = 1; v < vertexCount; v++)
+			assert (!sc.isStronglyReachable(v - 1, v));
+		
+		// Closing the path into a cycle puts all the vertices in one component,
+		// except for one more vertex pointed to from the middle.
+		
+		path.addEdge(vertexCount - 1, new BasicDigraph.Edge(0));
+		path.addEdge(vertexCount / 2, new BasicDigraph.Edge(vertexCount));
+		sc = new StrongComponents<BasicDigraph.Edge>(path);
+		for (int v = 1; v < vertexCount; v++)
+			assert (sc.isStronglyReachable(0, v));
+		assert (!sc.isStronglyReachable(0, vertexCount));
+		
+		System.out.println("StrongComponents in a deep graph passed.");
+	}
+	
+	private static void testComponents() {
+		System.out.println("Testing StrongComponents component membership and condensation:");
+		
+		BasicDigraph graph = new BasicDigraph(13, Digraph.EdgeMultiples.ENABLED);
+		addEdges(graph);
+		addEdges(graph);
+		
+		StrongComponents<BasicDigraph.Edge> sc = new StrongComponents<BasicDigraph.Edge>(graph);
+		assert (sc.getComponentCount() == 4);
+		
+		// The components are numbered in reverse topological order.
+		
+		int[] expectedIds = { 2, 0, 2, 2, 2, 2, 2, 3, 3, 1, 1, 1, 1 };
+		for (int v = 0; v < 13; v++)
+			assert (sc.getComponentId(v) == expectedIds[v]);
+		
+		int members = 0;
+		for (int c = 0; c < sc.getComponentCount(); c++) {
+			int previous = Digraph.NO_VERTEX;
+			for (int i = 0; i < sc.getComponentSize(c); i++) {
+				int v = sc.memberAt(c, i);
+				assert (sc.getComponentId(v) == c);
+				assert (v > previous);
+				previous = v;
+				members++;
+			}
+		}
+		assert (members == 13);
+		assert (sc.getComponentSize(2) == 6);
+		assert (sc.memberAt(3, 1) == 8);
+		
+		// The condensation has one edge for each pair of components joined by
+		// edges, however many edges join them.
+		
+		BasicDigraph condensation = sc.condensation();
+		assert (condensation.getVertexCapacity() == 4);
+		int[][] expected = { {}, {}, { 0, 1 }, { 1, 2 } };
+		for (int c = 0; c < 4; c++) {
+			assert (condensation.getOutDegree(c) == expected[c].length);
+			for (int i = 0; i < expected[c].length; i++)
+				assert (condensation.targetAt(c, i) == expected[c][i]);
+		}
+		
+		boolean failedAsExpected = false;
+		try {
+			sc.getComponentSize(4);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			sc.memberAt(0, 1);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		System.out.println("StrongComponents component membership and condensation passed.");
+	}
+	
 	private static void addEdges(BasicDigraph graph) {
 		graph.addEdge(0, new BasicDigraph.Edge(1));
 		graph.addEdge(0, new BasicDigraph.Edge(5));
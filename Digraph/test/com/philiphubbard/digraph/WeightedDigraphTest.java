@@ -1,5 +1,8 @@
 package com.philiphubbard.digraph;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 
 // Confidence tests for the WeightedDigraph class.
@@ -74,6 +77,227 @@ public class WeightedDigraphTest {
 			}
 		}
 		assert (matches == 4);
+		
+		// Adding edges in bulk gives the same edges and weights, in the same
+		// order, as adding them one at a time.
+		
+		WeightedDigraph graph3 = new WeightedDigraph(4, Digraph.EdgeMultiples.ENABLED);
+		WeightedDigraph graph4 = new WeightedDigraph(4, Digraph.EdgeMultiples.ENABLED);
+		graph3.addEdge(1, new WeightedDigraph.Edge(2, 30.0f));
+		graph4.addEdge(1, new WeightedDigraph.Edge(2, 30.0f));
+		int[] from = { 1, 0, 1, 1, 3, 1 };
+		int[] to = { 2, 3, 0, 2, 3, 2 };
+		float[] weights = { 31.0f, 32.0f, 33.0f, 34.0f, 35.0f, 36.0f };
+		for (int i = 0; i < from.length; i++)
+			graph3.addEdge(from[i], new WeightedDigraph.Edge(to[i], weights[i]));
+		graph4.addEdges(from, to, weights);
+		
+		for (int v = 0; v < 4; v++) {
+			WeightedDigraph.AdjacencyIterator it3 = graph3.createAdjacencyIterator(v);
+			WeightedDigraph.AdjacencyIterator it4 = graph4.createAdjacencyIterator(v);
+			WeightedDigraph.Edge e4 = it4.begin();
+			for (WeightedDigraph.Edge e3 = it3.begin(); !it3.done(); e3 = it3.next()) {
+				assert (e3.getTo() == e4.getTo());
+				assert (e3.getWeight() == e4.getWeight());
+				e4 = it4.next();
+			}
+			assert (it4.done());
+		}
+		
+		// Without edge multiples, the first of several edges between the same
+		// vertices is kept, in bulk as one at a time.
+		
+		WeightedDigraph graph3d = new WeightedDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		WeightedDigraph graph4d = new WeightedDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		graph3d.addEdge(1, new WeightedDigraph.Edge(0, 30.0f));
+		graph4d.addEdge(1, new WeightedDigraph.Edge(0, 30.0f));
+		for (int i = 0; i < from.length; i++)
+			graph3d.addEdge(from[i], new WeightedDigraph.Edge(to[i], weights[i]));
+		graph4d.addEdges(from, to, weights);
+		for (int v = 0; v < 4; v++) {
+			assert (graph3d.getOutDegree(v) == graph4d.getOutDegree(v));
+			for (int i = 0; i < graph3d.getOutDegree(v); i++) {
+				assert (graph3d.targetAt(v, i) == graph4d.targetAt(v, i));
+				assert (graph3d.weightAt(v, i) == graph4d.weightAt(v, i));
+			}
+		}
+		assert (graph4d.weightAt(1, 1) == 31.0f);
+		assert (graph4d.weightAt(1, 0) == 30.0f);
+		
+		WeightedDigraph graph4e = new WeightedDigraph(2, Digraph.EdgeMultiples.DISABLED);
+		graph4e.addEdges(new int[] { 0, 0 }, new int[] { 1, 1 }, new float[] { 1.0f, 2.0f });
+		assert (graph4e.getOutDegree(0) == 1);
+		assert (graph4e.weightAt(0, 0) == 1.0f);
+		
+		// Adding edges in bulk keeps the values of another attached column,
+		// and gives the new edges values of 0 in it.
+		
+		IntEdgeColumn labels = new IntEdgeColumn(graph4e);
+		labels.set(0, 0, 7);
+		graph4e.addEdges(new int[] { 0, 1 }, new int[] { 0, 0 }, new float[] { 3.0f, 4.0f });
+		assert (graph4e.getOutDegree(0) == 2);
+		assert ((graph4e.targetAt(0, 0) == 0) && (graph4e.weightAt(0, 0) == 3.0f));
+		assert (labels.get(0, 0) == 0);
+		assert ((graph4e.targetAt(0, 1) == 1) && (graph4e.weightAt(0, 1) == 1.0f));
+		assert (labels.get(0, 1) == 7);
+		assert ((graph4e.weightAt(1, 0) == 4.0f) && (labels.get(1, 0) == 0));
+		
+		// Writing and reading a graph preserves the edges and weights, in
+		// the same order.
+		
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			graph4.writeTo(out);
+			WeightedDigraph graph5 = 
+					WeightedDigraph.readFrom(new ByteArrayInputStream(out.toByteArray()));
+			assert (graph5.getEdgeMultiples() == Digraph.EdgeMultiples.ENABLED);
+			for (int v = 0; v < 4; v++) {
+				WeightedDigraph.AdjacencyIterator it4 = graph4.createAdjacencyIterator(v);
+				WeightedDigraph.AdjacencyIterator it5 = graph5.createAdjacencyIterator(v);
+				WeightedDigraph.Edge e5 = it5.begin();
+				for (WeightedDigraph.Edge e4 = it4.begin(); !it4.done(); e4 = it4.next()) {
+					assert (e4.getTo() == e5.getTo());
+					assert (e4.getWeight() == e5.getWeight());
+					e5 = it5.next();
+				}
+				assert (it5.done());
+			}
+		}
+		catch (IOException e) {
+			assert (false);
+		}
+		
+		// The weights are stored by position, and move with their edges as 
+		// edges are added and removed.
+		
+		WeightedDigraph graph6 = new WeightedDigraph(4, Digraph.EdgeMultiples.DISABLED);
+		graph6.addEdge(0, new WeightedDigraph.Edge(3, 3.0f));
+		graph6.addEdge(0, new WeightedDigraph.Edge(1, 1.0f));
+		graph6.addEdge(0, new WeightedDigraph.Edge(2, 2.0f));
+		assert ((graph6.targetAt(0, 0) == 1) && (graph6.weightAt(0, 0) == 1.0f));
+		assert ((graph6.targetAt(0, 1) == 2) && (graph6.weightAt(0, 1) == 2.0f));
+		assert ((graph6.targetAt(0, 2) == 3) && (graph6.weightAt(0, 2) == 3.0f));
+		
+		graph6.removeEdge(0, 1);
+		assert ((graph6.targetAt(0, 0) == 2) && (graph6.weightAt(0, 0) == 2.0f));
+		graph6.addEdge(0, new WeightedDigraph.Edge(0, 5.0f));
+		assert ((graph6.targetAt(0, 0) == 0) && (graph6.weightAt(0, 0) == 5.0f));
+		assert ((graph6.targetAt(0, 2) == 3) && (graph6.weightAt(0, 2) == 3.0f));
+		
+		// An edge from an iterator is a view of the edge in the graph, and 
+		// the weights are also changed through the graph or the iterator.
+		
+		Digraph<WeightedDigraph.Edge> snapshot = graph6.snapshot();
+		WeightedDigraph.AdjacencyIterator it6 = graph6.createAdjacencyIterator(0);
+		WeightedDigraph.Edge e6 = it6.begin();
+		assert (e6.getWeight() == 5.0f);
+		e6.setWeight(100.0f);
+		assert (graph6.weightAt(0, 0) == 100.0f);
+		assert (it6.getWeight() == 100.0f);
+		it6.setWeight(6.0f);
+		assert (graph6.weightAt(0, 0) == 6.0f);
+		assert (e6.getWeight() == 6.0f);
+		graph6.setWeightAt(0, 1, 7.0f);
+		assert (it6.next().getWeight() == 7.0f);
+		assert (it6.getWeight() == 7.0f);
+		
+		// Changing weights does not affect a snapshot, whose edges are copies
+		// that cannot be changed.
+		
+		WeightedDigraph.Edge snapshotEdge = snapshot.createAdjacencyIterator(0).begin();
+		assert (snapshotEdge.getWeight() == 5.0f);
+		boolean copyFailedAsExpected = false;
+		try {
+			snapshotEdge.setWeight(100.0f);
+		} catch (UnsupportedOperationException e) {
+			copyFailedAsExpected = true;
+		}
+		assert (copyFailedAsExpected);
+		
+		it6.next();
+		it6.next();
+		boolean failedAsExpected = false;
+		try {
+			it6.getWeight();
+		} catch (IllegalStateException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		failedAsExpected = false;
+		try {
+			graph6.weightAt(0, 3);
+		} catch (IndexOutOfBoundsException e) {
+			failedAsExpected = true;
+		}
+		assert (failedAsExpected);
+		
+		// A view finds its edge again after edges are added and removed, and
+		// keeps its last weight once its edge is removed.
+		
+		WeightedDigraph.AdjacencyIterator it6b = graph6.createAdjacencyIterator(0);
+		it6b.begin();
+		it6b.next();
+		WeightedDigraph.Edge e6b = it6b.next();
+		assert ((e6b.getTo() == 3) && (e6b.getWeight() == 3.0f));
+		graph6.addEdge(0, new WeightedDigraph.Edge(1, 1.0f));
+		e6b.setWeight(9.0f);
+		assert ((graph6.targetAt(0, 3) == 3) && (graph6.weightAt(0, 3) == 9.0f));
+		assert (graph6.weightAt(0, 2) == 7.0f);
+		graph6.removeEdge(0, 3);
+		e6b.setWeight(10.0f);
+		assert (e6b.getWeight() == 10.0f);
+		assert (graph6.getOutDegree(0) == 3);
+		assert (graph6.weightAt(0, 2) == 7.0f);
+		
+		// With edge multiples, a view keeps its place among the matching 
+		// edges, counted from the last of them.
+		
+		WeightedDigraph graph6m = new WeightedDigraph(2, Digraph.EdgeMultiples.ENABLED);
+		graph6m.addEdge(0, new WeightedDigraph.Edge(1, 1.0f));
+		graph6m.addEdge(0, new WeightedDigraph.Edge(1, 2.0f));
+		WeightedDigraph.AdjacencyIterator it6m = graph6m.createAdjacencyIterator(0);
+		it6m.begin();
+		WeightedDigraph.Edge e6m = it6m.next();
+		float last = graph6m.weightAt(0, 1);
+		assert (e6m.getWeight() == last);
+		graph6m.addEdge(0, new WeightedDigraph.Edge(1, 3.0f));
+		assert (e6m.getWeight() == last);
+		e6m.setWeight(20.0f);
+		assert (graph6m.weightAt(0, 2) == 20.0f);
+		
+		// Edges are removed in bulk by weight, and the remaining weights stay 
+		// with their edges.
+		
+		WeightedDigraph graph7 = new WeightedDigraph(4, Digraph.EdgeMultiples.ENABLED);
+		graph7.addEdges(new int[] { 0, 0, 0, 0, 1, 2 }, new int[] { 1, 1, 2, 3, 0, 1 },
+						new float[] { 0.5f, 2.0f, 0.1f, 3.0f, 0.2f, 4.0f });
+		int removed = graph7.removeEdgesIfWeight(new WeightedDigraph.WeightPredicate() {
+			public boolean test(int from, int to, float weight) {
+				return (weight < 1.0f);
+			}
+		});
+		assert (removed == 3);
+		assert (graph7.getOutDegree(0) == 2);
+		assert ((graph7.targetAt(0, 0) == 1) && (graph7.weightAt(0, 0) == 2.0f));
+		assert ((graph7.targetAt(0, 1) == 3) && (graph7.weightAt(0, 1) == 3.0f));
+		assert (graph7.getOutDegree(1) == 0);
+		assert (graph7.getInDegree(1) == 2);
+		
+		removed = graph7.retainEdgesWithWeight(new WeightedDigraph.WeightPredicate() {
+			public boolean test(int from, int to, float weight) {
+				return (to == 1);
+			}
+		});
+		assert (removed == 1);
+		assert ((graph7.getOutDegree(0) == 1) && (graph7.weightAt(0, 0) == 2.0f));
+		assert (graph7.weightAt(2, 0) == 4.0f);
+		
+		// Lambdas work with both the Digraph and the weight versions.
+		
+		assert (graph7.removeEdgesIf((v, index, w) -> (v == 2)) == 1);
+		assert (graph7.retainEdgesWithWeight((v, w, weight) -> (weight > 1.0f)) == 0);
+		assert (graph7.getOutDegree(0) == 1);
 
 		System.out.println("WeightedDigraph passed.");
 	}